@@ -0,0 +1,266 @@
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only IGraph on top of an adjacency view.
+ * The nodes it returns are immutable views of the vertices, every mutation throws
+ * UnsupportedOperationException.
+ */
+public abstract class AbstractGraphView implements IGraph, IAdjacencyView {
+
+    /**
+     * return the node_data by the node_id,
+     *
+     * @param key - the node_id
+     * @return the node_data by the node_id, null if none.
+     */
+    @Override
+    public INodeData getNode(int key) {
+        int index = this.indexOf(key);
+        return index == -1 ? null : new ViewNode(index);
+    }
+
+    /**
+     * return true iff (if and only if) there is an edge between node1 and node2
+     *
+     * @param node1
+     * @param node2
+     * @return
+     */
+    @Override
+    public boolean hasEdge(int node1, int node2) {
+        int u = this.indexOf(node1);
+        int v = this.indexOf(node2);
+        return u != -1 && v != -1 && this.isAdjacent(u, v);
+    }
+
+    /**
+     * return true iff the vertices in the given slots are adjacent,
+     * this scans the smaller neighborhood - views with a faster lookup should override it.
+     *
+     * @param u
+     * @param v
+     * @return
+     */
+    protected boolean isAdjacent(int u, int v) {
+        if (this.degree(u) > this.degree(v)) {
+            int t = u;
+            u = v;
+            v = t;
+        }
+        int[] buffer = new int[this.degree(u)];
+        int degree = this.neighbors(u, buffer);
+        for (int i = 0; i < degree; ++i) {
+            if (buffer[i] == v) return true;
+        }
+        return false;
+    }
+
+    /**
+     * return the remark (meta data) of the vertex in the given slot.
+     *
+     * @param index
+     * @return
+     */
+    protected String infoOf(int index) {
+        return "";
+    }
+
+    @Override
+    public void addNode(INodeData n) {
+        throw new UnsupportedOperationException("read-only graph view");
+    }
+
+    @Override
+    public void connect(int node1, int node2) {
+        throw new UnsupportedOperationException("read-only graph view");
+    }
+
+    @Override
+    public INodeData removeNode(int key) {
+        throw new UnsupportedOperationException("read-only graph view");
+    }
+
+    @Override
+    public void removeEdge(int node1, int node2) {
+        throw new UnsupportedOperationException("read-only graph view");
+    }
+
+    /**
+     * This method return a collection representing all the nodes in the graph.
+     * Note: this method runs in O(1) time, the nodes are created while iterating.
+     *
+     * @return Collection<node_data>
+     */
+    @Override
+    public Collection<INodeData> getV() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<INodeData> iterator() {
+                return new Iterator<>() {
+                    private int next = this.skipEmpty(0);
+
+                    private int skipEmpty(int index) {
+                        while (index < AbstractGraphView.this.capacity() && !AbstractGraphView.this.contains(index)) {
+                            index++;
+                        }
+                        return index;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.next < AbstractGraphView.this.capacity();
+                    }
+
+                    @Override
+                    public INodeData next() {
+                        if (!this.hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        INodeData node = new ViewNode(this.next);
+                        this.next = this.skipEmpty(this.next + 1);
+                        return node;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return AbstractGraphView.this.vertexCount();
+            }
+        };
+    }
+
+    /**
+     * This method return a collection of all the nodes connected to node_id
+     *
+     * @param node_id
+     * @return Collection<node_data>
+     */
+    @Override
+    public Collection<INodeData> getV(int node_id) {
+        INodeData node = this.getNode(node_id);
+        return node == null ? new ArrayList<>() : node.getNi();
+    }
+
+    @Override
+    public int nodeSize() {
+        return this.vertexCount();
+    }
+
+    @Override
+    public int edgeSize() {
+        return this.edgeCount();
+    }
+
+    /**
+     * return the Mode Count - a view never changes, so it is constant.
+     *
+     * @return
+     */
+    @Override
+    public int getMC() {
+        return 0;
+    }
+
+    /**
+     * Gets edge length.
+     *
+     * @param u the first vertex
+     * @param v the second vertex
+     * @return the edge length. if no edge exists return infinity.
+     */
+    @Override
+    public double getEdgeLength(int u, int v) {
+        return this.hasEdge(u, v) ? 1 : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * An immutable node_data of a single vertex of the view.
+     */
+    private class ViewNode implements INodeData {
+        private final int index;
+
+        private ViewNode(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public int getKey() {
+            return AbstractGraphView.this.keyOf(this.index);
+        }
+
+        @Override
+        public Collection<INodeData> getNi() {
+            int[] buffer = new int[AbstractGraphView.this.degree(this.index)];
+            int degree = AbstractGraphView.this.neighbors(this.index, buffer);
+            List<INodeData> ni = new ArrayList<>(degree);
+            for (int i = 0; i < degree; ++i) {
+                ni.add(new ViewNode(buffer[i]));
+            }
+            return ni;
+        }
+
+        @Override
+        public boolean hasNi(int key) {
+            int other = AbstractGraphView.this.indexOf(key);
+            return other != -1 && AbstractGraphView.this.isAdjacent(this.index, other);
+        }
+
+        @Override
+        public void addNi(INodeData t) {
+            throw new UnsupportedOperationException("read-only graph view");
+        }
+
+        @Override
+        public void removeNode(INodeData node) {
+            throw new UnsupportedOperationException("read-only graph view");
+        }
+
+        @Override
+        public String getInfo() {
+            return AbstractGraphView.this.infoOf(this.index);
+        }
+
+        @Override
+        public void setInfo(String s) {
+            throw new UnsupportedOperationException("read-only graph view");
+        }
+
+        @Override
+        public int getTag() {
+            return -1;
+        }
+
+        @Override
+        public void setTag(int t) {
+            throw new UnsupportedOperationException("read-only graph view");
+        }
+
+        private AbstractGraphView view() {
+            return AbstractGraphView.this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ViewNode viewNode = (ViewNode) o;
+            return this.index == viewNode.index && this.view() == viewNode.view();
+        }
+
+        @Override
+        public int hashCode() {
+            return Integer.hashCode(this.getKey());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("vertex number:%d", this.getKey());
+        }
+    }
+}
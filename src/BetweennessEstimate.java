@@ -0,0 +1,75 @@
+/**
+ * The betweenness centrality of every node estimated from a sample of the sources
+ * (see GraphAlgorithms.betweenness(int, long)).
+ * Every sampled source adds its dependencies, which are between 0 and n-2, so by Hoeffding's inequality
+ * the estimate of a node is within errorBound(delta) of its exact centrality with probability 1-delta.
+ */
+public final class BetweennessEstimate {
+    private final double[] values;
+    private final int vertexCount;
+    private final int samples;
+
+    /**
+     * @param values      the estimates, indexed by the node key (-1 for keys with no node)
+     * @param vertexCount the number of vertices in the graph
+     * @param samples     the number of sources sampled
+     */
+    BetweennessEstimate(double[] values, int vertexCount, int samples) {
+        this.values = values;
+        this.vertexCount = vertexCount;
+        this.samples = samples;
+    }
+
+    /**
+     * return the estimated centrality of every node, indexed by the node key, -1 for keys with no node.
+     *
+     * @return
+     */
+    public double[] values() {
+        return this.values;
+    }
+
+    public int samples() {
+        return this.samples;
+    }
+
+    /**
+     * return true iff every vertex was a source, so the values are exact.
+     *
+     * @return
+     */
+    public boolean isExact() {
+        return this.samples >= this.vertexCount;
+    }
+
+    /**
+     * return the error of every estimate with probability 1-delta at least, in the units of values()
+     * (0 if the values are exact).
+     *
+     * @param delta the probability of a larger error, in (0,1)
+     * @return
+     */
+    public double errorBound(double delta) {
+        if (delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("delta must be in (0,1): " + delta);
+        }
+        if (this.isExact() || this.samples == 0) {
+            return this.isExact() ? 0 : Double.POSITIVE_INFINITY;
+        }
+        double n = this.vertexCount;
+        //the sum over n sources of dependencies in [0, n-2], halved for the undirectional graph
+        return n * (n - 2) / 2 * Math.sqrt(Math.log(2 / delta) / (2.0 * this.samples));
+    }
+
+    /**
+     * return the number of sources to sample for errorBound(delta) to be about epsilon times
+     * the largest possible centrality, (n-1)(n-2)/2.
+     *
+     * @param epsilon the relative error
+     * @param delta   the probability of a larger error
+     * @return
+     */
+    public static int samplesFor(double epsilon, double delta) {
+        return (int) Math.ceil(Math.log(2 / delta) / (2 * epsilon * epsilon));
+    }
+}
@@ -0,0 +1,196 @@
+import java.util.Arrays;
+
+/**
+ * An immutable graph kept as an adjacency bit matrix, for dense graphs.
+ * The vertices are numbered 0..n-1 and row i holds a bit per vertex, set iff it is a neighbor of i,
+ * so hasEdge is a single bit test and a traversal can expand a whole frontier 64 vertices at a time
+ * (GraphAlgorithms runs a word-wide BFS on it).
+ * The matrix takes n^2/8 bytes whatever the number of edges - it is smaller than the hash sets of
+ * UndirectedGraph, and than CSR, once the density (see density()) is above 1/32 or so.
+ * Note: the matrix is a single long array, so it is limited to about 370,000 vertices, and a bit has no
+ * room for an edge length - a weighted graph is not kept as a bit matrix.
+ */
+public class BitMatrixGraph extends AbstractGraphView {
+    private final long[] bits;
+    private final int words;
+    private final int[] degrees;
+    private final int[] keys;
+    private final int[] indexes;
+    private final String[] info;
+    private final int edgeCount;
+    private final int maxDegree;
+    private final int modeCount;
+
+    private BitMatrixGraph(long[] bits, int words, int[] keys, String[] info, int modeCount) {
+        this.bits = bits;
+        this.words = words;
+        this.keys = keys;
+        this.info = info;
+        this.modeCount = modeCount;
+        this.degrees = new int[keys.length];
+        long degreeSum = 0;
+        int maxDegree = 0;
+        int capacity = 0;
+        for (int i = 0; i < keys.length; ++i) {
+            int degree = 0;
+            for (int w = i * words; w < (i + 1) * words; ++w) {
+                degree += Long.bitCount(bits[w]);
+            }
+            this.degrees[i] = degree;
+            degreeSum += degree;
+            maxDegree = Math.max(maxDegree, degree);
+            capacity = Math.max(capacity, keys[i] + 1);
+        }
+        this.edgeCount = (int) (degreeSum / 2);
+        this.maxDegree = maxDegree;
+        this.indexes = new int[capacity];
+        Arrays.fill(this.indexes, -1);
+        for (int i = 0; i < keys.length; ++i) {
+            this.indexes[keys[i]] = i;
+        }
+    }
+
+    /**
+     * Copies the given graph, numbering its vertices by the order of their keys.
+     * Note: this method runs in O(|V|^2/64+|E|) time.
+     *
+     * @param g
+     * @return
+     * @throws UnsupportedOperationException if the graph is weighted
+     */
+    public static BitMatrixGraph of(IGraph g) {
+        IAdjacencyView view;
+        if (g instanceof IAdjacencyView) {
+            view = (IAdjacencyView) g;
+        } else if (g instanceof UndirectedGraph) {
+            view = ((UndirectedGraph) g).snapshot();
+        } else {
+            view = GraphSnapshot.of(g);
+        }
+        if (view.isWeighted()) {
+            throw new UnsupportedOperationException("a bit matrix of a weighted graph");
+        }
+        int[] order = VertexOrdering.KEY.order(view);
+        int[] newIndex = new int[view.capacity()];
+        for (int i = 0; i < order.length; ++i) {
+            newIndex[order[i]] = i;
+        }
+        int n = order.length;
+        int words = (n + 63) >>> 6;
+        if ((long) n * words > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("too many vertices for a bit matrix: " + n);
+        }
+        long[] bits = new long[n * words];
+        int[] keys = new int[n];
+        String[] info = new String[n];
+        int[] buffer = new int[view.maxDegree()];
+        for (int i = 0; i < n; ++i) {
+            int degree = view.neighbors(order[i], buffer);
+            for (int j = 0; j < degree; ++j) {
+                int v = newIndex[buffer[j]];
+                bits[i * words + (v >>> 6)] |= 1L << v;
+            }
+            keys[i] = view.keyOf(order[i]);
+            info[i] = view instanceof AbstractGraphView ? ((AbstractGraphView) view).infoOf(order[i]) : "";
+        }
+        return new BitMatrixGraph(bits, words, keys, info, g.getMC());
+    }
+
+    /**
+     * return the fraction of all the possible edges which are in the graph.
+     *
+     * @return
+     */
+    public double density() {
+        long n = this.keys.length;
+        return n < 2 ? 0 : this.edgeCount / (n * (n - 1) / 2.0);
+    }
+
+    /**
+     * return the number of longs in every row of the matrix.
+     */
+    int words() {
+        return this.words;
+    }
+
+    /**
+     * return the matrix, row i is bits[i*words()..(i+1)*words()-1] - for the word-wide traversals.
+     */
+    long[] bits() {
+        return this.bits;
+    }
+
+    @Override
+    public int capacity() {
+        return this.keys.length;
+    }
+
+    @Override
+    public boolean contains(int index) {
+        return index >= 0 && index < this.keys.length;
+    }
+
+    @Override
+    public int vertexCount() {
+        return this.keys.length;
+    }
+
+    @Override
+    public int edgeCount() {
+        return this.edgeCount;
+    }
+
+    @Override
+    public int keyOf(int index) {
+        return this.keys[index];
+    }
+
+    @Override
+    public int indexOf(int key) {
+        return key >= 0 && key < this.indexes.length ? this.indexes[key] : -1;
+    }
+
+    @Override
+    public int degree(int index) {
+        return this.degrees[index];
+    }
+
+    @Override
+    public int maxDegree() {
+        return this.maxDegree;
+    }
+
+    @Override
+    public int neighbors(int index, int[] buffer) {
+        int k = 0;
+        int row = index * this.words;
+        for (int w = 0; w < this.words; ++w) {
+            long word = this.bits[row + w];
+            while (word != 0) {
+                buffer[k++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return k;
+    }
+
+    @Override
+    protected boolean isAdjacent(int u, int v) {
+        return (this.bits[u * this.words + (v >>> 6)] & (1L << v)) != 0;
+    }
+
+    @Override
+    protected String infoOf(int index) {
+        return this.info[index];
+    }
+
+    /**
+     * return the Mode Count of the graph this one was copied from.
+     *
+     * @return
+     */
+    @Override
+    public int getMC() {
+        return this.modeCount;
+    }
+}
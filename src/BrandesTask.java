@@ -0,0 +1,111 @@
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Brandes' betweenness centrality over a range of sources, as a fork/join task.
+ * The range is split in half until it is small enough, every leaf accumulates the dependencies of its
+ * sources into its own array and the halves are summed on join - the threads never share a counter.
+ * The result is the sum of the dependencies of every slot on the sources, not yet halved.
+ * The BFS runs use the BFS core of GraphAlgorithms (bfsLevels), the shortest paths are counted after it.
+ */
+class BrandesTask extends RecursiveTask<double[]> {
+    private static final long serialVersionUID = 1L;
+    private final IAdjacencyView view;
+    private final int[] sources;
+    private final int from;
+    private final int to;
+    private final int grain;
+    private final Thread caller;
+    /**
+     * The vertices settled and the edges scanned by this task, for the statistics.
+     */
+    long settled;
+    long relaxed;
+
+    /**
+     * @param view    the graph
+     * @param sources the slots of the sources
+     * @param from    the first source of the range
+     * @param to      the end of the range (exclusive)
+     * @param grain   the number of sources a leaf runs
+     * @param caller  the thread which waits for the result, its interrupt cancels the task
+     */
+    BrandesTask(IAdjacencyView view, int[] sources, int from, int to, int grain, Thread caller) {
+        this.view = view;
+        this.sources = sources;
+        this.from = from;
+        this.to = to;
+        this.grain = grain;
+        this.caller = caller;
+    }
+
+    @Override
+    protected double[] compute() {
+        if (this.to - this.from > this.grain) {
+            int mid = (this.from + this.to) >>> 1;
+            BrandesTask left = new BrandesTask(this.view, this.sources, this.from, mid, this.grain, this.caller);
+            BrandesTask right = new BrandesTask(this.view, this.sources, mid, this.to, this.grain, this.caller);
+            left.fork();
+            double[] sum = right.compute();
+            double[] other = left.join();
+            for (int i = 0; i < sum.length; ++i) {
+                sum[i] += other[i];
+            }
+            this.settled = left.settled + right.settled;
+            this.relaxed = left.relaxed + right.relaxed;
+            return sum;
+        }
+        int capacity = this.view.capacity();
+        double[] centrality = new double[capacity];
+        int[] dist = new int[capacity];
+        double[] sigma = new double[capacity];
+        double[] delta = new double[capacity];
+        int[] order = new int[this.view.vertexCount()];
+        int[] ni = new int[this.view.maxDegree()];
+        Arrays.fill(dist, -1);
+        for (int k = this.from; k < this.to; ++k) {
+            if (this.caller.isInterrupted()) {
+                throw new CancellationException("the query was interrupted");
+            }
+            int s = this.sources[k];
+            int tail = GraphAlgorithms.bfsLevels(this.view, s, dist, order, ni, null);
+            //the shortest paths to every vertex, in the order the vertices were settled
+            sigma[s] = 1;
+            for (int j = 0; j < tail; ++j) {
+                int u = order[j];
+                int degree = this.view.neighbors(u, ni);
+                this.relaxed += degree;
+                for (int i = 0; i < degree; ++i) {
+                    if (dist[ni[i]] == dist[u] + 1) {
+                        sigma[ni[i]] += sigma[u];
+                    }
+                }
+            }
+            this.settled += tail;
+            //the dependencies, from the farthest vertices back - the successors of v are the neighbors one level below
+            for (int j = tail - 1; j >= 0; --j) {
+                int v = order[j];
+                int degree = this.view.neighbors(v, ni);
+                double dv = 0;
+                for (int i = 0; i < degree; ++i) {
+                    int w = ni[i];
+                    if (dist[w] == dist[v] + 1) {
+                        dv += sigma[v] / sigma[w] * (1 + delta[w]);
+                    }
+                }
+                delta[v] = dv;
+                if (v != s) {
+                    centrality[v] += dv;
+                }
+            }
+            for (int j = 0; j < tail; ++j) {
+                int v = order[j];
+                dist[v] = -1;
+                sigma[v] = 0;
+                delta[v] = 0;
+            }
+        }
+        return centrality;
+    }
+}
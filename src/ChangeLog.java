@@ -0,0 +1,145 @@
+/**
+ * A bounded log of the latest mutations of an UndirectedGraph (see UndirectedGraph.enableChangeLog),
+ * so caches, indexes and replicas which saw the graph at some mode count can catch up with the changes
+ * since then rather than rebuilding - the changes are read as a GraphDelta, which a replica
+ * GraphSnapshot (or a VersionedGraph) applies as is.
+ * The mutations are kept in a ring of primitive arrays, with the mode count of the graph after each one,
+ * and the oldest mutations are overwritten once it is full: reading the changes since a mode count fails
+ * once some of them were overwritten (see covers).
+ * Mutations which change nothing (connecting an existing edge, removing a missing one) are not logged.
+ * Note: the log is written by the writer thread of the graph and can be read by any thread.
+ */
+public class ChangeLog {
+    private final byte[] ops;
+    private final int[] first;
+    private final int[] second;
+    private final double[] lengths;
+    private final String[] info;
+    private final int[] modeCounts;
+    private final int mask;
+    /**
+     * The number of mutations ever logged, the next one goes to position written & mask.
+     */
+    private long written = 0;
+    /**
+     * The mode count up to which the changes are no longer in the log.
+     */
+    private int floor;
+
+    /**
+     * @param capacity  the number of mutations to keep, rounded up to a power of 2
+     * @param modeCount the mode count of the graph when logging starts
+     */
+    ChangeLog(int capacity, int modeCount) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("illegal capacity: " + capacity);
+        }
+        capacity = Integer.highestOneBit(capacity - 1) << 1;
+        capacity = Math.max(1, capacity);
+        this.ops = new byte[capacity];
+        this.first = new int[capacity];
+        this.second = new int[capacity];
+        this.lengths = new double[capacity];
+        this.info = new String[capacity];
+        this.modeCounts = new int[capacity];
+        this.mask = capacity - 1;
+        this.floor = modeCount;
+    }
+
+    /**
+     * Logs a mutation, with the operation codes of GraphDelta.
+     */
+    synchronized void record(byte op, int node1, int node2, String info, double length, int modeCount) {
+        int i = (int) (this.written & this.mask);
+        if (this.written > this.mask) {
+            this.floor = this.modeCounts[i];
+        }
+        this.ops[i] = op;
+        this.first[i] = node1;
+        this.second[i] = node2;
+        this.info[i] = info;
+        this.lengths[i] = length;
+        this.modeCounts[i] = modeCount;
+        this.written++;
+    }
+
+    public int capacity() {
+        return this.mask + 1;
+    }
+
+    /**
+     * return the number of mutations in the log.
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return (int) Math.min(this.written, this.mask + 1);
+    }
+
+    /**
+     * return the mode count of the graph after the latest logged mutation.
+     *
+     * @return
+     */
+    public synchronized int modeCount() {
+        return this.written == 0 ? this.floor : this.modeCounts[(int) ((this.written - 1) & this.mask)];
+    }
+
+    /**
+     * return true iff all the changes since the given mode count are still in the log.
+     *
+     * @param modeCount
+     * @return
+     */
+    public synchronized boolean covers(int modeCount) {
+        return modeCount >= this.floor;
+    }
+
+    /**
+     * Adds the changes since the given mode count to the delta, in order, up to max of them - so a large
+     * backlog can be read in batches, each one from the mode count the previous one returned.
+     *
+     * @param modeCount the mode count of the graph the reader saw last
+     * @param delta     gets the changes added
+     * @param max       the largest number of changes to add
+     * @return the mode count after the last change added, the given one if there were none.
+     * @throws IllegalStateException if some of the changes were overwritten (see covers), the reader has to
+     *                               rebuild from the graph.
+     */
+    public synchronized int readSince(int modeCount, GraphDelta delta, int max) {
+        if (!this.covers(modeCount)) {
+            throw new IllegalStateException("the changes since mode count " + modeCount + " were overwritten");
+        }
+        //the mode counts increase along the log, the first change after modeCount is found by a binary search
+        long low = this.written - this.size();
+        long high = this.written;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (this.modeCounts[(int) (mid & this.mask)] <= modeCount) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int last = modeCount;
+        for (long k = low; k < this.written && k - low < max; ++k) {
+            int i = (int) (k & this.mask);
+            switch (this.ops[i]) {
+                case GraphDelta.ADD_NODE:
+                    delta.addNode(this.first[i], this.info[i]);
+                    break;
+                case GraphDelta.CONNECT:
+                    delta.connect(this.first[i], this.second[i], this.lengths[i]);
+                    break;
+                case GraphDelta.REMOVE_EDGE:
+                    delta.removeEdge(this.first[i], this.second[i]);
+                    break;
+                case GraphDelta.REMOVE_NODE:
+                    delta.removeNode(this.first[i]);
+                    break;
+            }
+            last = this.modeCounts[i];
+        }
+        return last;
+    }
+}
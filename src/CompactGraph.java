@@ -0,0 +1,270 @@
+import java.util.Arrays;
+
+/**
+ * An immutable graph in compressed sparse row (CSR) form: the vertices are numbered 0..n-1 and the
+ * neighbors of vertex i are targets[offsets[i]..offsets[i+1]-1], sorted - all the adjacency is in
+ * two flat int arrays, so a traversal reads it sequentially.
+ * The numbering is free of the node keys, which are kept on the side (keyOf/indexOf), so the vertices
+ * can be renumbered (see relabel and VertexOrdering) to put neighbors close together in memory.
+ * The lengths of the edges of a weighted graph are kept in a third array, parallel to the targets.
+ * A compact graph can be read by any number of threads, the nodes it returns are immutable.
+ */
+public class CompactGraph extends AbstractGraphView {
+    private final int[] offsets;
+    private final int[] targets;
+    /**
+     * The length of every edge in targets, null if they are all 1.
+     */
+    private final double[] lengths;
+    private final int[] keys;
+    private final int[] indexes;
+    private final String[] info;
+    private final int maxDegree;
+    private final int modeCount;
+
+    private CompactGraph(int[] offsets, int[] targets, double[] lengths, int[] keys, String[] info, int modeCount) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.lengths = lengths;
+        this.keys = keys;
+        this.info = info;
+        this.modeCount = modeCount;
+        int capacity = 0;
+        int maxDegree = 0;
+        for (int i = 0; i < keys.length; ++i) {
+            capacity = Math.max(capacity, keys[i] + 1);
+            maxDegree = Math.max(maxDegree, offsets[i + 1] - offsets[i]);
+        }
+        this.maxDegree = maxDegree;
+        this.indexes = new int[capacity];
+        Arrays.fill(this.indexes, -1);
+        for (int i = 0; i < keys.length; ++i) {
+            this.indexes[keys[i]] = i;
+        }
+    }
+
+    /**
+     * Copies the given graph, numbering its vertices by the order of their keys.
+     * Note: this method runs in O(|V|+|E|) time.
+     *
+     * @param g
+     * @return
+     */
+    public static CompactGraph of(IGraph g) {
+        return of(g, VertexOrdering.KEY);
+    }
+
+    /**
+     * Copies the given graph, numbering its vertices by the given ordering.
+     *
+     * @param g
+     * @param ordering
+     * @return
+     */
+    public static CompactGraph of(IGraph g, VertexOrdering ordering) {
+        IAdjacencyView view;
+        if (g instanceof IAdjacencyView) {
+            view = (IAdjacencyView) g;
+        } else if (g instanceof UndirectedGraph) {
+            view = ((UndirectedGraph) g).snapshot();
+        } else {
+            view = GraphSnapshot.of(g);
+        }
+        return of(view, ordering.order(view), g.getMC());
+    }
+
+    /**
+     * Copies the vertices of the view in the given order, order[i] is the slot of the new vertex i.
+     */
+    static CompactGraph of(IAdjacencyView view, int[] order, int modeCount) {
+        int[] newIndex = new int[view.capacity()];
+        Arrays.fill(newIndex, -1);
+        for (int i = 0; i < order.length; ++i) {
+            newIndex[order[i]] = i;
+        }
+        int[] offsets = new int[order.length + 1];
+        for (int i = 0; i < order.length; ++i) {
+            offsets[i + 1] = offsets[i] + view.degree(order[i]);
+        }
+        int[] targets = new int[offsets[order.length]];
+        double[] lengths = view.isWeighted() ? new double[targets.length] : null;
+        int[] keys = new int[order.length];
+        String[] info = new String[order.length];
+        int[] buffer = new int[view.maxDegree()];
+        double[] lengthBuffer = lengths == null ? null : new double[view.maxDegree()];
+        long[] sorted = lengths == null ? null : new long[view.maxDegree()];
+        for (int i = 0; i < order.length; ++i) {
+            int degree = view.neighbors(order[i], buffer);
+            if (lengths == null) {
+                for (int j = 0; j < degree; ++j) {
+                    targets[offsets[i] + j] = newIndex[buffer[j]];
+                }
+                Arrays.sort(targets, offsets[i], offsets[i] + degree);
+            } else {
+                //(target, position) pairs, so the lengths are sorted along with the targets
+                view.lengths(order[i], lengthBuffer);
+                for (int j = 0; j < degree; ++j) {
+                    sorted[j] = ((long) newIndex[buffer[j]] << 32) | j;
+                }
+                Arrays.sort(sorted, 0, degree);
+                for (int j = 0; j < degree; ++j) {
+                    targets[offsets[i] + j] = (int) (sorted[j] >>> 32);
+                    lengths[offsets[i] + j] = lengthBuffer[(int) sorted[j]];
+                }
+            }
+            keys[i] = view.keyOf(order[i]);
+            info[i] = view instanceof AbstractGraphView ? ((AbstractGraphView) view).infoOf(order[i]) : "";
+        }
+        return new CompactGraph(offsets, targets, lengths, keys, info, modeCount);
+    }
+
+    /**
+     * Returns a copy of this graph with its vertices renumbered by the given ordering,
+     * the node keys stay the same.
+     * Note: this method runs in O(|V|+|E|) time (plus the ordering itself).
+     *
+     * @param ordering
+     * @return
+     */
+    public CompactGraph relabel(VertexOrdering ordering) {
+        return this.relabel(ordering.order(this));
+    }
+
+    /**
+     * Returns a copy of this graph with its vertices renumbered: the vertex order[i] becomes vertex i.
+     *
+     * @param order a permutation of 0..vertexCount()-1
+     * @return
+     */
+    public CompactGraph relabel(int[] order) {
+        if (order.length != this.keys.length) {
+            throw new IllegalArgumentException("the order is not a permutation of the vertices");
+        }
+        boolean[] seen = new boolean[order.length];
+        for (int v : order) {
+            if (v < 0 || v >= order.length || seen[v]) {
+                throw new IllegalArgumentException("the order is not a permutation of the vertices");
+            }
+            seen[v] = true;
+        }
+        return of(this, order, this.modeCount);
+    }
+
+    /**
+     * return the start of the neighbors of every vertex in targets(), and their end at the last entry
+     * - for the numeric kernels, which must not change it.
+     */
+    int[] offsets() {
+        return this.offsets;
+    }
+
+    /**
+     * return the neighbors of all the vertices, one after the other (see offsets()).
+     */
+    int[] targets() {
+        return this.targets;
+    }
+
+    /**
+     * return the number of bytes of the adjacency arrays, the footprint of the graph structure.
+     *
+     * @return
+     */
+    public long adjacencyBytes() {
+        long bytes = 4L * (this.offsets.length + this.targets.length + this.keys.length + this.indexes.length);
+        return this.lengths == null ? bytes : bytes + 8L * this.lengths.length;
+    }
+
+    @Override
+    public int capacity() {
+        return this.keys.length;
+    }
+
+    @Override
+    public boolean contains(int index) {
+        return index >= 0 && index < this.keys.length;
+    }
+
+    @Override
+    public int vertexCount() {
+        return this.keys.length;
+    }
+
+    @Override
+    public int edgeCount() {
+        return this.targets.length / 2;
+    }
+
+    @Override
+    public int keyOf(int index) {
+        return this.keys[index];
+    }
+
+    @Override
+    public int indexOf(int key) {
+        return key >= 0 && key < this.indexes.length ? this.indexes[key] : -1;
+    }
+
+    @Override
+    public int degree(int index) {
+        return this.offsets[index + 1] - this.offsets[index];
+    }
+
+    @Override
+    public int maxDegree() {
+        return this.maxDegree;
+    }
+
+    @Override
+    public int neighbors(int index, int[] buffer) {
+        int degree = this.degree(index);
+        System.arraycopy(this.targets, this.offsets[index], buffer, 0, degree);
+        return degree;
+    }
+
+    @Override
+    public boolean isWeighted() {
+        return this.lengths != null;
+    }
+
+    @Override
+    public int lengths(int index, double[] buffer) {
+        if (this.lengths == null) {
+            return super.lengths(index, buffer);
+        }
+        int degree = this.degree(index);
+        System.arraycopy(this.lengths, this.offsets[index], buffer, 0, degree);
+        return degree;
+    }
+
+    @Override
+    public double getEdgeLength(int u, int v) {
+        int a = this.indexOf(u);
+        int b = this.indexOf(v);
+        int at = a == -1 || b == -1 ? -1 : Arrays.binarySearch(this.targets, this.offsets[a], this.offsets[a + 1], b);
+        if (at < 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return this.lengths == null ? 1 : this.lengths[at];
+    }
+
+    @Override
+    protected boolean isAdjacent(int u, int v) {
+        return Arrays.binarySearch(this.targets, this.offsets[u], this.offsets[u + 1], v) >= 0;
+    }
+
+    @Override
+    protected String infoOf(int index) {
+        return this.info[index];
+    }
+
+    /**
+     * return the Mode Count of the graph this one was copied from.
+     *
+     * @return
+     */
+    @Override
+    public int getMC() {
+        return this.modeCount;
+    }
+}
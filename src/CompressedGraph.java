@@ -0,0 +1,267 @@
+import java.util.Arrays;
+
+/**
+ * An immutable graph whose adjacency is compressed, for graphs too large for CompactGraph.
+ * The sorted neighbors of every vertex are written as gaps in variable length bytes (as in WebGraph):
+ * the degree, the distance of the first neighbor from the vertex, and the gaps between the next ones -
+ * 7 bits per byte, the high bit marking that another byte follows.
+ * After a locality ordering (VertexOrdering.BFS or RCM) most gaps fit in one byte, so the adjacency
+ * takes a few times less than the 4 bytes per neighbor of CSR, and neighbors() decodes it sequentially.
+ * A graph which does not fit in memory uncompressed is compressed vertex by vertex, as it is read, by a Builder.
+ * Note: the encoded adjacency is a single byte array, so it is limited to 2GB, and it has no edge lengths
+ * - a weighted graph is not compressed.
+ */
+public class CompressedGraph extends AbstractGraphView {
+    private final byte[] adjacency;
+    private final int[] offsets;
+    private final int[] keys;
+    private final int[] indexes;
+    private final int edgeCount;
+    private final int maxDegree;
+    private final int modeCount;
+
+    private CompressedGraph(byte[] adjacency, int[] offsets, int[] keys, int edgeCount, int maxDegree, int modeCount) {
+        this.adjacency = adjacency;
+        this.offsets = offsets;
+        this.keys = keys;
+        this.edgeCount = edgeCount;
+        this.maxDegree = maxDegree;
+        this.modeCount = modeCount;
+        int capacity = 0;
+        for (int key : keys) {
+            capacity = Math.max(capacity, key + 1);
+        }
+        this.indexes = new int[capacity];
+        Arrays.fill(this.indexes, -1);
+        for (int i = 0; i < keys.length; ++i) {
+            this.indexes[keys[i]] = i;
+        }
+    }
+
+    /**
+     * Compresses the given graph, numbering its vertices by the given ordering.
+     * The vertices are read one by one from the graph when it is an adjacency view (a snapshot, a CompactGraph),
+     * else from its snapshot - no other copy of the adjacency is made. A graph too large to hold even once
+     * uncompressed is compressed vertex by vertex with a Builder.
+     * Note: this method runs in O(|V|+|E|log(maxDegree)) time, plus the ordering itself.
+     *
+     * @param g
+     * @param ordering
+     * @return
+     * @throws UnsupportedOperationException if the graph is weighted
+     */
+    public static CompressedGraph of(IGraph g, VertexOrdering ordering) {
+        IAdjacencyView view;
+        if (g instanceof IAdjacencyView) {
+            view = (IAdjacencyView) g;
+        } else if (g instanceof UndirectedGraph) {
+            view = ((UndirectedGraph) g).snapshot();
+        } else {
+            view = GraphSnapshot.of(g);
+        }
+        if (view.isWeighted()) {
+            throw new UnsupportedOperationException("compressing a weighted graph");
+        }
+        int[] order = ordering.order(view);
+        int[] newIndex = new int[view.capacity()];
+        for (int i = 0; i < order.length; ++i) {
+            newIndex[order[i]] = i;
+        }
+        Builder builder = new Builder(order.length);
+        int[] buffer = new int[view.maxDegree()];
+        for (int i = 0; i < order.length; ++i) {
+            int degree = view.neighbors(order[i], buffer);
+            for (int j = 0; j < degree; ++j) {
+                buffer[j] = newIndex[buffer[j]];
+            }
+            Arrays.sort(buffer, 0, degree);
+            builder.addVertex(view.keyOf(order[i]), buffer, degree);
+        }
+        return builder.build(g.getMC());
+    }
+
+    /**
+     * return the number of bytes of the adjacency arrays, the footprint of the graph structure.
+     *
+     * @return
+     */
+    public long adjacencyBytes() {
+        return this.adjacency.length + 4L * (this.offsets.length + this.keys.length + this.indexes.length);
+    }
+
+    @Override
+    public int capacity() {
+        return this.keys.length;
+    }
+
+    @Override
+    public boolean contains(int index) {
+        return index >= 0 && index < this.keys.length;
+    }
+
+    @Override
+    public int vertexCount() {
+        return this.keys.length;
+    }
+
+    @Override
+    public int edgeCount() {
+        return this.edgeCount;
+    }
+
+    @Override
+    public int keyOf(int index) {
+        return this.keys[index];
+    }
+
+    @Override
+    public int indexOf(int key) {
+        return key >= 0 && key < this.indexes.length ? this.indexes[key] : -1;
+    }
+
+    @Override
+    public int degree(int index) {
+        byte[] bytes = this.adjacency;
+        int p = this.offsets[index];
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = bytes[p++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    @Override
+    public int maxDegree() {
+        return this.maxDegree;
+    }
+
+    @Override
+    public int neighbors(int index, int[] buffer) {
+        byte[] bytes = this.adjacency;
+        int p = this.offsets[index];
+        int degree = 0;
+        int previous = 0;
+        //the varints are decoded inline, this is the inner loop of every traversal
+        for (int i = -1; i < degree; ++i) {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[p++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) break;
+            }
+            if (i == -1) {
+                degree = value;
+            } else if (i == 0) {
+                previous = index + ((value >>> 1) ^ -(value & 1));
+                buffer[0] = previous;
+            } else {
+                previous += value + 1;
+                buffer[i] = previous;
+            }
+        }
+        return degree;
+    }
+
+    @Override
+    protected boolean isAdjacent(int u, int v) {
+        int[] buffer = new int[this.degree(u)];
+        int degree = this.neighbors(u, buffer);
+        return Arrays.binarySearch(buffer, 0, degree, v) >= 0;
+    }
+
+    /**
+     * return the Mode Count of the graph this one was compressed from.
+     *
+     * @return
+     */
+    @Override
+    public int getMC() {
+        return this.modeCount;
+    }
+
+    /**
+     * Compresses a graph vertex by vertex, without holding its uncompressed adjacency.
+     * The vertices are numbered by the order they are added in, the neighbors are given by those numbers.
+     */
+    public static class Builder {
+        private final int vertexCount;
+        private final int[] offsets;
+        private final int[] keys;
+        private byte[] adjacency = new byte[64];
+        private int size = 0;
+        private int added = 0;
+        private long degrees = 0;
+        private int maxDegree = 0;
+
+        /**
+         * @param vertexCount the number of vertices which will be added
+         */
+        public Builder(int vertexCount) {
+            this.vertexCount = vertexCount;
+            this.offsets = new int[vertexCount];
+            this.keys = new int[vertexCount];
+        }
+
+        /**
+         * Adds the next vertex.
+         *
+         * @param key       the key of its node
+         * @param neighbors the numbers of its neighbors (in 0..vertexCount-1), sorted and distinct
+         * @param degree    the number of neighbors, at the start of the array
+         * @return this builder
+         */
+        public Builder addVertex(int key, int[] neighbors, int degree) {
+            if (this.added == this.vertexCount) {
+                throw new IllegalStateException("all the vertices were already added");
+            }
+            int index = this.added;
+            this.offsets[index] = this.size;
+            this.keys[index] = key;
+            this.write(degree);
+            for (int i = 0; i < degree; ++i) {
+                int v = neighbors[i];
+                if (v < 0 || v >= this.vertexCount || (i > 0 && v <= neighbors[i - 1])) {
+                    throw new IllegalArgumentException("the neighbors of vertex " + index + " are not sorted vertex numbers");
+                }
+                if (i == 0) {
+                    int gap = v - index;
+                    this.write((gap << 1) ^ (gap >> 31));
+                } else {
+                    this.write(v - neighbors[i - 1] - 1);
+                }
+            }
+            this.added++;
+            this.degrees += degree;
+            this.maxDegree = Math.max(this.maxDegree, degree);
+            return this;
+        }
+
+        private void write(int value) {
+            if (this.size + 5 > this.adjacency.length) {
+                long grown = Math.max(this.size + 5L, this.adjacency.length * 3L / 2);
+                if (grown > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("the compressed adjacency exceeds 2GB");
+                }
+                this.adjacency = Arrays.copyOf(this.adjacency, (int) grown);
+            }
+            while ((value & ~0x7F) != 0) {
+                this.adjacency[this.size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            this.adjacency[this.size++] = (byte) value;
+        }
+
+        public CompressedGraph build() {
+            return this.build(0);
+        }
+
+        private CompressedGraph build(int modeCount) {
+            if (this.added != this.vertexCount) {
+                throw new IllegalStateException(String.format("only %d of %d vertices were added", this.added, this.vertexCount));
+            }
+            return new CompressedGraph(Arrays.copyOf(this.adjacency, this.size), this.offsets, this.keys,
+                    (int) (this.degrees / 2), this.maxDegree, modeCount);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An undirectional graph which many threads can change at the same time, for parallel ingestion.
+ * The adjacency is kept in concurrent sets, so hasEdge and getV(key) never block,
+ * and every mutation locks only the stripes of its end vertices (a lock per range of keys),
+ * so threads working on different vertices do not wait for each other.
+ * Note: the neighbor sets of the nodes themselves are updated under the same locks,
+ * they are safe to read once the writers are done - concurrent readers should use getV(key),
+ * or run GraphAlgorithms on a snapshot (GraphSnapshot.of) taken after ingestion.
+ */
+public class ConcurrentUndirectedGraph implements IGraph {
+    private final ConcurrentHashMap<Integer, INodeData> vertices = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Set<Integer>> adjacency = new ConcurrentHashMap<>();
+    private final LongAdder edges = new LongAdder();
+    private final AtomicInteger modeCount = new AtomicInteger();
+    private final Object[] locks;
+
+    public ConcurrentUndirectedGraph() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param concurrencyLevel the expected number of writer threads, the number of lock stripes is
+     *                         the next power of two.
+     */
+    public ConcurrentUndirectedGraph(int concurrencyLevel) {
+        int stripes = Integer.highestOneBit(Math.max(16, concurrencyLevel - 1) << 1);
+        this.locks = new Object[stripes];
+        for (int i = 0; i < stripes; ++i) {
+            this.locks[i] = new Object();
+        }
+    }
+
+    private int stripeOf(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (this.locks.length - 1);
+    }
+
+    private Object lockOf(int key) {
+        return this.locks[this.stripeOf(key)];
+    }
+
+    /**
+     * return the node_data by the node_id,
+     *
+     * @param key - the node_id
+     * @return the node_data by the node_id, null if none.
+     */
+    @Override
+    public INodeData getNode(int key) {
+        return this.vertices.get(key);
+    }
+
+    /**
+     * return true iff (if and only if) there is an edge between node1 and node2
+     * Note: this method runs in O(1) time, without locking.
+     *
+     * @param node1
+     * @param node2
+     * @return
+     */
+    @Override
+    public boolean hasEdge(int node1, int node2) {
+        Set<Integer> ni = this.adjacency.get(node1);
+        return ni != null && ni.contains(node2);
+    }
+
+    /**
+     * add a new node to the graph with the given node_data.
+     * Note: this method runs in O(1) time, but adding a node whose key is being removed waits until the
+     * removal is done - its edges would be taken for the edges of the new node.
+     *
+     * @param n
+     */
+    @Override
+    public void addNode(INodeData n) {
+        int key = n.getKey();
+        Object lock = this.lockOf(key);
+        synchronized (lock) {
+            boolean interrupted = false;
+            //the adjacency of a removed node stays until all its edges are removed
+            while (!this.vertices.containsKey(key) && this.adjacency.containsKey(key)) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (this.vertices.containsKey(key)) return;
+            this.adjacency.put(key, ConcurrentHashMap.newKeySet());
+            this.vertices.put(key, n);
+            GraphMutationEvent.emit("addNode", key, -1, 0, this.modeCount.incrementAndGet());
+        }
+    }
+
+    /**
+     * Connect an edge between node1 and node2.
+     * Note: this method runs in O(1) time, it locks the stripes of both nodes.
+     * Note2: if the edge node1-node2 already exists - the method simply does nothing.
+     *
+     * @param node1
+     * @param node2
+     */
+    @Override
+    public void connect(int node1, int node2) {
+        //the stripes are always locked in the same order, so two edges never wait for each other
+        Object first = this.locks[Math.min(this.stripeOf(node1), this.stripeOf(node2))];
+        Object second = this.locks[Math.max(this.stripeOf(node1), this.stripeOf(node2))];
+        synchronized (first) {
+            synchronized (second) {
+                INodeData n1 = this.vertices.get(node1);
+                INodeData n2 = this.vertices.get(node2);
+                if (n1 == null || n2 == null || !this.adjacency.get(node1).add(node2)) return;
+                this.adjacency.get(node2).add(node1);
+                n1.addNi(n2);
+                n2.addNi(n1);
+                this.edges.increment();
+                GraphMutationEvent.emit("connect", node1, node2, 0, this.modeCount.incrementAndGet());
+            }
+        }
+    }
+
+    /**
+     * This method return a live (weakly consistent) collection of all the nodes in the graph.
+     * Note: this method runs in O(1) time.
+     *
+     * @return Collection<node_data>
+     */
+    @Override
+    public Collection<INodeData> getV() {
+        return this.vertices.values();
+    }
+
+    /**
+     * This method return a collection of all the nodes connected to node_id,
+     * it can be called while the graph is changing.
+     *
+     * @param node_id
+     * @return Collection<node_data>
+     */
+    @Override
+    public Collection<INodeData> getV(int node_id) {
+        Collection<INodeData> ans = new ArrayList<>();
+        Set<Integer> ni = this.adjacency.get(node_id);
+        if (ni != null) {
+            for (Integer key : ni) {
+                INodeData neighbor = this.vertices.get(key);
+                if (neighbor != null) {
+                    ans.add(neighbor);
+                }
+            }
+        }
+        return ans;
+    }
+
+    /**
+     * Delete the node (with the given ID) from the graph -
+     * and removes all edges which starts or ends at this node.
+     * The node is removed first, so no edge can be connected to it while its edges are removed.
+     * This method runs in O(degree) time.
+     *
+     * @param key
+     * @return the data of the removed node (null if none).
+     */
+    @Override
+    public INodeData removeNode(int key) {
+        INodeData node;
+        synchronized (this.lockOf(key)) {
+            node = this.vertices.remove(key);
+        }
+        if (node == null) {
+            return null;
+        }
+        int removed = 0;
+        for (Integer neighbor : this.adjacency.get(key)) {
+            if (this.disconnect(key, neighbor, node)) {
+                removed++;
+            }
+        }
+        Object lock = this.lockOf(key);
+        synchronized (lock) {
+            this.adjacency.remove(key);
+            //wakes the threads adding the same key
+            lock.notifyAll();
+        }
+        GraphMutationEvent.emit("removeNode", key, -1, removed, this.modeCount.incrementAndGet());
+        return node;
+    }
+
+    /**
+     * Delete the edge from the graph,
+     * Note: this method runs in O(1) time, it locks the stripes of both nodes.
+     *
+     * @param node1
+     * @param node2
+     */
+    @Override
+    public void removeEdge(int node1, int node2) {
+        this.disconnect(node1, node2, this.vertices.get(node1));
+    }
+
+    /**
+     * Removes the edge node1-node2, node1 is given as it may already be out of the vertices.
+     */
+    private boolean disconnect(int node1, int node2, INodeData n1) {
+        //the stripes are always locked in the same order, so two edges never wait for each other
+        Object first = this.locks[Math.min(this.stripeOf(node1), this.stripeOf(node2))];
+        Object second = this.locks[Math.max(this.stripeOf(node1), this.stripeOf(node2))];
+        synchronized (first) {
+            synchronized (second) {
+                Set<Integer> ni = this.adjacency.get(node1);
+                if (ni == null || !ni.remove(node2)) return false;
+                Set<Integer> nj = this.adjacency.get(node2);
+                if (nj != null) {
+                    nj.remove(node1);
+                }
+                INodeData n2 = this.vertices.get(node2);
+                if (n1 != null && n2 != null) {
+                    n1.removeNode(n2);
+                    n2.removeNode(n1);
+                }
+                this.edges.decrement();
+                GraphMutationEvent.emit("removeEdge", node1, node2, 0, this.modeCount.incrementAndGet());
+                return true;
+            }
+        }
+    }
+
+    /**
+     * return the number of vertices (nodes) in the graph.
+     *
+     * @return
+     */
+    @Override
+    public int nodeSize() {
+        return this.vertices.size();
+    }
+
+    /**
+     * return the number of edges (undirectional graph).
+     *
+     * @return
+     */
+    @Override
+    public int edgeSize() {
+        return this.edges.intValue();
+    }
+
+    /**
+     * return the Mode Count - for testing changes in the graph.
+     * It is an atomic counter, incremented once by every mutation.
+     *
+     * @return
+     */
+    @Override
+    public int getMC() {
+        return this.modeCount.get();
+    }
+
+    /**
+     * Gets edge length.
+     *
+     * @param u the first vertex
+     * @param v the second vertex
+     * @return the edge length. if no edge exists return infinity.
+     */
+    @Override
+    public double getEdgeLength(int u, int v) {
+        return this.hasEdge(u, v) ? 1 : Double.POSITIVE_INFINITY;
+    }
+}
@@ -0,0 +1,126 @@
+import java.util.concurrent.CancellationException;
+import java.util.stream.IntStream;
+
+/**
+ * The k-core kernels of GraphAlgorithms, over the CSR arrays of a CompactGraph.
+ * The core number of a vertex is the largest k such that it is in a subgraph where every vertex has
+ * at least k neighbors (the k-core).
+ */
+final class CoreDecomposition {
+    private static final int CHUNK = 1 << 10;
+
+    private CoreDecomposition() {
+    }
+
+    /**
+     * Batagelj and Zaversnik: the vertices are kept sorted by their current degree in buckets, and the
+     * vertex of the lowest degree is peeled off again and again, lowering the degree of its neighbors.
+     * Note: this method runs in O(|V|+|E|) time.
+     *
+     * @return the core number of every vertex.
+     */
+    static int[] peel(CompactGraph g) {
+        int n = g.vertexCount();
+        int[] offsets = g.offsets();
+        int[] targets = g.targets();
+        int[] degree = new int[n];
+        int maxDegree = 0;
+        for (int v = 0; v < n; ++v) {
+            degree[v] = offsets[v + 1] - offsets[v];
+            maxDegree = Math.max(maxDegree, degree[v]);
+        }
+        //bucket sort by degree: start[d] is where the vertices of degree d start in order
+        int[] start = new int[maxDegree + 2];
+        for (int v = 0; v < n; ++v) {
+            start[degree[v] + 1]++;
+        }
+        for (int d = 0; d <= maxDegree; ++d) {
+            start[d + 1] += start[d];
+        }
+        int[] order = new int[n];
+        int[] position = new int[n];
+        int[] fill = start.clone();
+        for (int v = 0; v < n; ++v) {
+            position[v] = fill[degree[v]]++;
+            order[position[v]] = v;
+        }
+        for (int i = 0; i < n; ++i) {
+            if ((i & ((1 << 16) - 1)) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("the query was interrupted");
+            }
+            int v = order[i];
+            for (int e = offsets[v]; e < offsets[v + 1]; ++e) {
+                int u = targets[e];
+                if (degree[u] > degree[v]) {
+                    //move u to the start of its bucket, and the bucket one place forward
+                    int du = degree[u];
+                    int first = order[start[du]];
+                    if (first != u) {
+                        order[position[u]] = first;
+                        position[first] = position[u];
+                        order[start[du]] = u;
+                        position[u] = start[du];
+                    }
+                    start[du]++;
+                    degree[u]--;
+                }
+            }
+        }
+        return degree;
+    }
+
+    /**
+     * The core numbers as the fixed point of the local h-index: starting from the degrees, every vertex
+     * takes the largest h such that h of its neighbors have a value of h at least, until nothing changes.
+     * The vertices are updated in place, in parallel chunks - a stale neighbor value is only higher,
+     * so the values still only go down to the core numbers, and a round with no change means every
+     * value is final.
+     * Note: every round runs in O(|V|+|E|) time, the number of rounds is usually small.
+     *
+     * @param caller the thread which waits for the result, its interrupt cancels the decomposition
+     * @return the core number of every vertex.
+     */
+    static int[] hIndex(CompactGraph g, Thread caller) {
+        int n = g.vertexCount();
+        int[] offsets = g.offsets();
+        int[] targets = g.targets();
+        int[] core = new int[n];
+        for (int v = 0; v < n; ++v) {
+            core[v] = offsets[v + 1] - offsets[v];
+        }
+        int maxDegree = g.maxDegree();
+        boolean changed = true;
+        while (changed) {
+            changed = IntStream.range(0, (n + CHUNK - 1) / CHUNK).parallel().map(chunk -> {
+                if (caller.isInterrupted()) {
+                    throw new CancellationException("the query was interrupted");
+                }
+                int[] count = new int[maxDegree + 1];
+                int changes = 0;
+                for (int v = chunk * CHUNK; v < Math.min(n, (chunk + 1) * CHUNK); ++v) {
+                    int k = core[v];
+                    if (k == 0) continue;
+                    //count the neighbor values, capped at the current value of v
+                    for (int i = 0; i <= k; ++i) {
+                        count[i] = 0;
+                    }
+                    for (int e = offsets[v]; e < offsets[v + 1]; ++e) {
+                        count[Math.min(core[targets[e]], k)]++;
+                    }
+                    int h = k;
+                    int atLeast = count[k];
+                    while (atLeast < h) {
+                        h--;
+                        atLeast += count[h];
+                    }
+                    if (h < k) {
+                        core[v] = h;
+                        changes++;
+                    }
+                }
+                return changes;
+            }).sum() > 0;
+        }
+        return core;
+    }
+}
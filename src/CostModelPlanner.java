@@ -0,0 +1,213 @@
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The default query planner: it estimates the cost of every candidate strategy and picks the cheapest.
+ * The cost is the work of traversing the whole graph (|V|+|E| for a BFS, (|V|+|E|)log|V| for Dijkstra,
+ * |V|^2/64 words for the bit matrix...), times the share of the vertices the strategy visits, times the time
+ * it takes per unit of the work it does.
+ * The share and the time per unit start from priors and follow exponentially weighted moving averages of
+ * the observed queries, a sample of the time capped at 4 times the average so a single slow query
+ * (a compilation, a collection) does not swamp it. So the model adapts to the graph and the machine - e.g.
+ * bidirectional BFS and the early exit search learn how small a part of the graph they really visit.
+ * Once every 64 queries the least recently observed candidate is run instead, so a strategy is never ruled
+ * out on stale timings.
+ * A strategy which builds a whole tree is credited for the share of the queries whose source was seen
+ * recently, since a tree built for a source answers its next queries from the cache.
+ * Note: the planner takes no lock, the averages are updated by compare and set.
+ */
+public class CostModelPlanner implements IQueryPlanner {
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final double MAX_SAMPLE_RATIO = 4;
+    private static final int EXPLORE_PERIOD = 64;
+    private static final int RECENT_SOURCES = 1 << 10;
+    private static final Strategy[] STRATEGIES = Strategy.values();
+    /**
+     * The prior nanoseconds per unit of the work done by every strategy.
+     */
+    private static final Map<Strategy, Double> PRIOR_NANOS_PER_UNIT = new EnumMap<>(Strategy.class);
+    /**
+     * The prior share of the vertices of the graph every strategy visits.
+     */
+    private static final Map<Strategy, Double> PRIOR_VISITED_SHARE = new EnumMap<>(Strategy.class);
+
+    static {
+        //reading a path visits no vertex, its work is a path rather than a share of the graph
+        prior(Strategy.CACHED_TREE, 50, 1);
+        prior(Strategy.BFS, 4, 1);
+        prior(Strategy.BIDIRECTIONAL_BFS, 4, 0.1);
+        prior(Strategy.DIJKSTRA, 10, 1);
+        prior(Strategy.A_STAR, 10, 0.5);
+        prior(Strategy.BIT_MATRIX_BFS, 1, 1);
+        prior(Strategy.EARLY_EXIT, 4, 0.5);
+        for (Strategy strategy : STRATEGIES) {
+            if (!PRIOR_NANOS_PER_UNIT.containsKey(strategy)) {
+                throw new ExceptionInInitializerError("no prior for the strategy " + strategy);
+            }
+        }
+    }
+
+    /**
+     * The averages of every strategy by its ordinal, as the bits of doubles: the nanoseconds per unit of the
+     * work done on the vertices visited, and the share of the vertices visited.
+     */
+    private final AtomicLongArray nanosPerUnit = new AtomicLongArray(STRATEGIES.length);
+    private final AtomicLongArray visitedShare = new AtomicLongArray(STRATEGIES.length);
+    private final AtomicLongArray lastObserved = new AtomicLongArray(STRATEGIES.length);
+    /**
+     * The source keys of the recent queries, by a hash of the key - a later source overwrites an earlier one.
+     */
+    private final AtomicIntegerArray recentSources = new AtomicIntegerArray(RECENT_SOURCES);
+    private final AtomicLong repeatShare = new AtomicLong(Double.doubleToLongBits(0));
+    private final AtomicLong plans = new AtomicLong();
+
+    public CostModelPlanner() {
+        for (Strategy strategy : STRATEGIES) {
+            this.nanosPerUnit.set(strategy.ordinal(), Double.doubleToLongBits(PRIOR_NANOS_PER_UNIT.get(strategy)));
+            this.visitedShare.set(strategy.ordinal(), Double.doubleToLongBits(PRIOR_VISITED_SHARE.get(strategy)));
+        }
+        for (int i = 0; i < RECENT_SOURCES; ++i) {
+            //no query has this source, unlike 0
+            this.recentSources.set(i, Integer.MIN_VALUE);
+        }
+    }
+
+    private static void prior(Strategy strategy, double nanosPerUnit, double visitedShare) {
+        PRIOR_NANOS_PER_UNIT.put(strategy, nanosPerUnit);
+        PRIOR_VISITED_SHARE.put(strategy, visitedShare);
+    }
+
+    @Override
+    public Strategy plan(QueryProfile profile) {
+        long plans = this.plans.incrementAndGet();
+        int slot = (profile.source() * 0x9e3779b9) >>> (32 - Integer.numberOfTrailingZeros(RECENT_SOURCES));
+        boolean repeated = this.recentSources.getAndSet(slot, profile.source()) == profile.source();
+        update(this.repeatShare, repeated ? 1 : 0);
+        if (profile.candidates().contains(Strategy.CACHED_TREE)) {
+            return Strategy.CACHED_TREE;
+        }
+        Strategy best = null;
+        if (plans % EXPLORE_PERIOD == 0) {
+            for (Strategy strategy : profile.candidates()) {
+                if (best == null || this.lastObserved.get(strategy.ordinal()) < this.lastObserved.get(best.ordinal())) {
+                    best = strategy;
+                }
+            }
+            return best;
+        }
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (Strategy strategy : profile.candidates()) {
+            double cost = this.estimate(strategy, profile);
+            if (cost < bestCost) {
+                best = strategy;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * return the estimated nanoseconds the given strategy takes to answer the given query.
+     *
+     * @param strategy
+     * @param profile
+     * @return
+     */
+    public double estimate(Strategy strategy, QueryProfile profile) {
+        double cost = this.getNanosPerUnit(strategy) * this.getVisitedShare(strategy) * work(strategy, profile);
+        if (strategy == Strategy.BFS || strategy == Strategy.DIJKSTRA || strategy == Strategy.BIT_MATRIX_BFS) {
+            //the tree is built once for a source, its later queries are answered from the cache
+            cost *= 1 - this.getRepeatShare();
+        }
+        return cost;
+    }
+
+    @Override
+    public void observe(Strategy strategy, QueryProfile profile, long nanos, long nodesVisited) {
+        int i = strategy.ordinal();
+        //the work of reading a path is no share of the graph, and 0 vertices visited means unknown
+        double share = this.getVisitedShare(strategy);
+        if (strategy != Strategy.CACHED_TREE && nodesVisited > 0) {
+            share = Math.min(1, nodesVisited / Math.max(1.0, profile.vertexCount()));
+            update(this.visitedShare, i, share);
+        }
+        double sample = nanos / (work(strategy, profile) * Math.max(share, Double.MIN_NORMAL));
+        update(this.nanosPerUnit, i, Math.min(sample, MAX_SAMPLE_RATIO * this.getNanosPerUnit(strategy)));
+        this.lastObserved.set(i, this.plans.get());
+    }
+
+    /**
+     * return the current estimate of the nanoseconds per unit of the work the given strategy actually does,
+     * on the vertices it visits.
+     *
+     * @param strategy
+     * @return
+     */
+    public double getNanosPerUnit(Strategy strategy) {
+        return Double.longBitsToDouble(this.nanosPerUnit.get(strategy.ordinal()));
+    }
+
+    /**
+     * return the current estimate of the share of the vertices of the graph the given strategy visits.
+     *
+     * @param strategy
+     * @return
+     */
+    public double getVisitedShare(Strategy strategy) {
+        return Double.longBitsToDouble(this.visitedShare.get(strategy.ordinal()));
+    }
+
+    /**
+     * return the current estimate of the share of the queries whose source was seen recently.
+     *
+     * @return
+     */
+    public double getRepeatShare() {
+        return Double.longBitsToDouble(this.repeatShare.get());
+    }
+
+    private static void update(AtomicLongArray averages, int i, double sample) {
+        long bits;
+        long updated;
+        do {
+            bits = averages.get(i);
+            double average = Double.longBitsToDouble(bits);
+            updated = Double.doubleToLongBits(average + EWMA_WEIGHT * (sample - average));
+        } while (!averages.compareAndSet(i, bits, updated));
+    }
+
+    private static void update(AtomicLong average, double sample) {
+        long bits;
+        long updated;
+        do {
+            bits = average.get();
+            double value = Double.longBitsToDouble(bits);
+            updated = Double.doubleToLongBits(value + EWMA_WEIGHT * (sample - value));
+        } while (!average.compareAndSet(bits, updated));
+    }
+
+    /**
+     * return the work of the given strategy traversing the whole graph, a path for the cached tree.
+     */
+    private static double work(Strategy strategy, QueryProfile profile) {
+        double vertices = profile.vertexCount();
+        double size = vertices + profile.edgeCount() + 1;
+        double log = Math.log(vertices + 2) / Math.log(2);
+        switch (strategy) {
+            case CACHED_TREE:
+                return log;
+            case DIJKSTRA:
+            case A_STAR:
+                return size * log;
+            case EARLY_EXIT:
+                return profile.isWeighted() ? size * log : size;
+            case BIT_MATRIX_BFS:
+                return vertices + vertices * Math.ceil(vertices / 64) + 1;
+            default:
+                return size;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+/**
+ * The search of the distance-only queries (see GraphAlgorithms.shortestPathDist): a BFS, or Dijkstra on a
+ * weighted view, from the source which stops once the destination is reached and keeps no previous slots.
+ * Its arrays are sized for a single view and kept between searches, marked with the number of the search
+ * instead of being cleared, so a search which stops early costs the vertices it visited rather than the
+ * size of the graph.
+ * Note: a search is not thread safe, GraphAlgorithms lends every query one of a small pool.
+ */
+final class DistanceSearch {
+    private final IAdjacencyView view;
+    /**
+     * The number of the search which reached every slot, its distance is valid only then.
+     */
+    private final int[] reached;
+    private final int[] settled;
+    private final int[] hops;
+    private final double[] dist;
+    private final int[] queue;
+    private final int[] ni;
+    private final double[] lengths;
+    private int search = 0;
+    long settledCount;
+    long relaxed;
+    long pushes;
+    long pops;
+
+    /**
+     * @param view the view the searches run on
+     */
+    DistanceSearch(IAdjacencyView view) {
+        int n = view.capacity();
+        this.view = view;
+        this.reached = new int[n];
+        this.settled = new int[n];
+        this.dist = new double[n];
+        this.hops = new int[n];
+        this.queue = new int[view.vertexCount()];
+        this.ni = new int[view.maxDegree()];
+        this.lengths = new double[view.maxDegree()];
+    }
+
+    /**
+     * return the view this search runs on.
+     */
+    IAdjacencyView view() {
+        return this.view;
+    }
+
+    /**
+     * return the distance from src to dest in the view of this search, infinity if dest is unreachable.
+     * Note: this method runs in O(|V'|+|E'|) time (O((|V'|+|E'|)log|V'|) if weighted), where V' and E' are
+     * the vertices and edges visited before dest is reached.
+     */
+    double distance(int src, int dest) {
+        IAdjacencyView view = this.view;
+        this.prepare();
+        this.settledCount = this.relaxed = this.pushes = this.pops = 0;
+        if (src == dest) {
+            return 0;
+        }
+        return view.isWeighted() ? this.dijkstra(view, src, dest) : this.bfs(view, src, dest);
+    }
+
+    private void prepare() {
+        if (++this.search == 0) {
+            //the numbers wrapped around, the old marks could be taken for the new ones
+            Arrays.fill(this.reached, 0);
+            Arrays.fill(this.settled, 0);
+            this.search = 1;
+        }
+    }
+
+    private double bfs(IAdjacencyView view, int src, int dest) {
+        int search = this.search;
+        int[] reached = this.reached;
+        int[] hops = this.hops;
+        int[] queue = this.queue;
+        int[] ni = this.ni;
+        int head = 0, tail = 0;
+        reached[src] = search;
+        hops[src] = 0;
+        queue[tail++] = src;
+        double ans = Double.POSITIVE_INFINITY;
+        outer:
+        while (head < tail) {
+            GraphAlgorithms.checkInterrupted(head);
+            int u = queue[head++];
+            int degree = view.neighbors(u, ni);
+            this.relaxed += degree;
+            for (int i = 0; i < degree; ++i) {
+                int v = ni[i];
+                if (reached[v] == search) continue;
+                //the first time dest is reached is along a shortest path, there is no need to settle it
+                if (v == dest) {
+                    ans = hops[u] + 1;
+                    tail++;
+                    break outer;
+                }
+                reached[v] = search;
+                hops[v] = hops[u] + 1;
+                queue[tail++] = v;
+            }
+        }
+        this.settledCount = head;
+        this.pops = head;
+        this.pushes = tail;
+        return ans;
+    }
+
+    private double dijkstra(IAdjacencyView view, int src, int dest) {
+        int search = this.search;
+        int[] reached = this.reached;
+        int[] settled = this.settled;
+        double[] dist = this.dist;
+        int[] ni = this.ni;
+        double[] lengths = this.lengths;
+        reached[src] = search;
+        dist[src] = 0.0;
+        Comparator<Pair<Integer, Double>> pqComparator = Comparator.comparingDouble(Pair::getRight);
+        Queue<Pair<Integer, Double>> pq = new PriorityQueue<>(pqComparator);
+        pq.offer(Pair.of(src, 0.0));
+        this.pushes = 1;
+        while (!pq.isEmpty()) {
+            int u = pq.poll().getKey();
+            GraphAlgorithms.checkInterrupted(this.pops++);
+            if (settled[u] == search) continue;
+            settled[u] = search;
+            this.settledCount++;
+            if (u == dest) {
+                return dist[u];
+            }
+            int degree = view.neighbors(u, ni);
+            view.lengths(u, lengths);
+            this.relaxed += degree;
+            for (int i = 0; i < degree; ++i) {
+                int v = ni[i];
+                double altDist = dist[u] + lengths[i];
+                if (reached[v] != search || altDist < dist[v]) {
+                    reached[v] = search;
+                    dist[v] = altDist;
+                    pq.offer(Pair.of(v, altDist));
+                    this.pushes++;
+                }
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+}
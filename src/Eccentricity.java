@@ -0,0 +1,203 @@
+import java.util.Arrays;
+
+/**
+ * Eccentricities, diameter and radius by bounding, for GraphAlgorithms - a handful of BFS runs on most
+ * real graphs rather than one from every vertex. The eccentricity of a vertex is its largest distance from
+ * the vertices of its connected component, so on a graph which is not connected everything here is
+ * taken per component: the diameter is the largest of the components and the radius the smallest.
+ * The BFS runs use the BFS core of GraphAlgorithms (bfsLevels) and their own arrays, nothing is cached.
+ */
+final class Eccentricity {
+    private final IAdjacencyView view;
+    /**
+     * The slots of the vertices, grouped by component: component c is members[start[c]..start[c+1]-1].
+     */
+    private final int[] members;
+    private final int[] start;
+    private final int[] dist;
+    private final int[] queue;
+    private final int[] ni;
+    private int reached = 0;
+    /**
+     * The vertices settled and the edges scanned by all the BFS runs, for the statistics.
+     */
+    long settled;
+    long relaxed;
+
+    /**
+     * @param view   the graph
+     * @param labels the component of every slot (-1 for empty slots), numbered from 0
+     */
+    Eccentricity(IAdjacencyView view, int[] labels) {
+        this.view = view;
+        int components = 0;
+        for (int label : labels) {
+            components = Math.max(components, label + 1);
+        }
+        this.start = new int[components + 1];
+        for (int label : labels) {
+            if (label != -1) this.start[label + 1]++;
+        }
+        for (int c = 0; c < components; ++c) {
+            this.start[c + 1] += this.start[c];
+        }
+        this.members = new int[view.vertexCount()];
+        int[] fill = this.start.clone();
+        for (int v = 0; v < labels.length; ++v) {
+            if (labels[v] != -1) this.members[fill[labels[v]]++] = v;
+        }
+        this.dist = new int[view.capacity()];
+        Arrays.fill(this.dist, -1);
+        this.queue = new int[view.vertexCount()];
+        this.ni = new int[view.maxDegree()];
+    }
+
+    /**
+     * Runs a BFS from the given slot, dist holds its distances until the next run.
+     *
+     * @return the eccentricity of src, its farthest vertex is the last one of the queue.
+     */
+    private int bfs(int src) {
+        for (int i = 0; i < this.reached; ++i) {
+            this.dist[this.queue[i]] = -1;
+        }
+        this.reached = GraphAlgorithms.bfsLevels(this.view, src, this.dist, this.queue, this.ni, null);
+        this.settled += this.reached;
+        for (int i = 0; i < this.reached; ++i) {
+            this.relaxed += this.view.degree(this.queue[i]);
+        }
+        return this.dist[this.queue[this.reached - 1]];
+    }
+
+    private int highestDegree(int c) {
+        int best = this.members[this.start[c]];
+        for (int i = this.start[c]; i < this.start[c + 1]; ++i) {
+            if (this.view.degree(this.members[i]) > this.view.degree(best)) {
+                best = this.members[i];
+            }
+        }
+        return best;
+    }
+
+    private int components() {
+        return this.start.length - 1;
+    }
+
+    /**
+     * return a lower bound of the diameter by a double sweep in every component: the eccentricity of the
+     * vertex farthest from the highest degree vertex. 2 BFS runs per component, -1 for an empty graph.
+     */
+    int diameterLowerBound() {
+        int bound = -1;
+        for (int c = 0; c < this.components(); ++c) {
+            this.bfs(this.highestDegree(c));
+            bound = Math.max(bound, this.bfs(this.queue[this.reached - 1]));
+        }
+        return bound;
+    }
+
+    /**
+     * return the diameter, by iFUB (Crescenzi et al.) in every component: the vertices are taken level by
+     * level from the farthest ones of the BFS from the highest degree vertex u - once the largest
+     * eccentricity found is over 2(i-1), no vertex at level i-1 or below can have a larger one. -1 for an
+     * empty graph.
+     */
+    int diameter() {
+        int diameter = -1;
+        for (int c = 0; c < this.components(); ++c) {
+            if (this.start[c + 1] - this.start[c] == 1) {
+                diameter = Math.max(diameter, 0);
+                continue;
+            }
+            int u = this.highestDegree(c);
+            int eccU = this.bfs(u);
+            //the BFS order of u, by level, outlives the next runs
+            int[] order = Arrays.copyOf(this.queue, this.reached);
+            int[] level = new int[order.length];
+            for (int i = 0; i < order.length; ++i) {
+                level[i] = this.dist[order[i]];
+            }
+            int lower = Math.max(eccU, this.bfs(order[order.length - 1]));
+            int upper = 2 * eccU;
+            int end = order.length;
+            for (int i = eccU; upper > lower && i > 0; --i) {
+                int largest = 0;
+                while (end > 0 && level[end - 1] == i) {
+                    largest = Math.max(largest, this.bfs(order[--end]));
+                }
+                lower = Math.max(lower, largest);
+                if (lower > 2 * (i - 1)) break;
+                upper = 2 * (i - 1);
+            }
+            diameter = Math.max(diameter, lower);
+        }
+        return diameter;
+    }
+
+    /**
+     * return the eccentricity of every slot (-1 for empty slots), by the bounds of Takes and Kosters:
+     * a BFS from v bounds every w of its component by max(ecc(v)-d(v,w), d(v,w)) <= ecc(w) <= ecc(v)+d(v,w),
+     * the BFS runs alternate between the vertex of the largest upper bound and the one of the smallest
+     * lower bound, until the bounds of every vertex meet.
+     */
+    int[] eccentricities() {
+        int[] ecc = new int[this.view.capacity()];
+        Arrays.fill(ecc, -1);
+        this.bound(ecc, false);
+        return ecc;
+    }
+
+    /**
+     * return the radius, the smallest eccentricity: the same bounds, always running the BFS from the vertex
+     * of the smallest lower bound, and dropping every vertex whose lower bound is not below the best
+     * eccentricity found. -1 for an empty graph.
+     */
+    int radius() {
+        return this.bound(new int[this.view.capacity()], true);
+    }
+
+    private int bound(int[] ecc, boolean radiusOnly) {
+        int[] lower = new int[this.view.capacity()];
+        int[] upper = new int[this.view.capacity()];
+        int best = Integer.MAX_VALUE;
+        for (int c = 0; c < this.components(); ++c) {
+            int[] open = Arrays.copyOfRange(this.members, this.start[c], this.start[c + 1]);
+            int openCount = open.length;
+            for (int w : open) {
+                lower[w] = 0;
+                upper[w] = Integer.MAX_VALUE;
+            }
+            boolean pickUpper = !radiusOnly;
+            while (openCount > 0) {
+                int v = open[0];
+                for (int i = 1; i < openCount; ++i) {
+                    int w = open[i];
+                    boolean better = pickUpper
+                            ? upper[w] > upper[v] || (upper[w] == upper[v] && this.view.degree(w) > this.view.degree(v))
+                            : lower[w] < lower[v] || (lower[w] == lower[v] && this.view.degree(w) > this.view.degree(v));
+                    if (better) v = w;
+                }
+                if (!radiusOnly) pickUpper = !pickUpper;
+                int e = this.bfs(v);
+                ecc[v] = e;
+                lower[v] = upper[v] = e;
+                best = Math.min(best, e);
+                int k = 0;
+                for (int i = 0; i < openCount; ++i) {
+                    int w = open[i];
+                    int d = this.dist[w];
+                    lower[w] = Math.max(lower[w], Math.max(e - d, d));
+                    upper[w] = Math.min(upper[w], e + d);
+                    if (lower[w] == upper[w]) {
+                        ecc[w] = lower[w];
+                        best = Math.min(best, lower[w]);
+                    } else if (!radiusOnly || lower[w] < best) {
+                        open[k++] = w;
+                    }
+                }
+                openCount = k;
+            }
+        }
+        return best == Integer.MAX_VALUE ? -1 : best;
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.stream.IntStream;
+
+/**
+ * A list of undirectional edges between the vertices 0..vertexCount()-1, kept in primitive arrays,
+ * as made by GraphGenerators - to be bulk loaded into a graph.
+ */
+public final class EdgeList {
+    private final int vertexCount;
+    private final int[] from;
+    private final int[] to;
+
+    /**
+     * @param vertexCount the number of vertices
+     * @param from        the first end of every edge
+     * @param to          the second end of every edge, of the same length as from
+     */
+    public EdgeList(int vertexCount, int[] from, int[] to) {
+        if (from.length != to.length) {
+            throw new IllegalArgumentException("the edge ends differ in length");
+        }
+        this.vertexCount = vertexCount;
+        this.from = from;
+        this.to = to;
+    }
+
+    public int vertexCount() {
+        return this.vertexCount;
+    }
+
+    /**
+     * return the number of edges in the list, duplicates and self loops included.
+     *
+     * @return
+     */
+    public int size() {
+        return this.from.length;
+    }
+
+    public int from(int i) {
+        return this.from[i];
+    }
+
+    public int to(int i) {
+        return this.to[i];
+    }
+
+    /**
+     * Builds an immutable graph of the edges, vertex i gets the key i.
+     * Duplicate edges and self loops are dropped, the neighbors are sorted in parallel.
+     * Note: this method runs in O(|V|+|E|) time and never goes through the IGraph mutations.
+     *
+     * @return
+     */
+    public GraphSnapshot toSnapshot() {
+        int[] degree = new int[this.vertexCount];
+        for (int i = 0; i < this.from.length; ++i) {
+            if (this.from[i] != this.to[i]) {
+                degree[this.from[i]]++;
+                degree[this.to[i]]++;
+            }
+        }
+        int[][] adjacency = new int[this.vertexCount][];
+        for (int v = 0; v < this.vertexCount; ++v) {
+            adjacency[v] = new int[degree[v]];
+        }
+        int[] fill = new int[this.vertexCount];
+        for (int i = 0; i < this.from.length; ++i) {
+            int u = this.from[i];
+            int v = this.to[i];
+            if (u != v) {
+                adjacency[u][fill[u]++] = v;
+                adjacency[v][fill[v]++] = u;
+            }
+        }
+        return GraphSnapshot.of(adjacency);
+    }
+
+    /**
+     * Adds a new NodeData for every vertex to the given graph and connects the edges between them,
+     * self loops are dropped (duplicate edges are dropped by connect).
+     *
+     * @param g
+     * @return the key of the node of every vertex.
+     */
+    public int[] loadInto(IGraph g) {
+        int[] keys = new int[this.vertexCount];
+        for (int v = 0; v < this.vertexCount; ++v) {
+            INodeData node = new NodeData();
+            keys[v] = node.getKey();
+            g.addNode(node);
+        }
+        for (int i = 0; i < this.from.length; ++i) {
+            if (this.from[i] != this.to[i]) {
+                g.connect(keys[this.from[i]], keys[this.to[i]]);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * return the ends of every edge as one long, the smaller end in the high bits.
+     */
+    static long pack(int u, int v) {
+        return u < v ? ((long) u << 32) | v : ((long) v << 32) | u;
+    }
+
+    /**
+     * Builds a list from packed edges (see pack).
+     */
+    static EdgeList unpack(int vertexCount, long[] edges, int size) {
+        int[] from = new int[size];
+        int[] to = new int[size];
+        IntStream.range(0, size).parallel().forEach(i -> {
+            from[i] = (int) (edges[i] >>> 32);
+            to[i] = (int) edges[i];
+        });
+        return new EdgeList(vertexCount, from, to);
+    }
+}
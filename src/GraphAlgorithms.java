@@ -1,14 +1,66 @@
 import org.apache.commons.lang3.tuple.Pair;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import jdk.jfr.EventType;
 
+
+/**
+ * The algorithms traverse an immutable adjacency view of the graph (see IAdjacencyView)
+ * and keep their state in local arrays rather than in the node tags, so any number of threads
+ * can query the same GraphSnapshot.
+ * Note: a graph which is changed while it is queried should be queried through its snapshots.
+ * The traversals check the interrupt flag of their thread as they go, an interrupted query
+ * throws CancellationException.
+ */
 public class GraphAlgorithms implements IGraphAlgorithms {
+    private static final int DEFAULT_TREE_CACHE_CAPACITY = 128;
+    private static final int INTERRUPT_CHECK_MASK = (1 << 10) - 1;
+    private static final double DEFAULT_DAMPING = 0.85;
+    private static final double DEFAULT_TOLERANCE = 1e-7;
+    private static final int DEFAULT_MAX_ITERATIONS = 100;
+    private static final int DISTANCE_SEARCH_POOL_SIZE = Runtime.getRuntime().availableProcessors();
     private IGraph graph;
-    private Map<Integer, Integer[]> shortestPathTrees;
-    private Map<Integer, Double[]> shortestPathDistTrees;
-    private int highestNodeInGraph;
+    /**
+     * The view of the current version of the graph with the results derived from it, null until the first
+     * query after the graph was set or changed (see state()).
+     */
+    private final AtomicReference<ViewState> state = new AtomicReference<>();
+    private volatile int treeCacheCapacity = DEFAULT_TREE_CACHE_CAPACITY;
+    /**
+     * The idle searches of the distance queries, all of the current view (see acquireDistanceSearch).
+     */
+    private final AtomicReferenceArray<DistanceSearch> distanceSearches =
+            new AtomicReferenceArray<>(DISTANCE_SEARCH_POOL_SIZE);
+    private volatile GraphAlgorithmsStats stats;
+    private volatile IQueryPlanner planner = new CostModelPlanner();
+    private volatile IDistanceHeuristic heuristic;
+
+    /**
+     * A version of the graph - its view - and the component labels, the CSR copy and the shortest path trees
+     * computed on it. They are published and dropped together, so none is ever stored against another view.
+     */
+    private static final class ViewState {
+        private final int modeCount;
+        private final IAdjacencyView view;
+        private final ShortestPathTreeCache trees;
+        private volatile int[] componentLabels;
+        private volatile CompactGraph compact;
+
+        private ViewState(int modeCount, IAdjacencyView view, int treeCacheCapacity) {
+            this.modeCount = modeCount;
+            this.view = view;
+            this.trees = new ShortestPathTreeCache(treeCacheCapacity);
+        }
+    }
 
     public GraphAlgorithms(IGraph g) {
         this.init(g);
@@ -26,21 +78,151 @@ public class GraphAlgorithms implements IGraphAlgorithms {
     @Override
     public void init(IGraph g) {
         this.graph = g;
-        this.initNodesTag(1);
-        this.shortestPathTrees = new HashMap<>();
-        this.shortestPathDistTrees = new HashMap<>();
-        for (INodeData v : this.graph.getV()) {
-            if (v.getKey() > this.highestNodeInGraph) {
-                this.highestNodeInGraph = v.getKey();
-            }
+        this.dropState(this.state.get(), null);
+    }
+
+    /**
+     * Enables the statistics of this set of algorithms, null disables them (the default).
+     * One GraphAlgorithmsStats can be shared by many sets of algorithms.
+     *
+     * @param stats
+     */
+    public void setStats(GraphAlgorithmsStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * return the statistics of this set of algorithms, null if disabled.
+     *
+     * @return
+     */
+    public GraphAlgorithmsStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Sets the planner which chooses how the shortest path queries are answered.
+     *
+     * @param planner
+     */
+    public void setPlanner(IQueryPlanner planner) {
+        this.planner = Objects.requireNonNull(planner);
+    }
+
+    public IQueryPlanner getPlanner() {
+        return this.planner;
+    }
+
+    /**
+     * Sets the distance heuristic which enables A* for the shortest path queries, null disables it (the default).
+     *
+     * @param heuristic an admissible estimate of the distance between two nodes, it need not be consistent
+     */
+    public void setHeuristic(IDistanceHeuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Changes the maximal number of shortest path trees cached, 0 disables the cache.
+     *
+     * @param capacity
+     */
+    public void setTreeCacheCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("negative capacity: " + capacity);
         }
+        this.treeCacheCapacity = capacity;
+        ViewState state = this.state.get();
+        if (state != null) {
+            this.recordCacheEvictions(state.trees.setCapacity(capacity));
+        }
+    }
+
+    /**
+     * Saves the most hit shortest path trees of the cache to the given file, with the version of the graph
+     * they were computed on, so another process can start with them (see loadTreeCache).
+     * The file is written aside and renamed over the given one.
+     *
+     * @param file
+     * @param maxTrees the largest number of trees to save
+     * @return the number of trees saved.
+     * @throws IOException if the file can not be written
+     */
+    public int saveTreeCache(Path file, int maxTrees) throws IOException {
+        ViewState state = this.state();
+        return TreeCacheFile.save(file, state.view, state.modeCount, state.trees, state.trees.hottest(maxTrees));
+    }
+
+    /**
+     * Loads the shortest path trees saved by saveTreeCache into the cache, if they were computed on the same
+     * graph as the current one - same nodes, edges and edge lengths, the mode count may differ.
+     * Note: this method runs in O(|V|+|E|) time plus the size of the file.
+     *
+     * @param file
+     * @return the number of trees loaded, 0 if the file is of another graph.
+     * @throws IOException if the file can not be read or is corrupt
+     */
+    public int loadTreeCache(Path file) throws IOException {
+        ViewState state = this.state();
+        return TreeCacheFile.load(file, state.view, state.trees, this::recordCacheEvictions);
     }
 
-    private void initNodesTag(int state) {
-        //1 = white, 2 = grey, 3 = black
-        for (INodeData node : this.graph.getV()) {
-            node.setTag(state);
+    /**
+     * return the view of the current version of the graph with the results derived from it,
+     * the mode count of the graph is used as its version: a new view is taken when it changes.
+     */
+    private ViewState state() {
+        ViewState state = this.state.get();
+        int modeCount = this.graph.getMC();
+        if (state != null && state.modeCount == modeCount) {
+            return state;
+        }
+        ViewState next = new ViewState(modeCount, this.snapshot(), this.treeCacheCapacity);
+        if (!this.dropState(state, next)) {
+            //another query published a view first
+            ViewState current = this.state.get();
+            if (current != null) return current;
+        }
+        return next;
+    }
+
+    /**
+     * Replaces the given state, and with it every result derived from its view.
+     *
+     * @return false if the state was replaced meanwhile.
+     */
+    private boolean dropState(ViewState state, ViewState next) {
+        if (!this.state.compareAndSet(state, next)) {
+            return false;
+        }
+        if (state != null) {
+            this.recordCacheEvictions(state.trees.clear());
+        }
+        for (int i = 0; i < this.distanceSearches.length(); ++i) {
+            this.distanceSearches.set(i, null);
+        }
+        return true;
+    }
+
+    /**
+     * return a view of the graph as it is now: the graph itself if it is one, else a snapshot of it.
+     */
+    private IAdjacencyView snapshot() {
+        if (this.graph instanceof IAdjacencyView) {
+            return (IAdjacencyView) this.graph;
+        } else if (this.graph instanceof UndirectedGraph) {
+            return ((UndirectedGraph) this.graph).snapshot();
         }
+        return GraphSnapshot.of(this.graph);
+    }
+
+    /**
+     * return the adjacency view of the current version of the graph.
+     *
+     * @return
+     */
+    private IAdjacencyView view() {
+        return this.state().view;
     }
 
     /**
@@ -50,12 +232,16 @@ public class GraphAlgorithms implements IGraphAlgorithms {
      */
     @Override
     public IGraph copy() {
-        IGraph graphCopy = new UndirectedGraph();
+        if (this.graph instanceof UndirectedGraph) {
+            return ((UndirectedGraph) this.graph).deepCopy();
+        }
+        UndirectedGraph graphCopy = new UndirectedGraph();
+        for (INodeData v : this.graph.getV()) {
+            graphCopy.addNode(new NodeData(v));
+        }
         for (INodeData v : this.graph.getV()) {
-            graphCopy.addNode(v);
             for (INodeData u : this.graph.getV(v.getKey())) {
-                graphCopy.addNode(u);
-                graphCopy.connect(v.getKey(), u.getKey());
+                graphCopy.connect(v.getKey(), u.getKey(), this.graph.getEdgeLength(v.getKey(), u.getKey()));
             }
         }
         return graphCopy;
@@ -69,38 +255,572 @@ public class GraphAlgorithms implements IGraphAlgorithms {
      */
     @Override
     public boolean isConnected() {
-        Set<UndirectedEdge> connectedVertexes = new HashSet<>();
-        for (INodeData v : this.graph.getV()) {
-            for (INodeData u : this.graph.getV()) {
-                if (v.getKey() == u.getKey()) continue;
-                UndirectedEdge edge = new UndirectedEdge(v.getKey(), u.getKey());
-                if (connectedVertexes.contains(edge)) {
-                    continue;
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.IS_CONNECTED, -1, -1);
+        boolean connected = this.allInOneComponent();
+        this.endQuery(trace, connected ? 1 : 0);
+        return connected;
+    }
+
+    private boolean allInOneComponent() {
+        ViewState state = this.state();
+        IAdjacencyView view = state.view;
+        int[] labels = componentLabels(state);
+        for (int i = 0; i < view.capacity(); ++i) {
+            //the first component found is labeled 0, so every node must be in it
+            if (view.contains(i) && labels[i] != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * returns the connected component id of every node, indexed by the node key:
+     * two nodes are connected iff they have the same id, keys with no node in the graph get -1.
+     * Note: the ids are computed once per graph mode count (see IGraph.getMC()).
+     *
+     * @return
+     */
+    @Override
+    public int[] connectedComponents() {
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.CONNECTED_COMPONENTS, -1, -1);
+        ViewState state = this.state();
+        int[] components = byKey(state.view, componentLabels(state));
+        this.endQuery(trace, Arrays.stream(components).max().orElse(-1) + 1);
+        return components;
+    }
+
+    /**
+     * return the component labels of the view of the given state, indexed by the view slots.
+     */
+    private static int[] componentLabels(ViewState state) {
+        int[] labels = state.componentLabels;
+        if (labels == null) {
+            labels = labelComponents(state.view);
+            state.componentLabels = labels;
+        }
+        return labels;
+    }
+
+    private static int[] labelComponents(IAdjacencyView view) {
+        int[] labels = new int[view.capacity()];
+        Arrays.fill(labels, -1);
+        int[] queue = new int[view.vertexCount()];
+        int[] ni = new int[view.maxDegree()];
+        int component = 0;
+        for (int v = 0; v < view.capacity(); ++v) {
+            if (!view.contains(v) || labels[v] != -1) continue;
+            int head = 0, tail = 0;
+            labels[v] = component;
+            queue[tail++] = v;
+            while (head < tail) {
+                checkInterrupted(head);
+                int degree = view.neighbors(queue[head++], ni);
+                for (int i = 0; i < degree; ++i) {
+                    if (labels[ni[i]] == -1) {
+                        labels[ni[i]] = component;
+                        queue[tail++] = ni[i];
+                    }
                 }
-                if (this.shortestPathDist(v.getKey(), u.getKey()) == -1) return false;
-                connectedVertexes.add(edge);
             }
+            component++;
+        }
+        return labels;
+    }
+
+    /**
+     * Re-indexes an array of the view slots by the node keys, keys with no node get -1.
+     */
+    private static int[] byKey(IAdjacencyView view, int[] values) {
+        int[] ans = new int[highestKey(view) + 1];
+        Arrays.fill(ans, -1);
+        for (int i = 0; i < view.capacity(); ++i) {
+            if (view.contains(i)) {
+                ans[view.keyOf(i)] = values[i];
+            }
+        }
+        return ans;
+    }
+
+    private static double[] byKey(IAdjacencyView view, double[] values) {
+        double[] ans = new double[highestKey(view) + 1];
+        Arrays.fill(ans, -1);
+        for (int i = 0; i < view.capacity(); ++i) {
+            if (view.contains(i)) {
+                ans[view.keyOf(i)] = values[i];
+            }
+        }
+        return ans;
+    }
+
+    private static int highestKey(IAdjacencyView view) {
+        int highestKey = -1;
+        for (int i = 0; i < view.capacity(); ++i) {
+            if (view.contains(i)) {
+                highestKey = Math.max(highestKey, view.keyOf(i));
+            }
+        }
+        return highestKey;
+    }
+
+    /**
+     * returns the betweenness centrality of every node, indexed by the node key: the number of shortest
+     * paths between other nodes which pass through it, every path between two nodes counting as a
+     * fraction of their shortest paths. Keys with no node in the graph get -1.
+     * Brandes' algorithm runs a BFS from every vertex, the sources are spread over the common fork/join pool.
+     * Note: this method runs in O(|V|*|E|) time, see betweenness(int, long) for large graphs.
+     *
+     * @return
+     */
+    @Override
+    public double[] betweenness() {
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.BETWEENNESS, -1, -1);
+        IAdjacencyView view = this.view();
+        int[] sources = new int[view.vertexCount()];
+        int k = 0;
+        for (int i = 0; i < view.capacity(); ++i) {
+            if (view.contains(i)) {
+                sources[k++] = i;
+            }
+        }
+        double[] centrality = byKey(view, this.brandes(view, sources, 1, trace));
+        this.endQuery(trace, sources.length);
+        return centrality;
+    }
+
+    /**
+     * Estimates the betweenness centrality of every node from the shortest paths of a uniform sample
+     * of sources, scaled up to all of them - see BetweennessEstimate for the error bound.
+     * Note: this method runs in O(samples*|E|) time.
+     *
+     * @param samples the number of sources, all the vertices if it is larger than their number
+     * @param seed    the seed of the sample
+     * @return
+     */
+    @Override
+    public BetweennessEstimate betweenness(int samples, long seed) {
+        if (samples < 0) {
+            throw new IllegalArgumentException("negative number of samples: " + samples);
+        }
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.BETWEENNESS, -1, -1);
+        IAdjacencyView view = this.view();
+        int n = view.vertexCount();
+        int[] slots = new int[n];
+        int k = 0;
+        for (int i = 0; i < view.capacity(); ++i) {
+            if (view.contains(i)) {
+                slots[k++] = i;
+            }
+        }
+        //a partial Fisher-Yates shuffle, the sample is at the start
+        samples = Math.min(samples, n);
+        SplittableRandom rnd = new SplittableRandom(seed);
+        for (int i = 0; i < samples; ++i) {
+            int j = i + rnd.nextInt(n - i);
+            int t = slots[i];
+            slots[i] = slots[j];
+            slots[j] = t;
+        }
+        int[] sources = Arrays.copyOf(slots, samples);
+        double[] centrality = this.brandes(view, sources, samples == 0 ? 0 : (double) n / samples, trace);
+        this.endQuery(trace, samples);
+        return new BetweennessEstimate(byKey(view, centrality), n, samples);
+    }
+
+    /**
+     * return the sum of the dependencies of every slot on the given sources, times scale and halved.
+     */
+    private double[] brandes(IAdjacencyView view, int[] sources, double scale, QueryTrace trace) {
+        if (view.isWeighted()) {
+            throw new UnsupportedOperationException("betweenness of a weighted graph");
+        }
+        trace.setAlgorithm("brandes");
+        int grain = Math.max(1, sources.length / (4 * ForkJoinPool.getCommonPoolParallelism()));
+        BrandesTask task = new BrandesTask(view, sources, 0, sources.length, grain, Thread.currentThread());
+        double[] centrality = ForkJoinPool.commonPool().invoke(task);
+        for (int i = 0; i < centrality.length; ++i) {
+            //every path of the undirectional graph was counted from both its ends
+            centrality[i] *= scale / 2;
+        }
+        this.recordTraversal(trace, task.settled, task.relaxed, task.settled, task.settled);
+        return centrality;
+    }
+
+    /**
+     * returns the PageRank of every node, indexed by the node key, keys with no node in the graph get -1.
+     * The ranks sum to 1, with the damping 0.85, up to 100 iterations or an L1 change below 1e-7.
+     *
+     * @return
+     */
+    @Override
+    public double[] pageRank() {
+        return this.pageRank(DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * returns the PageRank of every node, indexed by the node key, keys with no node in the graph get -1.
+     * The iterations run in parallel over a CompactGraph copy of the graph, made once per mode count.
+     *
+     * @param damping       the probability of following an edge rather than jumping to a random node
+     * @param tolerance     the L1 change of the ranks to stop at
+     * @param maxIterations the maximal number of iterations
+     * @return
+     */
+    public double[] pageRank(double damping, double tolerance, int maxIterations) {
+        return this.rank(null, damping, tolerance, maxIterations)[0];
+    }
+
+    /**
+     * returns a personalized PageRank for every set of seed nodes: the ranks when the random walk jumps
+     * back to the seeds rather than to any node. ans[i] is indexed by the node key, like pageRank().
+     * All the rankings are computed together, in the same iterations.
+     *
+     * @param seeds the keys of the seed nodes of every ranking
+     * @return
+     */
+    @Override
+    public double[][] personalizedPageRank(int[][] seeds) {
+        return this.personalizedPageRank(seeds, DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * returns a personalized PageRank for every set of seed nodes, see personalizedPageRank(int[][]).
+     *
+     * @param seeds         the keys of the seed nodes of every ranking
+     * @param damping       the probability of following an edge rather than jumping back to a seed
+     * @param tolerance     the L1 change of every ranking to stop at
+     * @param maxIterations the maximal number of iterations
+     * @return
+     */
+    public double[][] personalizedPageRank(int[][] seeds, double damping, double tolerance, int maxIterations) {
+        return this.rank(Objects.requireNonNull(seeds), damping, tolerance, maxIterations);
+    }
+
+    private double[][] rank(int[][] seeds, double damping, double tolerance, int maxIterations) {
+        if (damping < 0 || damping > 1 || maxIterations < 0) {
+            throw new IllegalArgumentException("damping must be in [0,1] and maxIterations non-negative");
+        }
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.PAGE_RANK, -1, -1);
+        trace.setAlgorithm(seeds == null ? "pagerank" : "personalized-pagerank");
+        CompactGraph g = this.compact();
+        int batch = seeds == null ? 1 : seeds.length;
+        if ((long) g.vertexCount() * batch > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("too many rankings in one batch: " + batch);
+        }
+        int[][] seedIndexes = null;
+        if (seeds != null) {
+            seedIndexes = new int[batch][];
+            for (int b = 0; b < batch; ++b) {
+                if (seeds[b].length == 0) {
+                    throw new IllegalArgumentException("ranking " + b + " has no seeds");
+                }
+                seedIndexes[b] = new int[seeds[b].length];
+                for (int i = 0; i < seeds[b].length; ++i) {
+                    seedIndexes[b][i] = g.indexOf(seeds[b][i]);
+                    if (seedIndexes[b][i] == -1) {
+                        throw new IllegalArgumentException("no node with the key " + seeds[b][i]);
+                    }
+                }
+            }
+        }
+        double[][] ans = new double[batch][];
+        if (g.vertexCount() > 0) {
+            int[] iterations = new int[1];
+            double[] ranks = PageRank.run(g, seedIndexes, damping, tolerance, maxIterations, iterations);
+            double[] ranking = new double[g.vertexCount()];
+            for (int b = 0; b < batch; ++b) {
+                for (int v = 0; v < ranking.length; ++v) {
+                    ranking[v] = ranks[v * batch + b];
+                }
+                ans[b] = byKey(g, ranking);
+            }
+            long steps = (long) iterations[0] * g.vertexCount();
+            this.recordTraversal(trace, steps, (long) iterations[0] * 2 * g.edgeCount(), 0, 0);
+            this.endQuery(trace, iterations[0]);
+        } else {
+            Arrays.fill(ans, new double[0]);
+            this.endQuery(trace, 0);
+        }
+        return ans;
+    }
+
+    /**
+     * returns the number of triangles in the graph, the sets of three nodes connected to each other.
+     * Note: this method runs in O(|E|^1.5) time, in parallel.
+     *
+     * @return
+     */
+    @Override
+    public long triangleCount() {
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.TRIANGLES, -1, -1);
+        trace.setAlgorithm("oriented-intersection");
+        CompactGraph g = this.compact();
+        long triangles = new Triangles(g).count(null, Thread.currentThread());
+        this.recordTraversal(trace, g.vertexCount(), 2L * g.edgeCount(), 0, 0);
+        this.endQuery(trace, triangles);
+        return triangles;
+    }
+
+    /**
+     * returns the number of triangles of every node, indexed by the node key, keys with no node get -1.
+     *
+     * @return
+     */
+    @Override
+    public long[] triangles() {
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.TRIANGLES, -1, -1);
+        trace.setAlgorithm("oriented-intersection");
+        CompactGraph g = this.compact();
+        long[] ans = this.trianglesByKey(g);
+        this.recordTraversal(trace, g.vertexCount(), 2L * g.edgeCount(), 0, 0);
+        this.endQuery(trace, g.vertexCount());
+        return ans;
+    }
+
+    /**
+     * returns the local clustering coefficient of every node, indexed by the node key: the fraction of the
+     * pairs of its neighbors which are connected, 0 for nodes with less than two neighbors.
+     * Keys with no node in the graph get -1.
+     *
+     * @return
+     */
+    @Override
+    public double[] clusteringCoefficients() {
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.TRIANGLES, -1, -1);
+        trace.setAlgorithm("oriented-intersection");
+        CompactGraph g = this.compact();
+        long[] triangles = this.trianglesByKey(g);
+        double[] ans = new double[triangles.length];
+        for (int key = 0; key < ans.length; ++key) {
+            int v = g.indexOf(key);
+            if (v == -1) {
+                ans[key] = -1;
+            } else {
+                long degree = g.degree(v);
+                ans[key] = degree < 2 ? 0 : 2.0 * triangles[key] / (degree * (degree - 1));
+            }
+        }
+        this.recordTraversal(trace, g.vertexCount(), 2L * g.edgeCount(), 0, 0);
+        this.endQuery(trace, g.vertexCount());
+        return ans;
+    }
+
+    private long[] trianglesByKey(CompactGraph g) {
+        AtomicLongArray counts = new AtomicLongArray(g.vertexCount());
+        new Triangles(g).count(counts, Thread.currentThread());
+        long[] ans = new long[highestKey(g) + 1];
+        Arrays.fill(ans, -1);
+        for (int v = 0; v < g.vertexCount(); ++v) {
+            ans[g.keyOf(v)] = counts.get(v);
+        }
+        return ans;
+    }
+
+    /**
+     * returns the core number of every node, indexed by the node key: the largest k such that the node
+     * is in the k-core, the largest subgraph where every node has k neighbors at least.
+     * Keys with no node in the graph get -1.
+     * Note: this method runs in O(|V|+|E|) time (Batagelj and Zaversnik), see parallelCoreNumbers().
+     *
+     * @return
+     */
+    @Override
+    public int[] coreNumbers() {
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.CORE_NUMBERS, -1, -1);
+        trace.setAlgorithm("bucket-peeling");
+        CompactGraph g = this.compact();
+        int[] cores = byKey(g, CoreDecomposition.peel(g));
+        this.recordTraversal(trace, g.vertexCount(), 2L * g.edgeCount(), 0, 0);
+        this.endQuery(trace, g.vertexCount());
+        return cores;
+    }
+
+    /**
+     * returns the core number of every node like coreNumbers(), computed in parallel by iterating the
+     * local h-index of the nodes until it settles - for large graphs, on many cores.
+     *
+     * @return
+     */
+    public int[] parallelCoreNumbers() {
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.CORE_NUMBERS, -1, -1);
+        trace.setAlgorithm("h-index");
+        CompactGraph g = this.compact();
+        int[] cores = byKey(g, CoreDecomposition.hIndex(g, Thread.currentThread()));
+        this.recordTraversal(trace, g.vertexCount(), 2L * g.edgeCount(), 0, 0);
+        this.endQuery(trace, g.vertexCount());
+        return cores;
+    }
+
+    /**
+     * returns a minimum spanning forest: a spanning tree of every connected component, of the smallest total
+     * edge length (see IGraph.getEdgeLength), as arrays of its edges.
+     * Note: this method runs in O(|E| log|V|) time (Kruskal), see parallelMinimumSpanningForest().
+     *
+     * @return
+     */
+    @Override
+    public SpanningForest minimumSpanningForest() {
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.SPANNING_FOREST, -1, -1);
+        trace.setAlgorithm("kruskal");
+        IAdjacencyView view = this.view();
+        SpanningForest forest = new MinimumSpanningForest(view).kruskal();
+        this.recordTraversal(trace, view.vertexCount(), 2L * view.edgeCount(), 0, 0);
+        this.endQuery(trace, forest.size());
+        return forest;
+    }
+
+    /**
+     * returns the minimum spanning forest like minimumSpanningForest(), computed in parallel by Boruvka
+     * rounds - for large graphs, on many cores. Both return the same edges, ties between edges of the same
+     * length are broken the same way.
+     *
+     * @return
+     */
+    public SpanningForest parallelMinimumSpanningForest() {
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.SPANNING_FOREST, -1, -1);
+        trace.setAlgorithm("boruvka");
+        IAdjacencyView view = this.view();
+        SpanningForest forest = new MinimumSpanningForest(view).boruvka(Thread.currentThread());
+        this.recordTraversal(trace, view.vertexCount(), 2L * view.edgeCount(), 0, 0);
+        this.endQuery(trace, forest.size());
+        return forest;
+    }
+
+    /**
+     * returns the diameter: the longest shortest path between two nodes, in edges. On a graph which is not
+     * connected it is the largest diameter of its components, -1 for an empty graph.
+     * Computed by iFUB, which usually takes a handful of BFS runs rather than one from every node.
+     *
+     * @return
+     */
+    @Override
+    public int diameter() {
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.ECCENTRICITY, -1, -1);
+        trace.setAlgorithm("ifub");
+        Eccentricity eccentricity = eccentricity(this.state());
+        int diameter = eccentricity.diameter();
+        this.recordTraversal(trace, eccentricity.settled, eccentricity.relaxed, eccentricity.settled, eccentricity.settled);
+        this.endQuery(trace, diameter);
+        return diameter;
+    }
+
+    /**
+     * returns a lower bound of the diameter by a double sweep: two BFS runs per component.
+     *
+     * @return
+     */
+    public int diameterLowerBound() {
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.ECCENTRICITY, -1, -1);
+        trace.setAlgorithm("double-sweep");
+        Eccentricity eccentricity = eccentricity(this.state());
+        int bound = eccentricity.diameterLowerBound();
+        this.recordTraversal(trace, eccentricity.settled, eccentricity.relaxed, eccentricity.settled, eccentricity.settled);
+        this.endQuery(trace, bound);
+        return bound;
+    }
+
+    /**
+     * returns the radius: the smallest eccentricity of a node. On a graph which is not connected the
+     * eccentricities are taken within the components, -1 for an empty graph.
+     *
+     * @return
+     */
+    @Override
+    public int radius() {
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.ECCENTRICITY, -1, -1);
+        trace.setAlgorithm("bounding");
+        Eccentricity eccentricity = eccentricity(this.state());
+        int radius = eccentricity.radius();
+        this.recordTraversal(trace, eccentricity.settled, eccentricity.relaxed, eccentricity.settled, eccentricity.settled);
+        this.endQuery(trace, radius);
+        return radius;
+    }
+
+    /**
+     * returns the eccentricity of every node, indexed by the node key: its largest distance from a node
+     * of its component. Keys with no node in the graph get -1.
+     * The BFS runs bound the eccentricities of all the other nodes, so most of them are never computed.
+     *
+     * @return
+     */
+    @Override
+    public int[] eccentricities() {
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.ECCENTRICITY, -1, -1);
+        trace.setAlgorithm("bounding");
+        ViewState state = this.state();
+        Eccentricity eccentricity = eccentricity(state);
+        IAdjacencyView view = state.view;
+        int[] ans = byKey(view, eccentricity.eccentricities());
+        this.recordTraversal(trace, eccentricity.settled, eccentricity.relaxed, eccentricity.settled, eccentricity.settled);
+        this.endQuery(trace, view.vertexCount());
+        return ans;
+    }
+
+    private static Eccentricity eccentricity(ViewState state) {
+        if (state.view.isWeighted()) {
+            throw new UnsupportedOperationException("eccentricity of a weighted graph");
         }
-        return false;
+        return new Eccentricity(state.view, componentLabels(state));
+    }
+
+    /**
+     * return the CSR copy of the current version of the graph, its vertices in BFS order for locality.
+     */
+    private CompactGraph compact() {
+        ViewState state = this.state();
+        IAdjacencyView view = state.view;
+        CompactGraph compact = state.compact;
+        if (compact == null) {
+            compact = view instanceof CompactGraph ? (CompactGraph) view
+                    : CompactGraph.of(view, VertexOrdering.BFS.order(view), state.modeCount);
+            state.compact = compact;
+        }
+        return compact;
     }
 
     /**
      * returns the length of the shortest path between src to dest
+     * Note: on a weighted graph the length is the sum of the edge lengths, which need not be an integer -
+     * such a length is not rounded but rejected, shortestPathLength returns it as is.
      *
      * @param src  - start node
      * @param dest - end (target) node
-     * @return
+     * @return the length, -1 if there is no path.
+     * @throws ArithmeticException if the length is not an integer
      */
     @Override
     public int shortestPathDist(int src, int dest) {
-        Double dist;
-        if (this.shortestPathDistTrees.containsKey(src)) {
-            dist = this.shortestPathDistTrees.get(src)[dest];
-        } else {
-            dist = (double) this.shortestPath(src, dest).size() - 1;
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.SHORTEST_PATH_DIST, src, dest);
+        double length = this.computeShortestPathLength(src, dest, trace);
+        this.endQuery(trace, (long) length);
+        int dist = (int) length;
+        if (dist != length) {
+            throw new ArithmeticException("the length " + length + " is not an int, see shortestPathLength");
         }
-        return (dist <= 0.0 && src != dest) ? -1 : dist.intValue();
+        return dist;
+    }
+
+    /**
+     * returns the length of the shortest path between src to dest, the sum of the lengths of its edges
+     * on a weighted graph (the number of its edges otherwise).
+     *
+     * @param src  - start node
+     * @param dest - end (target) node
+     * @return the length, -1 if there is no path.
+     */
+    public double shortestPathLength(int src, int dest) {
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.SHORTEST_PATH_DIST, src, dest);
+        double length = this.computeShortestPathLength(src, dest, trace);
+        this.endQuery(trace, (long) length);
+        return length;
+    }
 
+    private double computeShortestPathLength(int src, int dest, QueryTrace trace) {
+        ViewState state = this.state();
+        int s = state.view.indexOf(src);
+        int d = state.view.indexOf(dest);
+        if (s == -1 || d == -1 || componentLabels(state)[s] != componentLabels(state)[d]) {
+            return -1;
+        }
+        return this.routeDistance(state, s, d, trace);
     }
 
     /**
@@ -114,106 +834,598 @@ public class GraphAlgorithms implements IGraphAlgorithms {
      */
     @Override
     public List<INodeData> shortestPath(int src, int dest) {
-        if (this.graph.getNode(src) == null || this.graph.getNode(dest) == null) {
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.SHORTEST_PATH, src, dest);
+        List<INodeData> path = this.computeShortestPath(src, dest, trace);
+        this.endQuery(trace, path.size() - 1);
+        return path;
+    }
+
+    /**
+     * returns the keys of the nodes of the shortest path between src to dest, in order from src to dest,
+     * read lazily off the previous slots of a shortest path tree - unlike shortestPath() no list is built
+     * and no node is looked up. The iterator is empty if there is no path.
+     * The tree is the one of dest: the graph is undirected, so following the previous slots from src walks
+     * the path forward.
+     *
+     * @param src  - start node
+     * @param dest - end (target) node
+     * @return
+     */
+    public PrimitiveIterator.OfInt shortestPathKeys(int src, int dest) {
+        QueryTrace trace = this.startQuery(GraphAlgorithmsStats.Query.SHORTEST_PATH, src, dest);
+        ViewState state = this.state();
+        IAdjacencyView view = state.view;
+        int s = view.indexOf(src);
+        int d = view.indexOf(dest);
+        if (s == -1 || d == -1 || componentLabels(state)[s] != componentLabels(state)[d]) {
+            this.endQuery(trace, -1);
+            return new PathIterator(view, null, -1);
+        }
+        ShortestPathTree tree = this.route(state, d, s, trace);
+        this.endQuery(trace, (long) tree.distance(s));
+        return new PathIterator(view, tree, s);
+    }
+
+    private List<INodeData> computeShortestPath(int src, int dest, QueryTrace trace) {
+        ViewState state = this.state();
+        int s = state.view.indexOf(src);
+        int d = state.view.indexOf(dest);
+        if (s == -1 || d == -1) {
+            return new ArrayList<>();
+        }
+        if (componentLabels(state)[s] != componentLabels(state)[d]) {
             return new ArrayList<>();
         }
-        if (this.shortestPathTrees.containsKey(src)) {
-            return this.reconstructPath(src, dest, this.shortestPathTrees.get(src));
+        return this.reconstructPath(state.view, d, this.route(state, s, d, trace));
+    }
+
+    /**
+     * return a shortest path tree of the given source which holds the path to dest,
+     * built by the strategy the planner picks.
+     */
+    private ShortestPathTree route(ViewState state, int src, int dest, QueryTrace trace) {
+        IAdjacencyView view = state.view;
+        ShortestPathTree cached = this.cachedTree(state, src);
+        IDistanceHeuristic heuristic = this.heuristic;
+        QueryProfile profile = new QueryProfile(trace.query, view, view.keyOf(src), cached != null,
+                heuristic != null);
+        IQueryPlanner planner = this.planner;
+        IQueryPlanner.Strategy strategy = this.plan(planner, profile, trace);
+        long start = System.nanoTime();
+        ShortestPathTree tree = this.runStrategy(strategy, state, src, dest, cached, heuristic, trace);
+        planner.observe(strategy, profile, System.nanoTime() - start,
+                strategy == IQueryPlanner.Strategy.CACHED_TREE ? 0 : tree.visited());
+        return tree;
+    }
+
+    /**
+     * return the distance from src to dest, by the strategy the planner picks - unlike route() it may
+     * search only until dest is reached and keep no tree (see DistanceSearch).
+     */
+    private double routeDistance(ViewState state, int src, int dest, QueryTrace trace) {
+        IAdjacencyView view = state.view;
+        ShortestPathTree cached = this.cachedTree(state, src);
+        IDistanceHeuristic heuristic = this.heuristic;
+        QueryProfile profile = new QueryProfile(trace.query, view, view.keyOf(src), cached != null,
+                heuristic != null);
+        IQueryPlanner planner = this.planner;
+        IQueryPlanner.Strategy strategy = this.plan(planner, profile, trace);
+        long start = System.nanoTime();
+        double dist;
+        long visited;
+        if (strategy == IQueryPlanner.Strategy.EARLY_EXIT) {
+            DistanceSearch search = this.acquireDistanceSearch(view);
+            try {
+                dist = search.distance(src, dest);
+                visited = search.settledCount;
+                this.recordTraversal(trace, search.settledCount, search.relaxed, search.pushes, search.pops);
+            } finally {
+                this.releaseDistanceSearch(search);
+            }
         } else {
-            double dijkstraEst = Math.pow(this.graph.nodeSize(), 2);
-            double bfsEst = this.graph.nodeSize() + this.graph.edgeSize();
-            List<INodeData> shortestPath;
-            if (dijkstraEst < bfsEst) {
-                shortestPath = this.dijkstra(src, dest);
-            } else {
-                shortestPath = this.bfs(src, dest);
+            ShortestPathTree tree = this.runStrategy(strategy, state, src, dest, cached, heuristic, trace);
+            dist = tree.distance(dest);
+            visited = strategy == IQueryPlanner.Strategy.CACHED_TREE ? 0 : tree.visited();
+        }
+        planner.observe(strategy, profile, System.nanoTime() - start, visited);
+        return dist;
+    }
+
+    /**
+     * return an idle search of the given view from the pool, or a new one if there is none - a search of an
+     * older view is dropped.
+     */
+    private DistanceSearch acquireDistanceSearch(IAdjacencyView view) {
+        for (int i = 0; i < this.distanceSearches.length(); ++i) {
+            DistanceSearch search = this.distanceSearches.getAndSet(i, null);
+            if (search != null && search.view() == view) {
+                return search;
             }
-            return shortestPath;
         }
+        return new DistanceSearch(view);
     }
 
-    private List<INodeData> dijkstra(int src, int dest) {
-        Double[] dist = new Double[this.graph.nodeSize()];
-        Integer[] prev = new Integer[this.graph.nodeSize()];
-        for (int i = 0; i < this.graph.nodeSize(); ++i) {
-            dist[i] = Double.POSITIVE_INFINITY;
-            prev[i] = null;
+    /**
+     * Returns the search to the pool, if it is of the current view and the pool is not full.
+     */
+    private void releaseDistanceSearch(DistanceSearch search) {
+        ViewState state = this.state.get();
+        if (state == null || search.view() != state.view) {
+            return;
+        }
+        for (int i = 0; i < this.distanceSearches.length(); ++i) {
+            if (this.distanceSearches.compareAndSet(i, null, search)) {
+                return;
+            }
         }
+    }
+
+    /**
+     * return the cached shortest path tree of the given source, null if it is not cached.
+     */
+    private ShortestPathTree cachedTree(ViewState state, int src) {
+        ShortestPathTree cached = state.trees.get(state.view.keyOf(src));
+        GraphAlgorithmsStats stats = this.stats;
+        if (stats != null) {
+            if (cached != null) stats.recordCacheHit();
+            else stats.recordCacheMiss();
+        }
+        return cached;
+    }
+
+    private IQueryPlanner.Strategy plan(IQueryPlanner planner, QueryProfile profile, QueryTrace trace) {
+        IQueryPlanner.Strategy strategy = planner.plan(profile);
+        if (!profile.candidates().contains(strategy)) {
+            strategy = profile.fallback();
+        }
+        GraphAlgorithmsStats stats = this.stats;
+        if (stats != null) stats.recordPlan(strategy);
+        trace.setAlgorithm(strategy.name());
+        return strategy;
+    }
+
+    private ShortestPathTree runStrategy(IQueryPlanner.Strategy strategy, ViewState state, int src, int dest,
+                                         ShortestPathTree cached, IDistanceHeuristic heuristic, QueryTrace trace) {
+        IAdjacencyView view = state.view;
+        ShortestPathTree tree;
+        switch (strategy) {
+            case CACHED_TREE:
+                trace.setCacheHit();
+                tree = cached;
+                break;
+            case BIDIRECTIONAL_BFS:
+                tree = this.bidirectionalBfs(view, src, dest, trace);
+                break;
+            case A_STAR:
+                tree = this.aStar(view, src, dest, heuristic, trace);
+                break;
+            case DIJKSTRA:
+                tree = this.dijkstra(view, src, trace);
+                break;
+            case BIT_MATRIX_BFS:
+                tree = this.bitMatrixBfs((BitMatrixGraph) view, src, trace);
+                break;
+            default:
+                tree = this.bfs(view, src, trace);
+        }
+        if (strategy == IQueryPlanner.Strategy.BFS || strategy == IQueryPlanner.Strategy.DIJKSTRA
+                || strategy == IQueryPlanner.Strategy.BIT_MATRIX_BFS) {
+            this.recordCacheEvictions(state.trees.put(view.keyOf(src), tree));
+        }
+        return tree;
+    }
+
+    /**
+     * The BFS core: fills the distance of every vertex reachable from src, in the order they are settled.
+     * shortestPath, Brandes and the eccentricities all run on it.
+     *
+     * @param view
+     * @param src
+     * @param dist  the distances, -1 for every vertex on entry
+     * @param queue gets the reached vertices in BFS order, of length vertexCount() at least
+     * @param ni    a buffer of length maxDegree() at least
+     * @param prev  gets the parent of every reached vertex but src, or null when no tree is needed
+     * @return the number of vertices reached, the farthest one is the last in the queue.
+     */
+    static int bfsLevels(IAdjacencyView view, int src, int[] dist, int[] queue, int[] ni, int[] prev) {
+        int head = 0, tail = 0;
+        dist[src] = 0;
+        queue[tail++] = src;
+        while (head < tail) {
+            checkInterrupted(head);
+            int u = queue[head++];
+            int degree = view.neighbors(u, ni);
+            for (int i = 0; i < degree; ++i) {
+                int v = ni[i];
+                if (dist[v] == -1) {
+                    dist[v] = dist[u] + 1;
+                    if (prev != null) prev[v] = u;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return tail;
+    }
+
+    private ShortestPathTree dijkstra(IAdjacencyView view, int src, QueryTrace trace) {
+        double[] dist = new double[view.capacity()];
+        int[] prev = new int[view.capacity()];
+        boolean[] settled = new boolean[view.capacity()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(prev, -1);
         dist[src] = 0.0;
         Comparator<Pair<Integer, Double>> pqComparator = Comparator.comparingDouble(Pair::getRight);
         Queue<Pair<Integer, Double>> pq = new PriorityQueue<>(pqComparator);
         pq.offer(Pair.of(src, dist[src]));
-        //white=1, grey=2, black=3
-        this.initNodesTag(1);
-        this.graph.getNode(src).setTag(2);
-        //int countOffersToPQ = 1;
+        int[] ni = new int[view.maxDegree()];
+        double[] lengths = new double[view.maxDegree()];
+        long settledCount = 0, relaxed = 0, pushes = 1, pops = 0;
         while (!pq.isEmpty()) {
-            Pair<Integer, Double> nodeKeyDistPair = pq.poll();
-            INodeData u = this.graph.getNode(nodeKeyDistPair.getKey());
-            for (INodeData v : u.getNi()) {
-                double altDist = dist[u.getKey()] + this.graph.getEdgeLength(u.getKey(), v.getKey());
-                if (altDist < dist[v.getKey()]) {
-                    dist[v.getKey()] = altDist;
-                    prev[v.getKey()] = u.getKey();
+            int u = pq.poll().getKey();
+            checkInterrupted(pops++);
+            if (settled[u]) continue;
+            settled[u] = true;
+            settledCount++;
+            int degree = view.neighbors(u, ni);
+            view.lengths(u, lengths);
+            relaxed += degree;
+            for (int i = 0; i < degree; ++i) {
+                int v = ni[i];
+                double altDist = dist[u] + lengths[i];
+                if (altDist < dist[v]) {
+                    dist[v] = altDist;
+                    prev[v] = u;
+                    pq.offer(Pair.of(v, altDist));
+                    pushes++;
                 }
-                if (v.getTag() == 1) {
-                    pq.offer(Pair.of(v.getKey(), dist[v.getKey()]));
-                    //countOffersToPQ++;
-                    v.setTag(2);
+            }
+        }
+        this.recordTraversal(trace, settledCount, relaxed, pushes, pops);
+        return new ShortestPathTree(src, prev, dist, settledCount);
+    }
+
+    private ShortestPathTree bfs(IAdjacencyView view, int src, QueryTrace trace) {
+        int[] levels = new int[view.capacity()];
+        int[] prev = new int[view.capacity()];
+        Arrays.fill(levels, -1);
+        Arrays.fill(prev, -1);
+        int[] queue = new int[view.vertexCount()];
+        int tail = bfsLevels(view, src, levels, queue, new int[view.maxDegree()], prev);
+        double[] dist = new double[view.capacity()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        long relaxed = 0;
+        for (int i = 0; i < tail; ++i) {
+            dist[queue[i]] = levels[queue[i]];
+            relaxed += view.degree(queue[i]);
+        }
+        //every vertex is pushed and popped (and settled) exactly once
+        this.recordTraversal(trace, tail, relaxed, tail, tail);
+        return new ShortestPathTree(src, prev, dist, tail);
+    }
+
+    /**
+     * Breadth first searches from both ends, a level of the smaller frontier at a time, until they meet.
+     * return a tree which holds only the path from src to dest (nothing if there is none).
+     */
+    private ShortestPathTree bidirectionalBfs(IAdjacencyView view, int src, int dest, QueryTrace trace) {
+        int[] distFrom = new int[view.capacity()];
+        int[] distTo = new int[view.capacity()];
+        int[] prevFrom = new int[view.capacity()];
+        int[] prevTo = new int[view.capacity()];
+        Arrays.fill(distFrom, -1);
+        Arrays.fill(distTo, -1);
+        //each side keeps its frontier at the end of its own queue
+        int[] queueFrom = new int[view.vertexCount()];
+        int[] queueTo = new int[view.vertexCount()];
+        int[] ni = new int[view.maxDegree()];
+        int headFrom = 0, tailFrom = 0, headTo = 0, tailTo = 0;
+        long relaxed = 0, steps = 0;
+        distFrom[src] = 0;
+        prevFrom[src] = -1;
+        queueFrom[tailFrom++] = src;
+        distTo[dest] = 0;
+        prevTo[dest] = -1;
+        queueTo[tailTo++] = dest;
+        int meet = src == dest ? src : -1;
+        while (meet == -1 && headFrom < tailFrom && headTo < tailTo) {
+            boolean forward = tailFrom - headFrom <= tailTo - headTo;
+            int[] queue = forward ? queueFrom : queueTo;
+            int[] dist = forward ? distFrom : distTo;
+            int[] prev = forward ? prevFrom : prevTo;
+            int[] other = forward ? distTo : distFrom;
+            int head = forward ? headFrom : headTo;
+            int tail = forward ? tailFrom : tailTo;
+            int levelEnd = tail;
+            int best = Integer.MAX_VALUE;
+            //the whole level is expanded, the shortest meeting may come from any of its vertices
+            while (head < levelEnd) {
+                checkInterrupted(steps++);
+                int u = queue[head++];
+                int degree = view.neighbors(u, ni);
+                relaxed += degree;
+                for (int i = 0; i < degree; ++i) {
+                    int v = ni[i];
+                    if (dist[v] == -1) {
+                        dist[v] = dist[u] + 1;
+                        prev[v] = u;
+                        queue[tail++] = v;
+                    }
+                    if (other[v] != -1 && dist[v] + other[v] < best) {
+                        best = dist[v] + other[v];
+                        meet = v;
+                    }
                 }
             }
-            u.setTag(3);
+            if (forward) {
+                headFrom = head;
+                tailFrom = tail;
+            } else {
+                headTo = head;
+                tailTo = tail;
+            }
+        }
+        this.recordTraversal(trace, headFrom + headTo, relaxed, tailFrom + tailTo, headFrom + headTo);
+        double[] dist = new double[view.capacity()];
+        int[] prev = new int[view.capacity()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(prev, -1);
+        if (meet != -1) {
+            for (int at = meet; at != -1; at = prevFrom[at]) {
+                prev[at] = prevFrom[at];
+                dist[at] = distFrom[at];
+            }
+            for (int at = meet; prevTo[at] != -1; at = prevTo[at]) {
+                prev[prevTo[at]] = at;
+                dist[prevTo[at]] = dist[at] + 1;
+            }
         }
-        //System.out.println("Offers made to pq: " + countOffersToPQ);
-        this.shortestPathTrees.put(src, prev);
-        this.shortestPathDistTrees.put(src, dist);
-        return this.reconstructPath(src, dest, prev);
+        return new ShortestPathTree(src, prev, dist, headFrom + headTo);
     }
 
-    private List<INodeData> bfs(int src, int dest) {
-        INodeData sourceNode = this.graph.getNode(src);
-        Integer[] prev = new Integer[this.highestNodeInGraph + 1];
-        if (sourceNode == null) {
-            return new ArrayList<>();
+    /**
+     * A*: Dijkstra ordered by the distance from src plus the estimated distance to dest, it stops once
+     * dest is settled. return a tree which holds the paths to the settled vertices only.
+     * A vertex is settled again when a shorter path to it is found after it was settled - which an admissible
+     * but inconsistent heuristic allows - so the path to dest is a shortest one; with a consistent heuristic
+     * no vertex is settled twice.
+     */
+    private ShortestPathTree aStar(IAdjacencyView view, int src, int dest, IDistanceHeuristic heuristic, QueryTrace trace) {
+        double[] dist = new double[view.capacity()];
+        int[] prev = new int[view.capacity()];
+        //the priority of the latest entry of every vertex, the earlier ones are stale
+        double[] priority = new double[view.capacity()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(prev, -1);
+        dist[src] = 0.0;
+        int destKey = view.keyOf(dest);
+        Comparator<Pair<Integer, Double>> pqComparator = Comparator.comparingDouble(Pair::getRight);
+        Queue<Pair<Integer, Double>> pq = new PriorityQueue<>(pqComparator);
+        priority[src] = heuristic.estimate(view.keyOf(src), destKey);
+        pq.offer(Pair.of(src, priority[src]));
+        int[] ni = new int[view.maxDegree()];
+        double[] lengths = new double[view.maxDegree()];
+        long settledCount = 0, relaxed = 0, pushes = 1, pops = 0;
+        while (!pq.isEmpty()) {
+            Pair<Integer, Double> entry = pq.poll();
+            int u = entry.getKey();
+            checkInterrupted(pops++);
+            if (entry.getRight() > priority[u]) continue;
+            //settled at this distance, until a shorter path is found
+            priority[u] = Double.NEGATIVE_INFINITY;
+            settledCount++;
+            if (u == dest) break;
+            int degree = view.neighbors(u, ni);
+            view.lengths(u, lengths);
+            relaxed += degree;
+            for (int i = 0; i < degree; ++i) {
+                int v = ni[i];
+                double altDist = dist[u] + lengths[i];
+                if (altDist < dist[v]) {
+                    dist[v] = altDist;
+                    prev[v] = u;
+                    priority[v] = altDist + heuristic.estimate(view.keyOf(v), destKey);
+                    pq.offer(Pair.of(v, priority[v]));
+                    pushes++;
+                }
+            }
         }
-        this.initNodesTag(1);
-        for (int i = 0; i < this.graph.nodeSize(); ++i) {
-            prev[i] = null;
-        }
-        Queue<INodeData> q = new LinkedList<>();
-        q.offer(sourceNode);
-        sourceNode.setTag(1);
-        //1 = white, 2 = grey, 3 = black
-        while (!q.isEmpty()) {
-            INodeData currNode = q.poll();
-            currNode.setTag(2);
-            /*if (currNode.getKey() == dest) {
-                currNode.setTag(3);
-                break;
-            }*/
-            for (INodeData neighbor : currNode.getNi()) {
-                if (neighbor.getTag() == 1) {
-                    q.offer(neighbor);
-                    neighbor.setTag(2);
-                    prev[neighbor.getKey()] = currNode.getKey();
+        this.recordTraversal(trace, settledCount, relaxed, pushes, pops);
+        return new ShortestPathTree(src, prev, dist, settledCount);
+    }
+
+    /**
+     * BFS over the rows of a bit matrix: the unvisited neighbors of a vertex are its row AND NOT
+     * the visited vertices, 64 at a time, and the traversal stops once every vertex is reached.
+     */
+    private ShortestPathTree bitMatrixBfs(BitMatrixGraph view, int src, QueryTrace trace) {
+        int n = view.capacity();
+        int words = view.words();
+        long[] bits = view.bits();
+        double[] dist = new double[n];
+        int[] prev = new int[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(prev, -1);
+        long[] unvisited = new long[words];
+        Arrays.fill(unvisited, -1L);
+        if ((n & 63) != 0) {
+            unvisited[words - 1] = (1L << n) - 1;
+        }
+        unvisited[src >>> 6] &= ~(1L << src);
+        int[] queue = new int[n];
+        int head = 0, tail = 0;
+        long relaxed = 0;
+        dist[src] = 0;
+        queue[tail++] = src;
+        while (head < tail && tail < n) {
+            checkInterrupted(head);
+            int u = queue[head++];
+            int row = u * words;
+            relaxed += view.degree(u);
+            for (int w = 0; w < words; ++w) {
+                long found = bits[row + w] & unvisited[w];
+                if (found == 0) continue;
+                unvisited[w] &= ~found;
+                while (found != 0) {
+                    int v = (w << 6) + Long.numberOfTrailingZeros(found);
+                    dist[v] = dist[u] + 1;
+                    prev[v] = u;
+                    queue[tail++] = v;
+                    found &= found - 1;
                 }
             }
-            currNode.setTag(3);
         }
-        this.shortestPathTrees.put(src, prev);
-        return reconstructPath(src, dest, prev);
+        this.recordTraversal(trace, tail, relaxed, tail, head);
+        return new ShortestPathTree(src, prev, dist, tail);
     }
 
     private @NotNull
-    List<INodeData> reconstructPath(int src, int dest, Integer[] prev) {
+    List<INodeData> reconstructPath(IAdjacencyView view, int dest, ShortestPathTree tree) {
         List<INodeData> path = new ArrayList<>();
-        for (Integer at = dest; at != null; at = prev[at]) {
-            path.add(this.graph.getNode(at));
+        for (int at = dest; at != -1; at = tree.previous(at)) {
+            path.add(this.graph.getNode(view.keyOf(at)));
         }
         Collections.reverse(path);
-        if (path.get(0).getKey() != src) {
+        if (path.get(0).getKey() != view.keyOf(tree.source())) {
             path.clear();
         }
         return path;
     }
+
+    /**
+     * The keys along the previous slots of a shortest path tree, from the given slot to the source.
+     */
+    private static final class PathIterator implements PrimitiveIterator.OfInt {
+        private final IAdjacencyView view;
+        private final ShortestPathTree tree;
+        private int at;
+
+        private PathIterator(IAdjacencyView view, ShortestPathTree tree, int from) {
+            this.view = view;
+            this.tree = tree;
+            this.at = from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.at != -1;
+        }
+
+        @Override
+        public int nextInt() {
+            if (this.at == -1) {
+                throw new NoSuchElementException();
+            }
+            int key = this.view.keyOf(this.at);
+            this.at = this.tree.previous(this.at);
+            return key;
+        }
+    }
+
+    /**
+     * What a single query did, for the statistics and the Flight Recorder.
+     */
+    private static final class QueryTrace {
+        private final GraphAlgorithmsStats.Query query;
+        /**
+         * null for the shared trace of a query nothing records (see startQuery), which is never written.
+         */
+        private final GraphQueryEvent event;
+        private final int src;
+        private final int dest;
+        private long startNanos;
+        private String algorithm = "components";
+        private long nodesVisited;
+        private boolean cacheHit;
+
+        private QueryTrace(GraphAlgorithmsStats.Query query, GraphQueryEvent event, int src, int dest) {
+            this.query = query;
+            this.event = event;
+            this.src = src;
+            this.dest = dest;
+        }
+
+        private void setAlgorithm(String algorithm) {
+            if (this.event != null) this.algorithm = algorithm;
+        }
+
+        private void setCacheHit() {
+            if (this.event != null) this.cacheHit = true;
+        }
+
+        private void addNodesVisited(long settled) {
+            if (this.event != null) this.nodesVisited += settled;
+        }
+    }
+
+    /**
+     * The shared traces of the queries, by the ordinal of the query, when neither statistics nor the
+     * Flight Recorder record them.
+     */
+    private static final QueryTrace[] UNRECORDED_TRACES = new QueryTrace[GraphAlgorithmsStats.Query.values().length];
+    private static final EventType QUERY_EVENT_TYPE = EventType.getEventType(GraphQueryEvent.class);
+
+    static {
+        for (GraphAlgorithmsStats.Query query : GraphAlgorithmsStats.Query.values()) {
+            UNRECORDED_TRACES[query.ordinal()] = new QueryTrace(query, null, -1, -1);
+        }
+    }
+
+    /**
+     * Throws CancellationException if the thread was interrupted, checked once every 1024 steps.
+     */
+    static void checkInterrupted(long step) {
+        if ((step & INTERRUPT_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("the query was interrupted");
+        }
+    }
+
+    private QueryTrace startQuery(GraphAlgorithmsStats.Query query, int src, int dest) {
+        if (this.stats == null && !QUERY_EVENT_TYPE.isEnabled()) {
+            //nothing to record, so nothing to allocate
+            return UNRECORDED_TRACES[query.ordinal()];
+        }
+        QueryTrace trace = new QueryTrace(query, new GraphQueryEvent(), src, dest);
+        if (this.stats != null) {
+            trace.startNanos = System.nanoTime();
+        }
+        trace.event.begin();
+        return trace;
+    }
+
+    private void endQuery(QueryTrace trace, long result) {
+        GraphQueryEvent event = trace.event;
+        if (event == null) {
+            return;
+        }
+        GraphAlgorithmsStats stats = this.stats;
+        if (stats != null && trace.startNanos != 0) {
+            stats.recordQuery(trace.query, System.nanoTime() - trace.startNanos);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.query = trace.query.name();
+            event.algorithm = trace.algorithm;
+            event.source = trace.src;
+            event.destination = trace.dest;
+            event.nodesVisited = trace.nodesVisited;
+            event.cacheHit = trace.cacheHit;
+            event.result = result;
+            event.commit();
+        }
+    }
+
+    private void recordTraversal(QueryTrace trace, long settled, long relaxed, long pushes, long pops) {
+        trace.addNodesVisited(settled);
+        GraphAlgorithmsStats stats = this.stats;
+        if (stats != null) {
+            stats.recordTraversal(settled, relaxed, pushes, pops);
+        }
+    }
+
+    private void recordCacheEvictions(int evictions) {
+        GraphAlgorithmsStats stats = this.stats;
+        if (stats != null && evictions > 0) {
+            stats.recordCacheEvictions(evictions);
+        }
+    }
 }
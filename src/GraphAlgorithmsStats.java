@@ -0,0 +1,147 @@
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the work done by GraphAlgorithms, enabled with GraphAlgorithms.setStats().
+ * The counters are LongAdders, so any number of GraphAlgorithms (and threads) can share one instance,
+ * and the traversals add their counts once per run rather than once per step.
+ */
+public class GraphAlgorithmsStats {
+
+    /**
+     * The queries whose latency is recorded.
+     */
+    public enum Query {
+        SHORTEST_PATH, SHORTEST_PATH_DIST, IS_CONNECTED, CONNECTED_COMPONENTS, BETWEENNESS, PAGE_RANK, TRIANGLES, CORE_NUMBERS, ECCENTRICITY, SPANNING_FOREST
+    }
+
+    private final LongAdder nodesSettled = new LongAdder();
+    private final LongAdder edgesRelaxed = new LongAdder();
+    private final LongAdder queuePushes = new LongAdder();
+    private final LongAdder queuePops = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder cacheEvictions = new LongAdder();
+    private final Map<Query, LatencyHistogram> latencies = new EnumMap<>(Query.class);
+    private final Map<IQueryPlanner.Strategy, LongAdder> plans = new EnumMap<>(IQueryPlanner.Strategy.class);
+
+    public GraphAlgorithmsStats() {
+        for (Query query : Query.values()) {
+            this.latencies.put(query, new LatencyHistogram());
+        }
+        for (IQueryPlanner.Strategy strategy : IQueryPlanner.Strategy.values()) {
+            this.plans.put(strategy, new LongAdder());
+        }
+    }
+
+    /**
+     * Adds the counts of a single traversal.
+     */
+    void recordTraversal(long settled, long relaxed, long pushes, long pops) {
+        this.nodesSettled.add(settled);
+        this.edgesRelaxed.add(relaxed);
+        this.queuePushes.add(pushes);
+        this.queuePops.add(pops);
+    }
+
+    void recordCacheHit() {
+        this.cacheHits.increment();
+    }
+
+    void recordCacheMiss() {
+        this.cacheMisses.increment();
+    }
+
+    void recordCacheEvictions(int evictions) {
+        this.cacheEvictions.add(evictions);
+    }
+
+    void recordPlan(IQueryPlanner.Strategy strategy) {
+        this.plans.get(strategy).increment();
+    }
+
+    void recordQuery(Query query, long nanos) {
+        this.latencies.get(query).record(nanos);
+    }
+
+    public long getNodesSettled() {
+        return this.nodesSettled.sum();
+    }
+
+    public long getEdgesRelaxed() {
+        return this.edgesRelaxed.sum();
+    }
+
+    public long getQueuePushes() {
+        return this.queuePushes.sum();
+    }
+
+    public long getQueuePops() {
+        return this.queuePops.sum();
+    }
+
+    public long getCacheHits() {
+        return this.cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return this.cacheMisses.sum();
+    }
+
+    public long getCacheEvictions() {
+        return this.cacheEvictions.sum();
+    }
+
+    /**
+     * return the latency histogram of the given query.
+     *
+     * @param query
+     * @return
+     */
+    public LatencyHistogram getLatency(Query query) {
+        return this.latencies.get(query);
+    }
+
+    /**
+     * return the number of shortest path queries the planner answered with the given strategy.
+     *
+     * @param strategy
+     * @return
+     */
+    public long getPlans(IQueryPlanner.Strategy strategy) {
+        return this.plans.get(strategy).sum();
+    }
+
+    public void reset() {
+        this.nodesSettled.reset();
+        this.edgesRelaxed.reset();
+        this.queuePushes.reset();
+        this.queuePops.reset();
+        this.cacheHits.reset();
+        this.cacheMisses.reset();
+        this.cacheEvictions.reset();
+        for (LatencyHistogram latency : this.latencies.values()) {
+            latency.reset();
+        }
+        for (LongAdder plan : this.plans.values()) {
+            plan.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("nodes settled:%d\nedges relaxed:%d\nqueue pushes:%d\nqueue pops:%d\n",
+                this.getNodesSettled(), this.getEdgesRelaxed(), this.getQueuePushes(), this.getQueuePops()));
+        sb.append(String.format("cache hits:%d\ncache misses:%d\ncache evictions:%d\n",
+                this.getCacheHits(), this.getCacheMisses(), this.getCacheEvictions()));
+        for (Map.Entry<IQueryPlanner.Strategy, LongAdder> plan : this.plans.entrySet()) {
+            sb.append(String.format("%s plans:%d\n", plan.getKey(), plan.getValue().sum()));
+        }
+        for (Map.Entry<Query, LatencyHistogram> latency : this.latencies.entrySet()) {
+            sb.append(String.format("%s latency: %s\n", latency.getKey(), latency.getValue()));
+        }
+        return sb.toString();
+    }
+}
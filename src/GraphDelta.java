@@ -0,0 +1,128 @@
+import java.util.Arrays;
+
+/**
+ * A batch of graph mutations, recorded in order to be applied at once to a GraphSnapshot
+ * (see GraphSnapshot.apply and VersionedGraph.publish).
+ * The operations have the same meaning as the IGraph mutations of the same name.
+ * Note: a delta is not thread safe, it is meant to be filled by a single writer.
+ */
+public class GraphDelta {
+    static final byte ADD_NODE = 0;
+    static final byte CONNECT = 1;
+    static final byte REMOVE_EDGE = 2;
+    static final byte REMOVE_NODE = 3;
+
+    private byte[] ops = new byte[16];
+    private int[] first = new int[16];
+    private int[] second = new int[16];
+    private String[] info = new String[16];
+    /**
+     * The length of every connected edge, NaN for the connections of no length.
+     */
+    private double[] lengths = new double[16];
+    private int size = 0;
+
+    /**
+     * Adds the given node, with its key and info.
+     *
+     * @param n
+     */
+    public void addNode(INodeData n) {
+        this.addNode(n.getKey(), n.getInfo());
+    }
+
+    void addNode(int key, String info) {
+        this.add(ADD_NODE, key, -1, info, Double.NaN);
+    }
+
+    /**
+     * Connects an edge, of length 1 if it is new.
+     *
+     * @param node1
+     * @param node2
+     */
+    public void connect(int node1, int node2) {
+        this.add(CONNECT, node1, node2, null, Double.NaN);
+    }
+
+    /**
+     * Connects an edge of the given length, or sets the length of the edge if it already exists
+     * (see UndirectedGraph.connect(int, int, double)).
+     *
+     * @param node1
+     * @param node2
+     * @param length a finite length, not negative
+     */
+    public void connect(int node1, int node2, double length) {
+        if (!(length >= 0) || Double.isInfinite(length)) {
+            throw new IllegalArgumentException("illegal edge length: " + length);
+        }
+        this.add(CONNECT, node1, node2, null, length + 0.0);
+    }
+
+    public void removeEdge(int node1, int node2) {
+        this.add(REMOVE_EDGE, node1, node2, null, Double.NaN);
+    }
+
+    public void removeNode(int key) {
+        this.add(REMOVE_NODE, key, -1, null, Double.NaN);
+    }
+
+    private void add(byte op, int node1, int node2, String info, double length) {
+        if (this.size == this.ops.length) {
+            int capacity = this.size * 2;
+            this.ops = Arrays.copyOf(this.ops, capacity);
+            this.first = Arrays.copyOf(this.first, capacity);
+            this.second = Arrays.copyOf(this.second, capacity);
+            this.info = Arrays.copyOf(this.info, capacity);
+            this.lengths = Arrays.copyOf(this.lengths, capacity);
+        }
+        this.ops[this.size] = op;
+        this.first[this.size] = node1;
+        this.second[this.size] = node2;
+        this.info[this.size] = info;
+        this.lengths[this.size] = length;
+        this.size++;
+    }
+
+    /**
+     * return the number of recorded mutations.
+     *
+     * @return
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Removes all the recorded mutations, so the delta can be reused.
+     */
+    public void clear() {
+        Arrays.fill(this.info, 0, this.size, null);
+        this.size = 0;
+    }
+
+    byte op(int i) {
+        return this.ops[i];
+    }
+
+    int first(int i) {
+        return this.first[i];
+    }
+
+    int second(int i) {
+        return this.second[i];
+    }
+
+    String info(int i) {
+        return this.info[i];
+    }
+
+    double length(int i) {
+        return this.lengths[i];
+    }
+}
@@ -0,0 +1,210 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Synthetic graph generators for tests and benchmarks.
+ * The edges are generated in parallel chunks of a fixed size, each chunk with its own random generator
+ * seeded from the seed and the chunk number, so a seed always gives the same graph however many
+ * threads generate it. The result is an EdgeList, to be bulk loaded with EdgeList.toSnapshot()
+ * (or EdgeList.loadInto for a mutable graph).
+ */
+public final class GraphGenerators {
+    private static final int CHUNK = 1 << 16;
+    /**
+     * The R-MAT probabilities of the Graph500 Kronecker generator.
+     */
+    private static final double KRONECKER_A = 0.57, KRONECKER_B = 0.19, KRONECKER_C = 0.19;
+
+    private GraphGenerators() {
+    }
+
+    /**
+     * Erdos-Renyi G(n,m): exactly m distinct edges, chosen uniformly among all the n*(n-1)/2 possible.
+     *
+     * @param n    the number of vertices
+     * @param m    the number of edges
+     * @param seed
+     * @return
+     */
+    public static EdgeList erdosRenyi(int n, int m, long seed) {
+        if (n < 0 || m < 0 || m > (long) n * (n - 1) / 2) {
+            throw new IllegalArgumentException(String.format("no simple graph has %d vertices and %d edges", n, m));
+        }
+        long[] edges = new long[0];
+        int size = 0;
+        int round = 0;
+        //duplicates are drawn again until there are m distinct edges
+        while (size < m) {
+            int missing = m - size;
+            long[] drawn = new long[missing];
+            long roundSeed = mix(seed, round++);
+            chunks(missing).forEach(chunk -> {
+                SplittableRandom rnd = new SplittableRandom(mix(roundSeed, chunk));
+                for (int i = chunk * CHUNK; i < Math.min(missing, (chunk + 1) * CHUNK); ++i) {
+                    int u = rnd.nextInt(n);
+                    int v = rnd.nextInt(n - 1);
+                    drawn[i] = EdgeList.pack(u, v >= u ? v + 1 : v);
+                }
+            });
+            long[] merged = Arrays.copyOf(edges, size + missing);
+            System.arraycopy(drawn, 0, merged, size, missing);
+            Arrays.parallelSort(merged);
+            edges = merged;
+            size = distinct(edges);
+        }
+        return EdgeList.unpack(n, edges, size);
+    }
+
+    /**
+     * Barabasi-Albert preferential attachment: every vertex attaches k edges to the vertices before it,
+     * picked by their degree (Batagelj and Brandes, O(n*k) time) - never the vertex itself, so there are no
+     * self loops. Attachment depends on all the edges before it, so this generator runs on a single thread.
+     * Note: repeated picks make duplicate edges, which loading drops - vertices may end with less than k.
+     *
+     * @param n    the number of vertices
+     * @param k    the number of edges of every new vertex
+     * @param seed
+     * @return
+     */
+    public static EdgeList barabasiAlbert(int n, int k, long seed) {
+        if (n < 0 || k < 1 || (long) n * k > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException(String.format("can not attach %d edges to %d vertices", k, n));
+        }
+        SplittableRandom rnd = new SplittableRandom(seed);
+        //every edge is written to ends as its two ends, picking a uniform entry picks by degree
+        int[] ends = new int[2 * n * k];
+        int edges = 0;
+        for (int v = 1; v < n; ++v) {
+            //only the ends of the edges before the ones of v, all of them are of earlier vertices
+            int before = 2 * edges;
+            for (int i = 0; i < k; ++i) {
+                ends[2 * edges] = v;
+                ends[2 * edges + 1] = before == 0 ? 0 : ends[rnd.nextInt(before)];
+                edges++;
+            }
+        }
+        int[] from = new int[edges];
+        int[] to = new int[edges];
+        for (int i = 0; i < edges; ++i) {
+            from[i] = ends[2 * i];
+            to[i] = ends[2 * i + 1];
+        }
+        return new EdgeList(n, from, to);
+    }
+
+    /**
+     * R-MAT: every edge falls recursively into one of the quadrants of the adjacency matrix,
+     * with the probabilities a, b, c and 1-a-b-c - giving skewed degrees and communities.
+     * Note: the generator makes duplicate edges and self loops, which loading drops.
+     *
+     * @param scale the graph has 2^scale vertices
+     * @param m     the number of edges to generate
+     * @param a     the probability of the top left quadrant
+     * @param b     the probability of the top right quadrant
+     * @param c     the probability of the bottom left quadrant
+     * @param seed
+     * @return
+     */
+    public static EdgeList rmat(int scale, int m, double a, double b, double c, long seed) {
+        if (scale < 0 || scale > 30 || m < 0 || a < 0 || b < 0 || c < 0 || a + b + c > 1) {
+            throw new IllegalArgumentException("invalid R-MAT parameters");
+        }
+        int[] from = new int[m];
+        int[] to = new int[m];
+        chunks(m).forEach(chunk -> {
+            SplittableRandom rnd = new SplittableRandom(mix(seed, chunk));
+            for (int i = chunk * CHUNK; i < Math.min(m, (chunk + 1) * CHUNK); ++i) {
+                int u = 0, v = 0;
+                for (int bit = scale - 1; bit >= 0; --bit) {
+                    double p = rnd.nextDouble();
+                    if (p >= a + b + c) {
+                        u |= 1 << bit;
+                        v |= 1 << bit;
+                    } else if (p >= a + b) {
+                        u |= 1 << bit;
+                    } else if (p >= a) {
+                        v |= 1 << bit;
+                    }
+                }
+                from[i] = u;
+                to[i] = v;
+            }
+        });
+        return new EdgeList(1 << scale, from, to);
+    }
+
+    /**
+     * The Graph500 Kronecker graph: R-MAT with a=0.57, b=c=0.19 and edgeFactor edges per vertex.
+     *
+     * @param scale      the graph has 2^scale vertices
+     * @param edgeFactor the number of edges to generate per vertex
+     * @param seed
+     * @return
+     */
+    public static EdgeList kronecker(int scale, int edgeFactor, long seed) {
+        return rmat(scale, Math.multiplyExact(1 << scale, edgeFactor), KRONECKER_A, KRONECKER_B, KRONECKER_C, seed);
+    }
+
+    /**
+     * A rows x cols grid, vertex r*cols+c is connected to its right and bottom neighbors.
+     *
+     * @param rows at least 1
+     * @param cols at least 1
+     * @return
+     */
+    public static EdgeList grid(int rows, int cols) {
+        if (rows < 1 || cols < 1) {
+            throw new IllegalArgumentException(String.format("no %d x %d grid", rows, cols));
+        }
+        int n = Math.multiplyExact(rows, cols);
+        int m = Math.addExact(Math.multiplyExact(rows, cols - 1), Math.multiplyExact(rows - 1, cols));
+        int[] from = new int[m];
+        int[] to = new int[m];
+        IntStream.range(0, rows).parallel().forEach(r -> {
+            //the rows before r have cols-1 horizontal and cols vertical edges each
+            int e = r * (2 * cols - 1);
+            for (int c = 0; c < cols; ++c) {
+                int v = r * cols + c;
+                if (c + 1 < cols) {
+                    from[e] = v;
+                    to[e++] = v + 1;
+                }
+                if (r + 1 < rows) {
+                    from[e] = v;
+                    to[e++] = v + cols;
+                }
+            }
+        });
+        return new EdgeList(n, from, to);
+    }
+
+    private static IntStream chunks(int size) {
+        return IntStream.range(0, (size + CHUNK - 1) / CHUNK).parallel();
+    }
+
+    /**
+     * Removes the repetitions from a sorted array, in place.
+     *
+     * @return the number of distinct values, which are now at its start.
+     */
+    private static int distinct(long[] sorted) {
+        int k = 0;
+        for (int i = 0; i < sorted.length; ++i) {
+            if (k == 0 || sorted[k - 1] != sorted[i]) {
+                sorted[k++] = sorted[i];
+            }
+        }
+        return k;
+    }
+
+    /**
+     * The SplitMix64 finalizer, to derive independent seeds.
+     */
+    private static long mix(long seed, long salt) {
+        long z = seed + (salt + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,433 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A write-ahead journal of the mutations of an UndirectedGraph, in a directory of two files:
+ * a checkpoint of the whole graph, and the journal of the mutations since it.
+ * The mutations are appended to a buffer in a compact binary form, and written to the journal in batches,
+ * each with its length and CRC-32 - the batches are forced to the disk together (group commit), every
+ * syncMillis or on sync(), so a crash loses the mutations of the last syncMillis at most, and a torn batch
+ * at the end of the journal is detected and dropped.
+ * Recovery (open) loads the checkpoint and replays the journal on it. checkpoint() writes a new checkpoint
+ * and starts an empty journal, so recovery stays fast; the checkpoint and the journal are numbered by
+ * a generation, so a journal older than the checkpoint is never replayed on it.
+ * A mutation is appended before the graph is changed, so a mutation the journal failed on is not done; once
+ * writing the journal failed, every later mutation of the graph fails with an UncheckedIOException too - the
+ * log would have a gap, and memory would run ahead of it.
+ * Note: the node keys, info and edge lengths are kept, the tags and the mode count are not.
+ * The mutations are appended by the writer thread of the graph, sync and the flusher may run on any thread.
+ */
+public class GraphJournal implements AutoCloseable {
+    private static final int MAGIC = 0x474a524e;
+    private static final int VERSION = 1;
+    private static final String CHECKPOINT = "graph.checkpoint";
+    private static final String JOURNAL = "graph.journal";
+    /**
+     * The pending batch is written (but not forced) once it gets this long.
+     */
+    private static final int MAX_BATCH_BYTES = 1 << 16;
+
+    private final Path dir;
+    private final UndirectedGraph graph;
+    private final ScheduledExecutorService flusher;
+    private FileChannel journal;
+    private long generation;
+    private final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(this.batch);
+    /**
+     * The number of batches written to the journal, and of those forced to the disk - forcing is done under
+     * its own lock, so the writer keeps appending meanwhile and every force covers all the batches written
+     * before it, of any number of callers (group commit).
+     */
+    private volatile long written = 0;
+    private long forced = 0;
+    private final Object forceLock = new Object();
+    private volatile IOException failure = null;
+
+    private GraphJournal(Path dir, UndirectedGraph graph, FileChannel journal, long generation, long syncMillis) {
+        this.dir = dir;
+        this.graph = graph;
+        this.journal = journal;
+        this.generation = generation;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "graph-journal-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flush, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Recovers the graph journaled in the given directory (an empty graph if there is none), and journals
+     * its mutations from now on.
+     *
+     * @param dir        the directory of the files, created if missing
+     * @param syncMillis the longest time a mutation waits to be forced to the disk
+     * @return
+     * @throws IOException if the files can not be read or written, or the checkpoint is corrupt
+     */
+    public static GraphJournal open(Path dir, long syncMillis) throws IOException {
+        if (syncMillis <= 0) {
+            throw new IllegalArgumentException("illegal sync interval: " + syncMillis);
+        }
+        Files.createDirectories(dir);
+        UndirectedGraph graph = new UndirectedGraph();
+        long generation = 0;
+        Path checkpoint = dir.resolve(CHECKPOINT);
+        if (Files.exists(checkpoint)) {
+            generation = readCheckpoint(checkpoint, graph);
+        }
+        FileChannel journal = FileChannel.open(dir.resolve(JOURNAL), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long end = replay(journal, generation, graph);
+        if (end < 0) {
+            //no journal of this generation: start one
+            journal.truncate(0);
+            journal.write(header(generation), 0);
+            journal.force(true);
+            end = journal.size();
+        } else {
+            //drop the torn batch, if any
+            journal.truncate(end);
+        }
+        journal.position(end);
+        GraphJournal ans = new GraphJournal(dir, graph, journal, generation, syncMillis);
+        graph.setJournal(ans);
+        return ans;
+    }
+
+    /**
+     * return the recovered graph, whose mutations are journaled.
+     *
+     * @return
+     */
+    public UndirectedGraph graph() {
+        return this.graph;
+    }
+
+    /**
+     * Appends a mutation to the pending batch, with the operation codes of GraphDelta - before the graph
+     * is changed, a full batch is written first so a failure to write it leaves the mutation out.
+     *
+     * @throws UncheckedIOException if writing the journal failed, now or before
+     */
+    synchronized void append(byte op, int node1, int node2, String info, double length) {
+        if (this.failure != null) {
+            throw new UncheckedIOException("the journal failed", this.failure);
+        }
+        try {
+            if (this.batch.size() >= MAX_BATCH_BYTES) {
+                this.writeBatch();
+            }
+            this.out.writeByte(op);
+            this.out.writeInt(node1);
+            switch (op) {
+                case GraphDelta.ADD_NODE:
+                    writeString(this.out, info);
+                    break;
+                case GraphDelta.CONNECT:
+                    this.out.writeInt(node2);
+                    this.out.writeDouble(length);
+                    break;
+                case GraphDelta.REMOVE_EDGE:
+                    this.out.writeInt(node2);
+                    break;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the pending batch to the journal and forces it to the disk, with all the batches before it.
+     *
+     * @throws IOException if the journal can not be written
+     */
+    public void sync() throws IOException {
+        long target;
+        synchronized (this) {
+            if (this.failure != null) {
+                throw this.failure;
+            }
+            this.writeBatch();
+            target = this.written;
+        }
+        synchronized (this.forceLock) {
+            if (this.forced >= target) return;
+            long covered = this.written;
+            try {
+                this.journal.force(false);
+            } catch (IOException e) {
+                this.failure = e;
+                throw e;
+            }
+            this.forced = covered;
+        }
+    }
+
+    private void flush() {
+        if (this.failure != null || !this.journal.isOpen()) return;
+        try {
+            this.sync();
+        } catch (IOException e) {
+            //reported to the next caller of sync
+        }
+    }
+
+    /**
+     * Writes the pending batch as a frame: its length, its CRC-32 and the mutations.
+     * A failure is kept: the frame may be torn, and recovery drops everything after a torn frame.
+     */
+    private void writeBatch() throws IOException {
+        if (this.batch.size() == 0) return;
+        byte[] payload = this.batch.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(8 + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        try {
+            while (frame.hasRemaining()) {
+                this.journal.write(frame);
+            }
+        } catch (IOException e) {
+            this.failure = e;
+            throw e;
+        }
+        this.batch.reset();
+        this.written++;
+    }
+
+    /**
+     * Writes a checkpoint of the graph and starts an empty journal: the checkpoint is written to a temporary
+     * file, forced and renamed over the previous one, so a crash leaves one of the two whole.
+     * Note: like the mutations, this method should be called by the writer thread of the graph.
+     * Note2: this method runs in O(|V|+|E|) time.
+     *
+     * @throws IOException if the files can not be written
+     */
+    public synchronized void checkpoint() throws IOException {
+        this.sync();
+        long next = this.generation + 1;
+        Path tmp = this.dir.resolve(CHECKPOINT + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(
+                    Channels.newOutputStream(channel), crc), 1 << 16));
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeLong(next);
+            data.writeInt(this.graph.nodeSize());
+            int edges = 0;
+            for (INodeData v : this.graph.getV()) {
+                data.writeInt(v.getKey());
+                writeString(data, v.getInfo());
+                for (INodeData u : NodeData.neighborsOf(v)) {
+                    if (v.getKey() <= u.getKey()) edges++;
+                }
+            }
+            data.writeInt(edges);
+            for (INodeData v : this.graph.getV()) {
+                for (INodeData u : NodeData.neighborsOf(v)) {
+                    if (v.getKey() <= u.getKey()) {
+                        data.writeInt(v.getKey());
+                        data.writeInt(u.getKey());
+                        data.writeDouble(this.graph.getEdgeLength(v.getKey(), u.getKey()));
+                    }
+                }
+            }
+            data.flush();
+            data.writeInt((int) crc.getValue());
+            data.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, this.dir.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel directory = FileChannel.open(this.dir, StandardOpenOption.READ)) {
+            //makes the rename durable, where the platform allows forcing a directory
+            directory.force(true);
+        } catch (IOException e) {
+            //the rename is made durable by the file system on its own
+        }
+        //a crash from here on leaves a journal of the previous generation, which recovery ignores
+        this.generation = next;
+        this.journal.truncate(0);
+        this.journal.write(header(next), 0);
+        this.journal.force(true);
+        this.journal.position(this.journal.size());
+    }
+
+    /**
+     * Forces the pending mutations to the disk and stops journaling the graph.
+     *
+     * @throws IOException if the journal can not be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!this.journal.isOpen()) return;
+        this.flusher.shutdown();
+        this.graph.setJournal(null);
+        try {
+            this.sync();
+        } finally {
+            this.journal.close();
+        }
+    }
+
+    /**
+     * Writes a string as its length and UTF-8 bytes, null as the length -1.
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IOException("corrupt string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer header(long generation) {
+        ByteBuffer header = ByteBuffer.allocate(16);
+        header.putInt(MAGIC).putInt(VERSION).putLong(generation).flip();
+        return header;
+    }
+
+    /**
+     * Replays the batches of the journal on the graph, up to the first torn or corrupt one.
+     *
+     * @return the end of the last whole batch, -1 if the journal is not of the given generation.
+     */
+    private static long replay(FileChannel journal, long generation, UndirectedGraph graph) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(journal.position(0)), 1 << 16));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != generation) {
+                return -1;
+            }
+        } catch (EOFException e) {
+            return -1;
+        }
+        long end = 16;
+        List<byte[]> payloads = new ArrayList<>();
+        while (true) {
+            byte[] payload;
+            try {
+                int length = in.readInt();
+                int crc = in.readInt();
+                if (length < 0 || length > journal.size() - end - 8) break;
+                payload = new byte[length];
+                in.readFully(payload);
+                CRC32 check = new CRC32();
+                check.update(payload);
+                if ((int) check.getValue() != crc) break;
+            } catch (EOFException e) {
+                break;
+            }
+            payloads.add(payload);
+            end += 8 + payload.length;
+        }
+        for (byte[] payload : payloads) {
+            replayBatch(new DataInputStream(new ByteArrayInputStream(payload)), payload.length, graph);
+        }
+        return end;
+    }
+
+    private static void replayBatch(DataInputStream in, int length, UndirectedGraph graph) throws IOException {
+        int read = 0;
+        while (read < length) {
+            byte op = in.readByte();
+            int node1 = in.readInt();
+            read += 5;
+            switch (op) {
+                case GraphDelta.ADD_NODE:
+                    String info = readString(in);
+                    read += 4 + (info == null ? 0 : info.getBytes(StandardCharsets.UTF_8).length);
+                    NodeData node = new NodeData(node1);
+                    node.setInfo(info);
+                    graph.addNode(node);
+                    break;
+                case GraphDelta.CONNECT:
+                    graph.connect(node1, in.readInt(), in.readDouble());
+                    read += 12;
+                    break;
+                case GraphDelta.REMOVE_EDGE:
+                    graph.removeEdge(node1, in.readInt());
+                    read += 4;
+                    break;
+                case GraphDelta.REMOVE_NODE:
+                    graph.removeNode(node1);
+                    break;
+                default:
+                    throw new IOException("unknown journal operation: " + op);
+            }
+        }
+    }
+
+    /**
+     * Loads the checkpoint into the (empty) graph.
+     *
+     * @return the generation of the checkpoint.
+     */
+    private static long readCheckpoint(Path checkpoint, UndirectedGraph graph) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream file = Files.newInputStream(checkpoint)) {
+            DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(file, 1 << 16), crc));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not a graph checkpoint: " + checkpoint);
+            }
+            long generation = in.readLong();
+            int nodes = in.readInt();
+            for (int i = 0; i < nodes; ++i) {
+                NodeData node = new NodeData(in.readInt());
+                node.setInfo(readString(in));
+                graph.addNode(node);
+            }
+            int edges = in.readInt();
+            for (int i = 0; i < edges; ++i) {
+                graph.connect(in.readInt(), in.readInt(), in.readDouble());
+            }
+            int expected = (int) crc.getValue();
+            if (in.readInt() != expected) {
+                throw new IOException("corrupt graph checkpoint: " + checkpoint);
+            }
+            return generation;
+        }
+    }
+}
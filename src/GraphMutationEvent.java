@@ -0,0 +1,53 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event of a single UndirectedGraph mutation.
+ * Disabled by default since a busy graph changes far too often to record every mutation,
+ * GraphMutationSummaryEvent summarizes them instead.
+ */
+@Name("graphs.GraphMutation")
+@Label("Graph Mutation")
+@Category("Graphs")
+@Description("A single mutation of an UndirectedGraph")
+@Enabled(false)
+@StackTrace(false)
+public class GraphMutationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Node 1")
+    int node1;
+
+    @Label("Node 2")
+    @Description("The second end of the edge, -1 for node operations")
+    int node2;
+
+    @Label("Edges Removed")
+    @Description("The number of edges removed with the node, for removeNode")
+    int edgesRemoved;
+
+    @Label("Mode Count")
+    int modeCount;
+
+    /**
+     * Records a mutation, and counts it for the next GraphMutationSummaryEvent if the summary is recorded.
+     */
+    static void emit(String operation, int node1, int node2, int edgesRemoved, int modeCount) {
+        GraphMutationSummaryEvent.count(operation);
+        GraphMutationEvent event = new GraphMutationEvent();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.node1 = node1;
+            event.node2 = node2;
+            event.edgesRemoved = edgesRemoved;
+            event.modeCount = modeCount;
+            event.commit();
+        }
+    }
+}
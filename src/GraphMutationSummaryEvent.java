@@ -0,0 +1,79 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A periodic Flight Recorder event summarizing all the UndirectedGraph mutations of the period,
+ * of all the graphs in the JVM.
+ */
+@Name("graphs.GraphMutationSummary")
+@Label("Graph Mutation Summary")
+@Category("Graphs")
+@Description("The number of graph mutations since the previous summary")
+@Period("1 s")
+@StackTrace(false)
+public class GraphMutationSummaryEvent extends Event {
+    private static final LongAdder NODES_ADDED = new LongAdder();
+    private static final LongAdder NODES_REMOVED = new LongAdder();
+    private static final LongAdder EDGES_ADDED = new LongAdder();
+    private static final LongAdder EDGES_REMOVED = new LongAdder();
+    private static final EventType TYPE = EventType.getEventType(GraphMutationSummaryEvent.class);
+
+    static {
+        FlightRecorder.addPeriodicEvent(GraphMutationSummaryEvent.class, GraphMutationSummaryEvent::emit);
+    }
+
+    @Label("Nodes Added")
+    long nodesAdded;
+
+    @Label("Nodes Removed")
+    long nodesRemoved;
+
+    @Label("Edges Added")
+    long edgesAdded;
+
+    @Label("Edges Removed")
+    @Description("Including the edges removed with their nodes")
+    long edgesRemoved;
+
+    /**
+     * Counts a mutation, a removed node is counted apart from its edges - they are removed one by one.
+     * Nothing is counted while the summary is not recorded.
+     */
+    static void count(String operation) {
+        if (!TYPE.isEnabled()) {
+            return;
+        }
+        switch (operation) {
+            case "addNode":
+                NODES_ADDED.increment();
+                break;
+            case "connect":
+                EDGES_ADDED.increment();
+                break;
+            case "removeEdge":
+                EDGES_REMOVED.increment();
+                break;
+            case "removeNode":
+                NODES_REMOVED.increment();
+                break;
+        }
+    }
+
+    private static void emit() {
+        GraphMutationSummaryEvent event = new GraphMutationSummaryEvent();
+        event.nodesAdded = NODES_ADDED.sumThenReset();
+        event.nodesRemoved = NODES_REMOVED.sumThenReset();
+        event.edgesAdded = EDGES_ADDED.sumThenReset();
+        event.edgesRemoved = EDGES_REMOVED.sumThenReset();
+        event.commit();
+    }
+}
@@ -0,0 +1,258 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A partition of a partitioned graph (see PartitionedGraph): it holds some of the vertices, with the keys and
+ * partitions of all their neighbors, and runs its share of the level synchronous BFS of the coordinator.
+ * Every level the partition expands its frontier: the neighbors it holds are visited at once, the others are
+ * sent to the partitions holding them in one batch per partition - every key at most once a search, the
+ * partition holding it visits it then - and then it visits the batches sent to it and reports the size of its
+ * next frontier to the coordinator.
+ * The partition is an endpoint of a transport, the coordinator is the last endpoint; it runs in its own
+ * process (see main) or thread until the coordinator shuts it down.
+ */
+public final class GraphPartition {
+    static final int LOAD = 1;
+    static final int READY = 2;
+    static final int START = 3;
+    static final int STEP = 4;
+    static final int FRONTIER = 5;
+    static final int REPORT = 6;
+    static final int SHUTDOWN = 7;
+    private static final long CONNECT_TIMEOUT_MILLIS = 60000;
+    private final IPartitionTransport transport;
+    private final int coordinator;
+    /**
+     * The keys of the vertices of this partition, sorted - a vertex is its index here.
+     */
+    private int[] keys = new int[0];
+    private int[] offsets = {0};
+    private int[] neighborKeys = new int[0];
+    private int[] neighborPartitions = new int[0];
+    /**
+     * The index of every neighbor: of the vertex for a neighbor held here, else of its key in remoteKeys.
+     */
+    private int[] neighborIndices = new int[0];
+    /**
+     * The keys of the neighbors held by other partitions, sorted, and the number of the search which sent
+     * every one of them.
+     */
+    private int[] remoteKeys = new int[0];
+    private int[] sent = new int[0];
+    /**
+     * The number of the search which visited every vertex.
+     */
+    private int[] visited = new int[0];
+    private int search = 0;
+    private int[] frontier = new int[0];
+    private int frontierSize = 0;
+    private int[] next = new int[0];
+    private int nextSize = 0;
+    private int destination = -1;
+    private boolean found = false;
+    /**
+     * The batch of frontier keys to every partition, after its message header.
+     */
+    private final int[][] outgoing;
+    private final int[] outgoingSize;
+
+    public GraphPartition(IPartitionTransport transport) {
+        this.transport = transport;
+        this.coordinator = transport.endpoints() - 1;
+        this.outgoing = new int[this.coordinator][];
+        this.outgoingSize = new int[this.coordinator];
+        for (int p = 0; p < this.coordinator; ++p) {
+            this.outgoing[p] = new int[16];
+        }
+    }
+
+    /**
+     * Runs the messages of the coordinator until it shuts this partition down, then closes the transport.
+     *
+     * @throws IOException if the transport failed
+     */
+    public void serve() throws IOException {
+        try {
+            while (true) {
+                int[] message = this.transport.receive(this.coordinator);
+                switch (message[0]) {
+                    case LOAD:
+                        this.load(message);
+                        break;
+                    case START:
+                        this.start(message);
+                        break;
+                    case STEP:
+                        this.step();
+                        break;
+                    case SHUTDOWN:
+                        return;
+                    default:
+                        throw new IOException("unknown message: " + message[0]);
+                }
+            }
+        } finally {
+            this.transport.close();
+        }
+    }
+
+    /**
+     * [LOAD, n, entries, keys (n, sorted), degrees (n), neighbor keys (entries), neighbor partitions (entries)]
+     */
+    private void load(int[] message) throws IOException {
+        int n = message[1];
+        int entries = message[2];
+        int at = 3;
+        this.keys = Arrays.copyOfRange(message, at, at + n);
+        at += n;
+        this.offsets = new int[n + 1];
+        for (int v = 0; v < n; ++v) {
+            this.offsets[v + 1] = this.offsets[v] + message[at + v];
+        }
+        at += n;
+        this.neighborKeys = Arrays.copyOfRange(message, at, at + entries);
+        at += entries;
+        this.neighborPartitions = Arrays.copyOfRange(message, at, at + entries);
+        int self = this.transport.self();
+        int[] remote = new int[entries];
+        int remoteCount = 0;
+        for (int e = 0; e < entries; ++e) {
+            if (this.neighborPartitions[e] != self) remote[remoteCount++] = this.neighborKeys[e];
+        }
+        Arrays.sort(remote, 0, remoteCount);
+        int distinct = 0;
+        for (int i = 0; i < remoteCount; ++i) {
+            if (distinct == 0 || remote[i] != remote[distinct - 1]) remote[distinct++] = remote[i];
+        }
+        this.remoteKeys = Arrays.copyOf(remote, distinct);
+        this.sent = new int[distinct];
+        this.neighborIndices = new int[entries];
+        for (int e = 0; e < entries; ++e) {
+            this.neighborIndices[e] = this.neighborPartitions[e] == self
+                    ? this.indexOf(this.neighborKeys[e])
+                    : Arrays.binarySearch(this.remoteKeys, this.neighborKeys[e]);
+        }
+        this.visited = new int[n];
+        this.search = 0;
+        this.frontier = new int[n];
+        this.next = new int[n];
+        this.transport.send(this.coordinator, new int[]{READY, n});
+    }
+
+    /**
+     * [START, source key, 1 if there is a destination, destination key]
+     */
+    private void start(int[] message) {
+        if (++this.search == 0) {
+            //the numbers wrapped around, the old marks could be taken for the new ones
+            Arrays.fill(this.visited, 0);
+            Arrays.fill(this.sent, 0);
+            this.search = 1;
+        }
+        this.frontierSize = 0;
+        this.nextSize = 0;
+        this.found = false;
+        int src = this.indexOf(message[1]);
+        if (src != -1) {
+            this.visited[src] = this.search;
+            this.frontier[this.frontierSize++] = src;
+        }
+        this.destination = message[2] == 1 ? this.indexOf(message[3]) : -1;
+    }
+
+    /**
+     * Expands the frontier by a level, and reports [REPORT, next frontier size, 1 if the destination was
+     * reached, keys sent to other partitions].
+     */
+    private void step() throws IOException {
+        int self = this.transport.self();
+        long sent = 0;
+        for (int i = 0; i < this.frontierSize; ++i) {
+            int u = this.frontier[i];
+            for (int e = this.offsets[u]; e < this.offsets[u + 1]; ++e) {
+                int owner = this.neighborPartitions[e];
+                int index = this.neighborIndices[e];
+                if (owner == self) {
+                    this.visit(index);
+                } else if (this.sent[index] != this.search) {
+                    this.sent[index] = this.search;
+                    this.enqueue(owner, this.neighborKeys[e]);
+                }
+            }
+        }
+        for (int p = 0; p < this.coordinator; ++p) {
+            if (p == self) continue;
+            //an empty batch too, the partition waits for one from every other partition
+            int[] batch = Arrays.copyOf(this.outgoing[p], this.outgoingSize[p] + 1);
+            batch[0] = FRONTIER;
+            sent += this.outgoingSize[p];
+            this.outgoingSize[p] = 0;
+            this.transport.send(p, batch);
+        }
+        for (int p = 0; p < this.coordinator; ++p) {
+            if (p == self) continue;
+            int[] batch = this.transport.receive(p);
+            if (batch[0] != FRONTIER) {
+                throw new IOException("expected a frontier from partition " + p + ", got " + batch[0]);
+            }
+            for (int i = 1; i < batch.length; ++i) {
+                this.visit(this.indexOf(batch[i]));
+            }
+        }
+        int[] swap = this.frontier;
+        this.frontier = this.next;
+        this.frontierSize = this.nextSize;
+        this.next = swap;
+        this.nextSize = 0;
+        this.transport.send(this.coordinator,
+                new int[]{REPORT, this.frontierSize, this.found ? 1 : 0, (int) Math.min(sent, Integer.MAX_VALUE)});
+    }
+
+    private void visit(int v) {
+        if (v < 0 || this.visited[v] == this.search) return;
+        this.visited[v] = this.search;
+        this.next[this.nextSize++] = v;
+        if (v == this.destination) {
+            this.found = true;
+        }
+    }
+
+    private void enqueue(int partition, int key) {
+        int[] batch = this.outgoing[partition];
+        //the batch starts at 1, after the message header
+        int size = ++this.outgoingSize[partition];
+        if (size == batch.length) {
+            batch = Arrays.copyOf(batch, 2 * batch.length);
+            this.outgoing[partition] = batch;
+        }
+        batch[size] = key;
+    }
+
+    private int indexOf(int key) {
+        int index = Arrays.binarySearch(this.keys, key);
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * Runs a partition in its own process, connected over sockets (see PartitionedGraph.launch).
+     *
+     * @param args the number of this partition, then host:port of every endpoint, the coordinator last
+     * @throws IOException if the transport failed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("usage: GraphPartition <partition> <host:port of every endpoint, the coordinator last>");
+            System.exit(2);
+        }
+        int self = Integer.parseInt(args[0]);
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int i = 1; i < args.length; ++i) {
+            int colon = args[i].lastIndexOf(':');
+            addresses.add(new InetSocketAddress(args[i].substring(0, colon), Integer.parseInt(args[i].substring(colon + 1))));
+        }
+        new GraphPartition(SocketTransport.open(self, addresses, CONNECT_TIMEOUT_MILLIS)).serve();
+    }
+}
@@ -0,0 +1,44 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event of a single GraphAlgorithms query, with its duration.
+ * Like the I/O events of the JDK, only the queries slower than 20 ms are recorded by default - a recording
+ * can lower the threshold to see them all.
+ */
+@Name("graphs.GraphQuery")
+@Label("Graph Query")
+@Category("Graphs")
+@Description("A single query of GraphAlgorithms")
+@StackTrace(false)
+@Threshold("20 ms")
+public class GraphQueryEvent extends Event {
+    @Label("Query")
+    String query;
+
+    @Label("Algorithm")
+    @Description("The planner strategy which answered a path query (CACHED_TREE, BFS, BIDIRECTIONAL_BFS, ...), "
+            + "else the algorithm of the query: components, brandes, pagerank, kruskal...")
+    String algorithm;
+
+    @Label("Source")
+    int source;
+
+    @Label("Destination")
+    int destination;
+
+    @Label("Nodes Visited")
+    long nodesVisited;
+
+    @Label("Cache Hit")
+    boolean cacheHit;
+
+    @Label("Result")
+    @Description("The distance for path queries, 1/0 for isConnected, the number of components")
+    long result;
+}
@@ -0,0 +1,223 @@
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * An embedded service running GraphAlgorithms queries, each on its own (virtual, when the JVM has them) thread.
+ * At most maxConcurrent queries run at once and at most maxQueued wait for their turn - a query beyond
+ * that is shed at once with RejectedExecutionException rather than growing the backlog.
+ * Every query has a deadline: once it passes the query fails with TimeoutException and its thread is
+ * interrupted, which the traversals of GraphAlgorithms check while running.
+ * Note: the queries run concurrently, so the algorithms should be bound to an immutable graph
+ * (a GraphSnapshot, or the current version of a VersionedGraph).
+ */
+public class GraphQueryService implements AutoCloseable {
+    /**
+     * The states of a submitted query: waiting for its thread, running (its slot is released when it ends),
+     * or released before it started - a query whose result completed first (by its deadline or a cancel)
+     * never runs, maybe not even its thread.
+     */
+    private static final int QUEUED = 0;
+    private static final int STARTED = 1;
+    private static final int RELEASED = 2;
+    private final Supplier<GraphAlgorithms> algorithms;
+    private final Semaphore running;
+    private final int maxPending;
+    private final Duration defaultDeadline;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ExecutorService executor = newExecutor();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "graph-query-deadlines");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    /**
+     * @param algorithms      the algorithms of an immutable graph
+     * @param maxConcurrent   the maximal number of queries running at once
+     * @param maxQueued       the maximal number of queries waiting to run
+     * @param defaultDeadline the deadline of queries submitted without one
+     */
+    public GraphQueryService(GraphAlgorithms algorithms, int maxConcurrent, int maxQueued, Duration defaultDeadline) {
+        this(() -> algorithms, maxConcurrent, maxQueued, defaultDeadline);
+    }
+
+    /**
+     * Runs every query on the version of the graph which is current when the query starts.
+     *
+     * @param graph
+     * @param maxConcurrent   the maximal number of queries running at once
+     * @param maxQueued       the maximal number of queries waiting to run
+     * @param defaultDeadline the deadline of queries submitted without one
+     */
+    public GraphQueryService(VersionedGraph graph, int maxConcurrent, int maxQueued, Duration defaultDeadline) {
+        this(graph::algorithms, maxConcurrent, maxQueued, defaultDeadline);
+    }
+
+    private GraphQueryService(Supplier<GraphAlgorithms> algorithms, int maxConcurrent, int maxQueued,
+                              Duration defaultDeadline) {
+        if (maxConcurrent <= 0 || maxQueued < 0) {
+            throw new IllegalArgumentException("maxConcurrent must be positive and maxQueued non-negative");
+        }
+        this.algorithms = algorithms;
+        this.running = new Semaphore(maxConcurrent);
+        this.maxPending = maxConcurrent + maxQueued;
+        this.defaultDeadline = defaultDeadline;
+    }
+
+    private static ExecutorService newExecutor() {
+        try {
+            //a virtual thread per query, on Java 21+
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "graph-query");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public CompletableFuture<Integer> shortestPathDist(int src, int dest) {
+        return this.shortestPathDist(src, dest, this.defaultDeadline);
+    }
+
+    public CompletableFuture<Integer> shortestPathDist(int src, int dest, Duration deadline) {
+        return this.submit(() -> this.algorithms.get().shortestPathDist(src, dest), deadline);
+    }
+
+    public CompletableFuture<Double> shortestPathLength(int src, int dest) {
+        return this.shortestPathLength(src, dest, this.defaultDeadline);
+    }
+
+    public CompletableFuture<Double> shortestPathLength(int src, int dest, Duration deadline) {
+        return this.submit(() -> this.algorithms.get().shortestPathLength(src, dest), deadline);
+    }
+
+    public CompletableFuture<List<INodeData>> shortestPath(int src, int dest) {
+        return this.shortestPath(src, dest, this.defaultDeadline);
+    }
+
+    public CompletableFuture<List<INodeData>> shortestPath(int src, int dest, Duration deadline) {
+        return this.submit(() -> this.algorithms.get().shortestPath(src, dest), deadline);
+    }
+
+    public CompletableFuture<Boolean> isConnected() {
+        return this.isConnected(this.defaultDeadline);
+    }
+
+    public CompletableFuture<Boolean> isConnected(Duration deadline) {
+        return this.submit(() -> this.algorithms.get().isConnected(), deadline);
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> query, Duration deadline) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (this.pending.incrementAndGet() > this.maxPending) {
+            this.pending.decrementAndGet();
+            this.shed.increment();
+            result.completeExceptionally(new RejectedExecutionException("the query backlog is full"));
+            return result;
+        }
+        long deadlineNanos = System.nanoTime() + deadline.toNanos();
+        AtomicInteger state = new AtomicInteger(QUEUED);
+        Future<?> task;
+        try {
+            task = this.executor.submit(() -> this.run(query, result, deadlineNanos, state));
+        } catch (RejectedExecutionException e) {
+            //the service is closed
+            this.pending.decrementAndGet();
+            result.completeExceptionally(e);
+            return result;
+        }
+        ScheduledFuture<?> timeout = this.timer.schedule(() -> {
+            if (result.completeExceptionally(new TimeoutException("the query deadline passed"))) {
+                this.timedOut.increment();
+                task.cancel(true);
+            }
+        }, deadline.toNanos(), TimeUnit.NANOSECONDS);
+        result.whenComplete((value, error) -> {
+            timeout.cancel(false);
+            if (state.compareAndSet(QUEUED, RELEASED)) {
+                //the task may be cancelled before it runs, then run never releases the slot
+                this.pending.decrementAndGet();
+            }
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private <T> void run(Callable<T> query, CompletableFuture<T> result, long deadlineNanos, AtomicInteger state) {
+        if (!state.compareAndSet(QUEUED, STARTED)) {
+            //the result is complete and the slot released already
+            return;
+        }
+        try {
+            if (!this.running.tryAcquire(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return;
+            }
+            try {
+                if (!result.isDone()) {
+                    result.complete(query.call());
+                    this.completed.increment();
+                }
+            } finally {
+                this.running.release();
+            }
+        } catch (InterruptedException | CancellationException e) {
+            result.completeExceptionally(new CancellationException("the query was interrupted"));
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        } finally {
+            this.pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * return the number of queries running or waiting to run.
+     *
+     * @return
+     */
+    public int getPending() {
+        return this.pending.get();
+    }
+
+    public long getCompleted() {
+        return this.completed.sum();
+    }
+
+    public long getShed() {
+        return this.shed.sum();
+    }
+
+    public long getTimedOut() {
+        return this.timedOut.sum();
+    }
+
+    /**
+     * Stops the service, interrupting the running queries.
+     */
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+        this.timer.shutdownNow();
+    }
+}
@@ -0,0 +1,133 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streams a textual form of a graph into an Appendable (a Writer, a StringBuilder, a log stream...).
+ * Nothing is built in memory: the vertices and the edges are written while the graph is iterated,
+ * so rendering runs in O(|V|+|E|) time and constant extra memory - except the adjacency matrix,
+ * which is O(|V|^2) by nature and meant for small graphs only.
+ */
+public final class GraphRenderer {
+    private static final int EDGES_PER_LINE = 10;
+
+    private GraphRenderer() {
+    }
+
+    /**
+     * Writes the keys of all the vertices: V={0, 1, 2}
+     *
+     * @param g
+     * @param out
+     * @throws IOException
+     */
+    public static void writeVertices(IGraph g, Appendable out) throws IOException {
+        out.append("V={");
+        String separator = "";
+        for (INodeData v : g.getV()) {
+            out.append(separator).append(Integer.toString(v.getKey()));
+            separator = ", ";
+        }
+        out.append('}');
+    }
+
+    /**
+     * Writes every edge once, ten edges per line: E={{0,1}, {0,2}}
+     *
+     * @param g
+     * @param out
+     * @throws IOException
+     */
+    public static void writeEdges(IGraph g, Appendable out) throws IOException {
+        out.append("E={");
+        int k = 0;
+        for (INodeData v : g.getV()) {
+            for (INodeData u : NodeData.neighborsOf(v)) {
+                if (v.getKey() > u.getKey()) continue;
+                if (k > 0) {
+                    out.append(k % EDGES_PER_LINE == 0 ? ",\n\t" : ", ");
+                }
+                out.append('{').append(Integer.toString(v.getKey())).append(',')
+                        .append(Integer.toString(u.getKey())).append('}');
+                k++;
+            }
+        }
+        out.append('}');
+    }
+
+    /**
+     * Writes the sparse adjacency of all the vertices, a line per vertex: 4: 0 1 3
+     *
+     * @param g
+     * @param out
+     * @throws IOException
+     */
+    public static void writeAdjacency(IGraph g, Appendable out) throws IOException {
+        writeAdjacency(g, out, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes a page of the sparse adjacency: the lines of at most limit vertices,
+     * after skipping the first offset vertices (in the iteration order of getV()).
+     *
+     * @param g
+     * @param out
+     * @param offset the number of vertices to skip
+     * @param limit  the maximal number of vertices to write
+     * @return the number of vertices written, less than limit iff it is the last page.
+     * @throws IOException
+     */
+    public static int writeAdjacency(IGraph g, Appendable out, int offset, int limit) throws IOException {
+        int skipped = 0;
+        int written = 0;
+        for (INodeData v : g.getV()) {
+            if (written == limit) break;
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            out.append(Integer.toString(v.getKey())).append(':');
+            for (INodeData u : NodeData.neighborsOf(v)) {
+                out.append(' ').append(Integer.toString(u.getKey()));
+            }
+            out.append('\n');
+            written++;
+        }
+        return written;
+    }
+
+    /**
+     * Writes the adjacency matrix, with t/f cells and the sorted keys as headers.
+     * Note: the matrix has |V|^2 cells, this is meant for small graphs only.
+     *
+     * @param g
+     * @param out
+     * @throws IOException
+     */
+    public static void writeMatrix(IGraph g, Appendable out) throws IOException {
+        int[] keys = new int[g.nodeSize()];
+        int k = 0;
+        for (INodeData v : g.getV()) {
+            keys[k++] = v.getKey();
+        }
+        Arrays.sort(keys);
+        String separator = "\n" + "----".repeat(keys.length + 1) + "\n";
+        for (int i = -1; i < keys.length; ++i) {
+            if (i >= 0) {
+                out.append(separator);
+            }
+            for (int j = -1; j < keys.length; ++j) {
+                String cell;
+                if (i == -1 && j == -1) {
+                    cell = " ";
+                } else if (i == -1) {
+                    cell = Integer.toString(keys[j]);
+                } else if (j == -1) {
+                    cell = Integer.toString(keys[i]);
+                } else {
+                    cell = g.hasEdge(keys[i], keys[j]) ? "t" : "f";
+                }
+                out.append(' ').append(cell).append(j == keys.length - 1 ? " " : "| ");
+            }
+        }
+    }
+}
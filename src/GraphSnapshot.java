@@ -0,0 +1,376 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable point-in-time copy of a graph.
+ * Every vertex is kept in the slot of its node key with a sorted array of its neighbors keys,
+ * snapshots of the same UndirectedGraph share the arrays of all the vertices which did not change
+ * between them (see UndirectedGraph.snapshot()).
+ * The lengths of the edges are kept next to the neighbors, only for the vertices with an edge whose
+ * length is not 1.
+ * A snapshot can be read by any number of threads, the nodes it returns are immutable.
+ */
+public class GraphSnapshot extends AbstractGraphView {
+    private final int[][] adjacency;
+    /**
+     * The lengths of the edges in the order of adjacency, null for a vertex whose edges are all of
+     * length 1 and for the whole array when every edge is.
+     */
+    private final double[][] lengths;
+    private final String[] info;
+    private final int vertexCount;
+    private final int edgeCount;
+    private final int maxDegree;
+    private final int modeCount;
+
+    private GraphSnapshot(int[][] adjacency, double[][] lengths, String[] info, int vertexCount, int modeCount) {
+        this.adjacency = adjacency;
+        boolean weighted = false;
+        for (int v = 0; lengths != null && v < lengths.length && !weighted; ++v) {
+            weighted = lengths[v] != null;
+        }
+        this.lengths = weighted ? lengths : null;
+        this.info = info;
+        this.vertexCount = vertexCount;
+        this.modeCount = modeCount;
+        long degrees = 0;
+        int maxDegree = 0;
+        for (int[] ni : adjacency) {
+            if (ni != null) {
+                degrees += ni.length;
+                maxDegree = Math.max(maxDegree, ni.length);
+            }
+        }
+        this.edgeCount = (int) (degrees / 2);
+        this.maxDegree = maxDegree;
+    }
+
+    /**
+     * Copies the given graph.
+     * Note: this method runs in O(|V|+|E|) time.
+     *
+     * @param g
+     * @return
+     */
+    public static GraphSnapshot of(IGraph g) {
+        return of(g, null, null);
+    }
+
+    /**
+     * Copies the given graph, reusing the adjacency of the previous snapshot for every vertex
+     * which is not in changed.
+     */
+    static GraphSnapshot of(IGraph g, GraphSnapshot previous, Set<Integer> changed) {
+        int capacity = 0;
+        for (INodeData v : g.getV()) {
+            if (v.getKey() < 0) {
+                throw new IllegalArgumentException("negative node key: " + v.getKey());
+            }
+            capacity = Math.max(capacity, v.getKey() + 1);
+        }
+        int[][] adjacency = new int[capacity][];
+        //an UndirectedGraph knows if it has lengths, any other graph is asked for the length of every edge
+        boolean weighted = !(g instanceof UndirectedGraph) || ((UndirectedGraph) g).isWeighted();
+        double[][] lengths = weighted ? new double[capacity][] : null;
+        String[] info = new String[capacity];
+        for (INodeData v : g.getV()) {
+            int key = v.getKey();
+            if (previous != null && previous.contains(key) && !changed.contains(key)) {
+                adjacency[key] = previous.adjacency[key];
+                if (weighted && previous.lengths != null) {
+                    lengths[key] = previous.lengths[key];
+                }
+            } else {
+                adjacency[key] = freeze(g, g.getV(key));
+                if (weighted) {
+                    lengths[key] = lengthsOf(g, key, adjacency[key]);
+                }
+            }
+            info[key] = v.getInfo();
+        }
+        return new GraphSnapshot(adjacency, lengths, info, g.nodeSize(), g.getMC());
+    }
+
+    /**
+     * Builds a snapshot of vertices 0..adjacency.length-1, keyed by their index, from their neighbors.
+     * The arrays are taken over: they are sorted and stripped of duplicates and self loops in parallel.
+     */
+    static GraphSnapshot of(int[][] adjacency) {
+        IntStream.range(0, adjacency.length).parallel().forEach(v -> {
+            int[] ni = adjacency[v];
+            Arrays.sort(ni);
+            int k = 0;
+            for (int i = 0; i < ni.length; ++i) {
+                if (ni[i] != v && (k == 0 || ni[k - 1] != ni[i])) {
+                    ni[k++] = ni[i];
+                }
+            }
+            adjacency[v] = k == ni.length ? ni : Arrays.copyOf(ni, k);
+        });
+        return new GraphSnapshot(adjacency, null, new String[adjacency.length], adjacency.length, 0);
+    }
+
+    /**
+     * Returns a new snapshot with the mutations of the delta applied, in order, the same way
+     * UndirectedGraph applies them. This snapshot is not changed and the new one shares with it
+     * the adjacency of every vertex the delta did not touch.
+     * The edges keep their lengths unless the delta sets them, a new edge of no length gets the length 1.
+     * Note: this method runs in O(capacity) plus the degrees of the touched vertices.
+     *
+     * @param delta
+     * @return
+     */
+    public GraphSnapshot apply(GraphDelta delta) {
+        int capacity = this.capacity();
+        for (int i = 0; i < delta.size(); ++i) {
+            if (delta.op(i) == GraphDelta.ADD_NODE) {
+                if (delta.first(i) < 0) {
+                    throw new IllegalArgumentException("negative node key: " + delta.first(i));
+                }
+                capacity = Math.max(capacity, delta.first(i) + 1);
+            }
+        }
+        int[][] adjacency = Arrays.copyOf(this.adjacency, capacity);
+        String[] info = Arrays.copyOf(this.info, capacity);
+        //the touched vertices are edited as sets, null marks a removed vertex
+        Map<Integer, Set<Integer>> touched = new HashMap<>();
+        //the lengths set by the delta, the edges connected anew do not keep the length of a removed edge
+        Map<Long, Double> assigned = new HashMap<>();
+        int vertexCount = this.vertexCount;
+        int modeCount = this.modeCount;
+        for (int i = 0; i < delta.size(); ++i) {
+            int a = delta.first(i);
+            int b = delta.second(i);
+            switch (delta.op(i)) {
+                case GraphDelta.ADD_NODE:
+                    if (!isVertex(adjacency, touched, a)) {
+                        touched.put(a, new HashSet<>());
+                        info[a] = delta.info(i);
+                        vertexCount++;
+                        modeCount++;
+                    }
+                    break;
+                case GraphDelta.CONNECT:
+                    if (isVertex(adjacency, touched, a) && isVertex(adjacency, touched, b)) {
+                        double length = delta.length(i);
+                        long edge = EdgeList.pack(a, b);
+                        if (edit(adjacency, touched, a).add(b)) {
+                            edit(adjacency, touched, b).add(a);
+                            assigned.put(edge, Double.isNaN(length) ? 1 : length);
+                            modeCount++;
+                        } else if (!Double.isNaN(length) && assigned.getOrDefault(edge, this.getEdgeLength(a, b)) != length) {
+                            edit(adjacency, touched, b);
+                            assigned.put(edge, length);
+                            modeCount++;
+                        }
+                    }
+                    break;
+                case GraphDelta.REMOVE_EDGE:
+                    if (isVertex(adjacency, touched, a) && isVertex(adjacency, touched, b)
+                            && edit(adjacency, touched, a).remove(b)) {
+                        edit(adjacency, touched, b).remove(a);
+                        modeCount++;
+                    }
+                    break;
+                case GraphDelta.REMOVE_NODE:
+                    if (isVertex(adjacency, touched, a)) {
+                        for (int neighbor : edit(adjacency, touched, a)) {
+                            if (neighbor != a) edit(adjacency, touched, neighbor).remove(a);
+                        }
+                        touched.put(a, null);
+                        info[a] = null;
+                        vertexCount--;
+                        modeCount++;
+                    }
+                    break;
+            }
+        }
+        boolean weighted = this.lengths != null;
+        for (double length : assigned.values()) {
+            weighted |= length != 1;
+        }
+        double[][] lengths = !weighted ? null
+                : this.lengths == null ? new double[capacity][] : Arrays.copyOf(this.lengths, capacity);
+        for (Map.Entry<Integer, Set<Integer>> vertex : touched.entrySet()) {
+            int key = vertex.getKey();
+            Set<Integer> ni = vertex.getValue();
+            adjacency[key] = ni == null ? null : ni.stream().mapToInt(Integer::intValue).sorted().toArray();
+            if (lengths != null) {
+                lengths[key] = ni == null ? null : this.keptLengths(key, adjacency[key], assigned);
+            }
+        }
+        return new GraphSnapshot(adjacency, lengths, info, vertexCount, modeCount);
+    }
+
+    /**
+     * return the lengths of the new neighbors of the given vertex, those the delta set and those of its
+     * edges in this snapshot, null if all are 1.
+     */
+    private double[] keptLengths(int key, int[] ni, Map<Long, Double> assigned) {
+        double[] old = this.lengths != null && key < this.lengths.length ? this.lengths[key] : null;
+        double[] lengths = new double[ni.length];
+        boolean weighted = false;
+        for (int i = 0; i < ni.length; ++i) {
+            Double length = assigned.get(EdgeList.pack(key, ni[i]));
+            if (length == null) {
+                int j = old == null ? -1 : Arrays.binarySearch(this.adjacency[key], ni[i]);
+                length = j >= 0 ? old[j] : 1;
+            }
+            lengths[i] = length;
+            weighted |= length != 1;
+        }
+        return weighted ? lengths : null;
+    }
+
+    private static boolean isVertex(int[][] adjacency, Map<Integer, Set<Integer>> touched, int key) {
+        if (touched.containsKey(key)) {
+            return touched.get(key) != null;
+        }
+        return key >= 0 && key < adjacency.length && adjacency[key] != null;
+    }
+
+    private static Set<Integer> edit(int[][] adjacency, Map<Integer, Set<Integer>> touched, int key) {
+        Set<Integer> ni = touched.get(key);
+        if (ni == null) {
+            ni = new HashSet<>();
+            for (int neighbor : adjacency[key]) {
+                ni.add(neighbor);
+            }
+            touched.put(key, ni);
+        }
+        return ni;
+    }
+
+    private static int[] freeze(IGraph g, Collection<INodeData> ni) {
+        int[] keys = new int[ni.size()];
+        int k = 0;
+        for (INodeData u : ni) {
+            if (g.getNode(u.getKey()) != null) {
+                keys[k++] = u.getKey();
+            }
+        }
+        keys = k == keys.length ? keys : Arrays.copyOf(keys, k);
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /**
+     * return the lengths of the edges to the given neighbors, null if all are 1.
+     */
+    private static double[] lengthsOf(IGraph g, int key, int[] ni) {
+        double[] lengths = null;
+        for (int i = 0; i < ni.length; ++i) {
+            double length = g.getEdgeLength(key, ni[i]);
+            if (length != 1 && lengths == null) {
+                lengths = new double[ni.length];
+                Arrays.fill(lengths, 0, i, 1.0);
+            }
+            if (lengths != null) lengths[i] = length;
+        }
+        return lengths;
+    }
+
+    @Override
+    public int capacity() {
+        return this.adjacency.length;
+    }
+
+    @Override
+    public boolean contains(int index) {
+        return index >= 0 && index < this.adjacency.length && this.adjacency[index] != null;
+    }
+
+    @Override
+    public int vertexCount() {
+        return this.vertexCount;
+    }
+
+    @Override
+    public int edgeCount() {
+        return this.edgeCount;
+    }
+
+    @Override
+    public int keyOf(int index) {
+        return index;
+    }
+
+    @Override
+    public int indexOf(int key) {
+        return this.contains(key) ? key : -1;
+    }
+
+    @Override
+    public int degree(int index) {
+        return this.adjacency[index].length;
+    }
+
+    @Override
+    public int maxDegree() {
+        return this.maxDegree;
+    }
+
+    @Override
+    public int neighbors(int index, int[] buffer) {
+        int[] ni = this.adjacency[index];
+        System.arraycopy(ni, 0, buffer, 0, ni.length);
+        return ni.length;
+    }
+
+    @Override
+    public boolean isWeighted() {
+        return this.lengths != null;
+    }
+
+    @Override
+    public int lengths(int index, double[] buffer) {
+        double[] lengths = this.lengths == null ? null : this.lengths[index];
+        if (lengths == null) {
+            return super.lengths(index, buffer);
+        }
+        System.arraycopy(lengths, 0, buffer, 0, lengths.length);
+        return lengths.length;
+    }
+
+    /**
+     * Gets edge length.
+     *
+     * @param u the first vertex
+     * @param v the second vertex
+     * @return the edge length. if no edge exists return infinity.
+     */
+    @Override
+    public double getEdgeLength(int u, int v) {
+        if (!this.hasEdge(u, v)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double[] lengths = this.lengths == null ? null : this.lengths[u];
+        return lengths == null ? 1 : lengths[Arrays.binarySearch(this.adjacency[u], v)];
+    }
+
+    @Override
+    protected boolean isAdjacent(int u, int v) {
+        return Arrays.binarySearch(this.adjacency[u], v) >= 0;
+    }
+
+    @Override
+    protected String infoOf(int index) {
+        String info = this.info[index];
+        return info == null ? "" : info;
+    }
+
+    /**
+     * return the Mode Count of the graph when this snapshot was taken.
+     *
+     * @return
+     */
+    @Override
+    public int getMC() {
+        return this.modeCount;
+    }
+}
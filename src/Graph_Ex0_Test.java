@@ -1,9 +1,29 @@
 import org.apache.commons.lang3.time.StopWatch;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import org.apache.commons.math3.util.CombinatoricsUtils;
 
@@ -57,6 +77,8 @@ public class Graph_Ex0_Test {
         IGraphAlgorithms graphAlgorithms = new GraphAlgorithms(graph);
         boolean connected = graphAlgorithms.isConnected();
         assert (connected);
+        int[] components = graphAlgorithms.connectedComponents();
+        assert (components[3] == components[8]);
         List<INodeData> path = new ArrayList<>();
         path.add(graph.getNode(1));
         path.add(graph.getNode(4));
@@ -64,7 +86,7 @@ public class Graph_Ex0_Test {
         assert (graphAlgorithms.shortestPath(1, 6).equals(path));
         assert (graphAlgorithms.shortestPathDist(3, 8) == 5);
         assert (graphAlgorithms.shortestPathDist(3, 9) == 4);
-        assert (graphAlgorithms.shortestPath(4, 4).equals(new ArrayList<>()));
+        assert (graphAlgorithms.shortestPath(4, 4).equals(List.of(graph.getNode(4))));
         assert (graphAlgorithms.shortestPathDist(5, 5) == 0);
     }
 
@@ -79,9 +101,88 @@ public class Graph_Ex0_Test {
         stopWatch.split();
         System.out.printf("Second Test Passed in %s%n\n", stopWatch.formatSplitTime());
         test3(false);
-        stopWatch.stop();
+        stopWatch.split();
         System.out.println(stopWatch.formatSplitTime());
         System.out.printf("Third Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        plannerTest();
+        stopWatch.split();
+        System.out.printf("Planner Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        aStarTest();
+        stopWatch.split();
+        System.out.printf("A* Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        betweennessTest();
+        stopWatch.split();
+        System.out.printf("Betweenness Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        pageRankTest();
+        stopWatch.split();
+        System.out.printf("PageRank Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        trianglesTest();
+        stopWatch.split();
+        System.out.printf("Triangles Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        coreNumbersTest();
+        stopWatch.split();
+        System.out.printf("Core Numbers Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        diameterTest();
+        stopWatch.split();
+        System.out.printf("Diameter Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        spanningForestTest();
+        stopWatch.split();
+        System.out.printf("Spanning Forest Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        weightedLengthTest();
+        stopWatch.split();
+        System.out.printf("Weighted Length Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        changeLogTest();
+        stopWatch.split();
+        System.out.printf("Change Log Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        journalTest();
+        stopWatch.split();
+        System.out.printf("Journal Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        treeCacheFileTest();
+        stopWatch.split();
+        System.out.printf("Tree Cache File Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        partitionedGraphTest();
+        stopWatch.split();
+        System.out.printf("Partitioned Graph Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        queryServiceTest();
+        stopWatch.split();
+        System.out.printf("Query Service Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        snapshotTest();
+        stopWatch.split();
+        System.out.printf("Snapshot Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        deepCopyTest();
+        stopWatch.split();
+        System.out.printf("Deep Copy Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        rendererTest();
+        stopWatch.split();
+        System.out.printf("Renderer Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        statsTest();
+        stopWatch.split();
+        System.out.printf("Stats Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        flightRecorderTest();
+        stopWatch.split();
+        System.out.printf("Flight Recorder Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        concurrentGraphTest();
+        stopWatch.split();
+        System.out.printf("Concurrent Graph Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        versionedGraphTest();
+        stopWatch.split();
+        System.out.printf("Versioned Graph Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        generatorsTest();
+        stopWatch.split();
+        System.out.printf("Generators Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        compactGraphTest();
+        stopWatch.split();
+        System.out.printf("Compact Graph Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        compressedGraphTest();
+        stopWatch.split();
+        System.out.printf("Compressed Graph Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        bitMatrixTest();
+        stopWatch.split();
+        System.out.printf("Bit Matrix Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        distanceQueriesTest();
+        stopWatch.split();
+        System.out.printf("Distance Queries Test Passed in %s%n\n", stopWatch.formatSplitTime());
+        stopWatch.stop();
     }
 
 
@@ -141,6 +242,1365 @@ public class Graph_Ex0_Test {
     }
 
 
+    /**
+     * The default planner answers from cached trees, bidirectional BFS and early exit searches,
+     * every answer must match a plain BFS.
+     */
+    public static void plannerTest() {
+        UndirectedGraph graph = new UndirectedGraph();
+        int[] keys = GraphGenerators.erdosRenyi(2000, 5000, seed).loadInto(graph);
+        GraphAlgorithms planned = new GraphAlgorithms(graph);
+        GraphAlgorithms bfs = new GraphAlgorithms(graph);
+        bfs.setPlanner(new IQueryPlanner() {
+            @Override
+            public Strategy plan(QueryProfile profile) {
+                return Strategy.BFS;
+            }
+
+            @Override
+            public void observe(Strategy strategy, QueryProfile profile, long nanos, long nodesVisited) {
+            }
+        });
+        bfs.setTreeCacheCapacity(0);
+        Random rnd = new Random(seed);
+        for (int i = 0; i < 1000; ++i) {
+            //half the queries are from a few sources, so their trees get cached
+            int src = keys[i % 2 == 0 ? rnd.nextInt(10) : rnd.nextInt(keys.length)];
+            int dest = keys[rnd.nextInt(keys.length)];
+            int dist = bfs.shortestPathDist(src, dest);
+            assert (planned.shortestPathDist(src, dest) == dist);
+            if (dist >= 0) {
+                assert (planned.shortestPath(src, dest).size() == dist + 1);
+            }
+        }
+    }
+
+    /**
+     * A* finds the shortest paths with an admissible heuristic which is not consistent: a vertex settled on
+     * a longer path is settled again.
+     */
+    public static void aStarTest() {
+        IQueryPlanner aStarPlanner = new IQueryPlanner() {
+            @Override
+            public Strategy plan(QueryProfile profile) {
+                return Strategy.A_STAR;
+            }
+
+            @Override
+            public void observe(Strategy strategy, QueryProfile profile, long nanos, long nodesVisited) {
+            }
+        };
+        //0-1-3-4 is the shortest, but h(1)=4 keeps 1 back until 3 is settled through 2
+        UndirectedGraph graph = new UndirectedGraph();
+        for (int i = 0; i < 5; ++i) {
+            graph.addNode(new NodeData(i));
+        }
+        graph.connect(0, 1, 1);
+        graph.connect(1, 3, 1);
+        graph.connect(0, 2, 1);
+        graph.connect(2, 3, 2);
+        graph.connect(3, 4, 3);
+        double[] h = {0, 4, 0, 0, 0};
+        GraphAlgorithms ga = new GraphAlgorithms(graph);
+        ga.setPlanner(aStarPlanner);
+        ga.setHeuristic((key, destKey) -> destKey == 4 ? h[key] : 0);
+        assert (ga.shortestPathLength(0, 4) == 5);
+        List<Integer> path = new ArrayList<>();
+        for (INodeData node : ga.shortestPath(0, 4)) {
+            path.add(node.getKey());
+        }
+        assert (path.equals(List.of(0, 1, 3, 4)));
+
+        //random admissible estimates, a random share of the true distance
+        UndirectedGraph weighted = new UndirectedGraph();
+        int[] keys = GraphGenerators.erdosRenyi(300, 1200, seed).loadInto(weighted);
+        Random rnd = new Random(seed);
+        for (INodeData v : weighted.getV()) {
+            for (INodeData u : weighted.getV(v.getKey())) {
+                if (v.getKey() < u.getKey()) {
+                    weighted.connect(v.getKey(), u.getKey(), 1 + rnd.nextInt(10));
+                }
+            }
+        }
+        GraphAlgorithms dijkstra = new GraphAlgorithms(weighted);
+        dijkstra.setPlanner(treePlanner());
+        double[] share = new double[keys[keys.length - 1] + 1];
+        for (int i = 0; i < share.length; ++i) {
+            share[i] = rnd.nextDouble();
+        }
+        GraphAlgorithms aStar = new GraphAlgorithms(weighted);
+        aStar.setPlanner(aStarPlanner);
+        aStar.setHeuristic((key, destKey) -> Math.max(0, share[key] * dijkstra.shortestPathLength(destKey, key)));
+        for (int i = 0; i < 200; ++i) {
+            int src = keys[rnd.nextInt(keys.length)];
+            int dest = keys[rnd.nextInt(keys.length)];
+            assert (aStar.shortestPathLength(src, dest) == dijkstra.shortestPathLength(src, dest));
+        }
+    }
+
+    /**
+     * Brandes' betweenness must match counting the shortest paths through every node pair by pair.
+     */
+    public static void betweennessTest() {
+        UndirectedGraph graph = new UndirectedGraph();
+        int[] keys = GraphGenerators.erdosRenyi(40, 90, seed).loadInto(graph);
+        int n = keys.length;
+        Map<Integer, Integer> index = new HashMap<>();
+        for (int i = 0; i < n; ++i) {
+            index.put(keys[i], i);
+        }
+        int[][] dist = new int[n][n];
+        double[][] paths = new double[n][n];
+        for (int s = 0; s < n; ++s) {
+            Arrays.fill(dist[s], -1);
+            dist[s][s] = 0;
+            paths[s][s] = 1;
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            queue.add(s);
+            while (!queue.isEmpty()) {
+                int u = queue.poll();
+                for (INodeData ni : graph.getV(keys[u])) {
+                    int v = index.get(ni.getKey());
+                    if (dist[s][v] == -1) {
+                        dist[s][v] = dist[s][u] + 1;
+                        queue.add(v);
+                    }
+                    if (dist[s][v] == dist[s][u] + 1) {
+                        paths[s][v] += paths[s][u];
+                    }
+                }
+            }
+        }
+        double[] centrality = new GraphAlgorithms(graph).betweenness();
+        for (int v = 0; v < n; ++v) {
+            double expected = 0;
+            for (int s = 0; s < n; ++s) {
+                for (int t = s + 1; t < n; ++t) {
+                    if (s != v && t != v && dist[s][t] > 0 && dist[s][v] > 0 && dist[s][v] + dist[v][t] == dist[s][t]) {
+                        expected += paths[s][v] * paths[v][t] / paths[s][t];
+                    }
+                }
+            }
+            assert (Math.abs(centrality[keys[v]] - expected) < 1e-9);
+        }
+    }
+
+    /**
+     * The ranks are a distribution, also with isolated (dangling) nodes, and a cycle ranks all its nodes alike.
+     */
+    public static void pageRankTest() {
+        UndirectedGraph graph = new UndirectedGraph();
+        int[] keys = GraphGenerators.barabasiAlbert(500, 2, seed).loadInto(graph);
+        for (int i = 0; i < 5; ++i) {
+            graph.addNode(new NodeData());
+        }
+        GraphAlgorithms algorithms = new GraphAlgorithms(graph);
+        assert (Math.abs(rankSum(algorithms.pageRank()) - 1) < 1e-6);
+        double[][] personalized = algorithms.personalizedPageRank(new int[][]{{keys[0]}, {keys[1], keys[499]}});
+        for (double[] ranks : personalized) {
+            assert (Math.abs(rankSum(ranks) - 1) < 1e-6);
+        }
+        IGraph cycle = new UndirectedGraph();
+        keys = GraphGenerators.grid(1, 8).loadInto(cycle);
+        cycle.connect(keys[7], keys[0]);
+        double[] ranks = new GraphAlgorithms(cycle).pageRank();
+        for (int key : keys) {
+            assert (Math.abs(ranks[key] - 1.0 / 8) < 1e-9);
+        }
+    }
+
+    private static double rankSum(double[] ranks) {
+        double sum = 0;
+        for (double rank : ranks) {
+            //-1 for the keys with no node
+            if (rank >= 0) sum += rank;
+        }
+        return sum;
+    }
+
+    /**
+     * K4 has 4 triangles, 3 at every node, and a clustering coefficient of 1 - without one edge, 2 triangles.
+     */
+    public static void trianglesTest() {
+        IGraph k4 = new UndirectedGraph();
+        int[] keys = new int[4];
+        for (int i = 0; i < 4; ++i) {
+            INodeData node = new NodeData();
+            keys[i] = node.getKey();
+            k4.addNode(node);
+        }
+        for (int i = 0; i < 4; ++i) {
+            for (int j = i + 1; j < 4; ++j) {
+                k4.connect(keys[i], keys[j]);
+            }
+        }
+        GraphAlgorithms algorithms = new GraphAlgorithms(k4);
+        assert (algorithms.triangleCount() == 4);
+        long[] triangles = algorithms.triangles();
+        double[] clustering = algorithms.clusteringCoefficients();
+        for (int key : keys) {
+            assert (triangles[key] == 3);
+            assert (clustering[key] == 1);
+        }
+        k4.removeEdge(keys[0], keys[1]);
+        assert (algorithms.triangleCount() == 2);
+        triangles = algorithms.triangles();
+        assert (triangles[keys[0]] == 1 && triangles[keys[1]] == 1);
+        assert (triangles[keys[2]] == 2 && triangles[keys[3]] == 2);
+    }
+
+    /**
+     * A K4 (core 3), a node attached to two of its nodes (core 2), a leaf of that node (core 1)
+     * and an isolated node (core 0) - by peeling and by the parallel h-index iteration.
+     */
+    public static void coreNumbersTest() {
+        IGraph graph = new UndirectedGraph();
+        int[] keys = new int[7];
+        for (int i = 0; i < 7; ++i) {
+            INodeData node = new NodeData();
+            keys[i] = node.getKey();
+            graph.addNode(node);
+        }
+        for (int i = 0; i < 4; ++i) {
+            for (int j = i + 1; j < 4; ++j) {
+                graph.connect(keys[i], keys[j]);
+            }
+        }
+        graph.connect(keys[4], keys[0]);
+        graph.connect(keys[4], keys[1]);
+        graph.connect(keys[5], keys[4]);
+        int[] expected = {3, 3, 3, 3, 2, 1, 0};
+        GraphAlgorithms algorithms = new GraphAlgorithms(graph);
+        int[] cores = algorithms.coreNumbers();
+        int[] parallelCores = algorithms.parallelCoreNumbers();
+        for (int i = 0; i < keys.length; ++i) {
+            assert (cores[keys[i]] == expected[i]);
+            assert (parallelCores[keys[i]] == expected[i]);
+        }
+    }
+
+    /**
+     * A path of 7 nodes has the diameter 6, the radius 3 and the eccentricities max(i, 6-i); a 3x5 grid
+     * has the diameter 6 and the radius 3; with both in one graph the larger diameter is taken.
+     */
+    public static void diameterTest() {
+        assert (new GraphAlgorithms(new UndirectedGraph()).diameter() == -1);
+        IGraph path = new UndirectedGraph();
+        int[] keys = GraphGenerators.grid(1, 7).loadInto(path);
+        GraphAlgorithms algorithms = new GraphAlgorithms(path);
+        assert (algorithms.diameter() == 6);
+        assert (algorithms.radius() == 3);
+        int[] eccentricities = algorithms.eccentricities();
+        for (int i = 0; i < keys.length; ++i) {
+            assert (eccentricities[keys[i]] == Math.max(i, 6 - i));
+        }
+        IGraph grid = new UndirectedGraph();
+        GraphGenerators.grid(3, 5).loadInto(grid);
+        algorithms = new GraphAlgorithms(grid);
+        assert (algorithms.diameter() == 6);
+        assert (algorithms.radius() == 3);
+        GraphGenerators.grid(1, 10).loadInto(grid);
+        assert (algorithms.diameter() == 9);
+        assert (algorithms.diameterLowerBound() <= 9);
+    }
+
+    /**
+     * Kruskal (minimumSpanningForest) and Boruvka (parallelMinimumSpanningForest) find forests of the same
+     * length, with a tree per component; on a weighted square with a diagonal the forest is known.
+     */
+    public static void spanningForestTest() {
+        UndirectedGraph square = new UndirectedGraph();
+        int[] keys = GraphGenerators.grid(2, 2).loadInto(square);
+        square.connect(keys[0], keys[1], 4);
+        square.connect(keys[0], keys[2], 1);
+        square.connect(keys[1], keys[3], 2);
+        square.connect(keys[2], keys[3], 3);
+        square.connect(keys[0], keys[3], 2.5);
+        SpanningForest forest = new GraphAlgorithms(square).minimumSpanningForest();
+        assert (forest.size() == 3 && forest.trees() == 1 && forest.totalLength() == 5.5);
+        UndirectedGraph graph = new UndirectedGraph();
+        EdgeList edges = GraphGenerators.erdosRenyi(1000, 2500, seed);
+        keys = edges.loadInto(graph);
+        Random rnd = new Random(seed);
+        for (int i = 0; i < edges.size(); ++i) {
+            //integral lengths, so the sums do not depend on the order they are added in
+            graph.connect(keys[edges.from(i)], keys[edges.to(i)], 1 + rnd.nextInt(100));
+        }
+        GraphAlgorithms algorithms = new GraphAlgorithms(graph);
+        SpanningForest kruskal = algorithms.minimumSpanningForest();
+        SpanningForest boruvka = algorithms.parallelMinimumSpanningForest();
+        assert (kruskal.totalLength() == boruvka.totalLength());
+        int[] component = algorithms.connectedComponents();
+        Set<Integer> components = new HashSet<>();
+        for (int key : keys) {
+            components.add(component[key]);
+        }
+        assert (kruskal.trees() == boruvka.trees() && kruskal.trees() == components.size());
+        assert (kruskal.size() == keys.length - kruskal.trees() && boruvka.size() == kruskal.size());
+    }
+
+    /**
+     * A weighted length is returned as is by shortestPathLength, and rejected by shortestPathDist unless it is
+     * an integer - a single edge of length 0.4 is no path of length 0.
+     */
+    public static void weightedLengthTest() {
+        UndirectedGraph graph = new UndirectedGraph();
+        for (int i = 0; i < 4; ++i) {
+            graph.addNode(new NodeData(i));
+        }
+        graph.connect(0, 1, 0.4);
+        graph.connect(1, 2, 0.6);
+        graph.connect(0, 2, 2);
+        GraphAlgorithms ga = new GraphAlgorithms(graph);
+        assert (ga.shortestPathLength(0, 1) == 0.4);
+        assert (ga.shortestPathLength(0, 0) == 0);
+        assert (ga.shortestPathLength(0, 3) == -1);
+        try {
+            ga.shortestPathDist(0, 1);
+            assert (false);
+        } catch (ArithmeticException e) {
+            //0.4 is not an int
+        }
+        assert (Math.abs(ga.shortestPathLength(0, 2) - 1) < 1e-12);
+        graph.connect(1, 2, 1.6);
+        assert (ga.shortestPathDist(0, 2) == 2);
+        assert (ga.shortestPathLength(0, 2) == 2);
+    }
+
+    /**
+     * A replica which read the changes since its snapshot, in batches, becomes equal to the graph;
+     * once the log overwrote some of them, reading them fails.
+     */
+    public static void changeLogTest() {
+        UndirectedGraph graph = new UndirectedGraph();
+        int[] keys = GraphGenerators.erdosRenyi(100, 200, seed).loadInto(graph);
+        ChangeLog log = graph.enableChangeLog(1000);
+        GraphSnapshot replica = GraphSnapshot.of(graph);
+        int modeCount = graph.getMC();
+        Random rnd = new Random(seed);
+        randomMutations(graph, keys, rnd, 300);
+        assert (log.covers(modeCount));
+        while (modeCount != log.modeCount()) {
+            GraphDelta delta = new GraphDelta();
+            modeCount = log.readSince(modeCount, delta, 64);
+            replica = replica.apply(delta);
+        }
+        assert (sameGraph(replica, graph));
+        randomMutations(graph, keys, rnd, 2000);
+        assert (!log.covers(modeCount));
+        try {
+            log.readSince(modeCount, new GraphDelta(), Integer.MAX_VALUE);
+            assert (false);
+        } catch (IllegalStateException e) {
+            //the replica has to be rebuilt from the graph
+        }
+    }
+
+    /**
+     * A journal recovers the synced graph after a crash, dropping a torn batch at its end, and after
+     * a checkpoint.
+     */
+    public static void journalTest() {
+        Path dir = null;
+        Path crashed = null;
+        try {
+            dir = Files.createTempDirectory("journal");
+            crashed = Files.createTempDirectory("crashed");
+            GraphJournal journal = GraphJournal.open(dir, 60000);
+            UndirectedGraph graph = journal.graph();
+            int[] keys = GraphGenerators.erdosRenyi(100, 200, seed).loadInto(graph);
+            Random rnd = new Random(seed);
+            randomMutations(graph, keys, rnd, 300);
+            journal.sync();
+            //a crash: the files as they are on the disk, the journal never closed
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path file : files) {
+                    Files.copy(file, crashed.resolve(file.getFileName()));
+                }
+            }
+            Files.write(crashed.resolve("graph.journal"), new byte[]{0, 0, 0, 100, 1, 2, 3},
+                    StandardOpenOption.APPEND);
+            GraphJournal recovered = GraphJournal.open(crashed, 60000);
+            assert (sameGraph(recovered.graph(), graph));
+            assert (sameInfo(recovered.graph(), graph));
+            recovered.close();
+
+            journal.checkpoint();
+            randomMutations(graph, keys, rnd, 300);
+            journal.close();
+            recovered = GraphJournal.open(dir, 60000);
+            assert (sameGraph(recovered.graph(), graph));
+            assert (sameInfo(recovered.graph(), graph));
+            recovered.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteDirectory(dir);
+            deleteDirectory(crashed);
+        }
+    }
+
+    /**
+     * The saved trees are loaded by the algorithms of an equal graph, built again, and answer its queries;
+     * the algorithms of a changed graph load none of them.
+     */
+    public static void treeCacheFileTest() {
+        IQueryPlanner treePlanner = treePlanner();
+        EdgeList edges = GraphGenerators.barabasiAlbert(2000, 3, seed);
+        Path file = null;
+        try {
+            file = Files.createTempFile("trees", ".bin");
+            UndirectedGraph graph = new UndirectedGraph();
+            int[] keys = edges.loadInto(graph);
+            GraphAlgorithms ga = new GraphAlgorithms(graph);
+            ga.setPlanner(treePlanner);
+            Random rnd = new Random(seed);
+            for (int i = 0; i < 100; ++i) {
+                ga.shortestPathDist(keys[rnd.nextInt(10)], keys[rnd.nextInt(keys.length)]);
+            }
+            int saved = ga.saveTreeCache(file, 8);
+            assert (saved == 8);
+
+            UndirectedGraph rebuilt = new UndirectedGraph();
+            for (int key : keys) {
+                rebuilt.addNode(new NodeData(key));
+            }
+            for (int i = 0; i < edges.size(); ++i) {
+                rebuilt.connect(keys[edges.from(i)], keys[edges.to(i)]);
+            }
+            GraphAlgorithms loaded = new GraphAlgorithms(rebuilt);
+            loaded.setPlanner(treePlanner);
+            GraphAlgorithmsStats stats = new GraphAlgorithmsStats();
+            loaded.setStats(stats);
+            assert (loaded.loadTreeCache(file) == saved);
+            for (int i = 0; i < 10; ++i) {
+                int dest = keys[rnd.nextInt(keys.length)];
+                assert (loaded.shortestPathDist(keys[i], dest) == ga.shortestPathDist(keys[i], dest));
+            }
+            assert (stats.getCacheHits() > 0);
+
+            rebuilt.removeEdge(keys[edges.from(0)], keys[edges.to(0)]);
+            assert (new GraphAlgorithms(rebuilt).loadTreeCache(file) == 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (file != null) {
+                file.toFile().delete();
+            }
+        }
+    }
+
+    /**
+     * The distributed BFS of in process partitions finds the same distances and levels as a local BFS,
+     * under every partitioning.
+     */
+    public static void partitionedGraphTest() {
+        UndirectedGraph graph = new UndirectedGraph();
+        //sparse, so some pairs are not connected
+        int[] keys = GraphGenerators.erdosRenyi(500, 600, seed).loadInto(graph);
+        GraphAlgorithms ga = new GraphAlgorithms(graph);
+        for (Partitioning partitioning : Partitioning.values()) {
+            try (PartitionedGraph partitioned = PartitionedGraph.inProcess(graph, 4, partitioning)) {
+                assert (partitioned.vertexCount() == graph.nodeSize());
+                assert (partitioned.edgeCount() == graph.edgeSize());
+                Random rnd = new Random(seed);
+                for (int i = 0; i < 200; ++i) {
+                    int src = keys[rnd.nextInt(keys.length)];
+                    int dest = keys[rnd.nextInt(keys.length)];
+                    assert (partitioned.shortestPathDist(src, dest) == ga.shortestPathDist(src, dest));
+                }
+                for (int i = 0; i < 5; ++i) {
+                    int src = keys[rnd.nextInt(keys.length)];
+                    int[] levels = partitioned.levelSizes(src);
+                    int[] expected = new int[levels.length];
+                    for (int key : keys) {
+                        int dist = ga.shortestPathDist(src, key);
+                        if (dist != -1) {
+                            assert (dist < levels.length);
+                            expected[dist]++;
+                        }
+                    }
+                    assert (Arrays.equals(levels, expected));
+                }
+            }
+        }
+    }
+
+    /**
+     * Cancelled and timed out queries release their place in the backlog, whether they started or not,
+     * so the service keeps answering.
+     */
+    public static void queryServiceTest() {
+        UndirectedGraph graph = new UndirectedGraph();
+        int[] keys = GraphGenerators.erdosRenyi(2000, 8000, seed).loadInto(graph);
+        GraphAlgorithms ga = new GraphAlgorithms(GraphSnapshot.of(graph));
+        Random rnd = new Random(seed);
+        try (GraphQueryService service = new GraphQueryService(ga, 2, 10000, Duration.ofSeconds(10))) {
+            for (int i = 0; i < 2000; ++i) {
+                int src = keys[rnd.nextInt(keys.length)];
+                int dest = keys[rnd.nextInt(keys.length)];
+                if (i % 2 == 0) {
+                    service.shortestPathDist(src, dest).cancel(true);
+                } else {
+                    service.shortestPathDist(src, dest, Duration.ZERO);
+                }
+            }
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (service.getPending() != 0 && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            assert (service.getPending() == 0);
+            assert (service.getShed() == 0);
+            int src = keys[rnd.nextInt(keys.length)];
+            int dest = keys[rnd.nextInt(keys.length)];
+            assert (service.shortestPathDist(src, dest).join() == ga.shortestPathDist(src, dest));
+        }
+    }
+
+    /**
+     * A snapshot is an equal copy which does not change with the graph, while a reader runs queries on it,
+     * and the next snapshot, sharing the unchanged vertices with it, is equal to the changed graph.
+     */
+    public static void snapshotTest() {
+        UndirectedGraph graph = new UndirectedGraph();
+        int[] keys = GraphGenerators.erdosRenyi(300, 900, seed).loadInto(graph);
+        GraphSnapshot snapshot = graph.snapshot();
+        GraphSnapshot copy = GraphSnapshot.of(graph);
+        assert (graph.snapshot() == snapshot);
+        assert (sameGraph(snapshot, graph));
+        assert (sameInfo(snapshot, graph));
+
+        int[] distances = new int[200];
+        Thread reader = new Thread(() -> {
+            GraphAlgorithms ga = new GraphAlgorithms(snapshot);
+            for (int i = 0; i < distances.length; ++i) {
+                distances[i] = ga.shortestPathDist(keys[i], keys[keys.length - 1 - i]);
+            }
+        });
+        reader.start();
+        Random rnd = new Random(seed);
+        for (int i = 0; i < 10; ++i) {
+            randomMutations(graph, keys, rnd, 50);
+            graph.snapshot();
+        }
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        assert (sameGraph(snapshot, copy));
+        GraphAlgorithms ga = new GraphAlgorithms(copy);
+        for (int i = 0; i < distances.length; ++i) {
+            assert (distances[i] == ga.shortestPathDist(keys[i], keys[keys.length - 1 - i]));
+        }
+
+        randomMutations(graph, keys, rnd, 50);
+        GraphSnapshot next = graph.snapshot();
+        assert (next != snapshot);
+        assert (sameGraph(next, graph));
+        assert (sameGraph(next, GraphSnapshot.of(graph)));
+        assert (sameInfo(next, graph));
+    }
+
+    /**
+     * A deep copy, serial or parallel, is an equal graph of new nodes: changing it leaves the original as it was.
+     */
+    public static void deepCopyTest() {
+        for (int n : new int[]{300, 20000}) {
+            UndirectedGraph graph = new UndirectedGraph();
+            int[] keys = GraphGenerators.erdosRenyi(n, 3 * n, seed).loadInto(graph);
+            Random rnd = new Random(seed);
+            for (int i = 0; i < 100; ++i) {
+                graph.connect(keys[rnd.nextInt(n)], keys[rnd.nextInt(n)], 0.5 + rnd.nextInt(4));
+                INodeData node = graph.getNode(keys[rnd.nextInt(n)]);
+                node.setInfo("info " + i);
+                node.setTag(i);
+            }
+            GraphSnapshot original = GraphSnapshot.of(graph);
+            UndirectedGraph copy = graph.deepCopy();
+            assert (sameGraph(copy, graph));
+            assert (sameInfo(copy, graph));
+            assert (copy.getMC() == graph.getMC());
+            for (INodeData node : graph.getV()) {
+                assert (copy.getNode(node.getKey()) != node);
+                assert (copy.getNode(node.getKey()).getTag() == node.getTag());
+            }
+            randomMutations(copy, keys, rnd, 200);
+            assert (sameGraph(graph, original));
+        }
+        UndirectedGraph weighted = new UndirectedGraph();
+        int[] keys = GraphGenerators.erdosRenyi(100, 300, seed).loadInto(weighted);
+        weighted.connect(keys[0], keys[1], 2.5);
+        GraphSnapshot snapshot = GraphSnapshot.of(weighted);
+        assert (sameGraph(new GraphAlgorithms(snapshot).copy(), snapshot));
+    }
+
+    /**
+     * The rendered vertices, edges, adjacency pages and matrix describe the graph, and a failing Appendable
+     * stops the rendering.
+     */
+    public static void rendererTest() {
+        UndirectedGraph graph = new UndirectedGraph();
+        int[] keys = GraphGenerators.erdosRenyi(30, 25, seed).loadInto(graph);
+        try {
+            StringBuilder vertices = new StringBuilder();
+            GraphRenderer.writeVertices(graph, vertices);
+            Set<Integer> keySet = new HashSet<>();
+            for (String key : vertices.substring("V={".length(), vertices.length() - 1).split(", ")) {
+                keySet.add(Integer.parseInt(key));
+            }
+            assert (keySet.size() == keys.length);
+
+            StringBuilder edges = new StringBuilder();
+            GraphRenderer.writeEdges(graph, edges);
+            assert (edges.toString().split("\n").length == 3);
+            String[] pairs = edges.substring("E={{".length(), edges.length() - 2).split("},\\s*\\{");
+            assert (pairs.length == graph.edgeSize());
+            for (String pair : pairs) {
+                String[] ends = pair.split(",");
+                assert (graph.hasEdge(Integer.parseInt(ends[0]), Integer.parseInt(ends[1])));
+            }
+
+            StringBuilder adjacency = new StringBuilder();
+            GraphRenderer.writeAdjacency(graph, adjacency);
+            StringBuilder pages = new StringBuilder();
+            int offset = 0;
+            int written;
+            do {
+                written = GraphRenderer.writeAdjacency(graph, pages, offset, 7);
+                offset += written;
+            } while (written == 7);
+            assert (pages.toString().equals(adjacency.toString()));
+            for (String line : adjacency.toString().split("\n")) {
+                String[] parts = line.split(":", -1);
+                Set<Integer> ni = new HashSet<>();
+                for (String key : parts[1].trim().split(" ")) {
+                    if (!key.isEmpty()) ni.add(Integer.parseInt(key));
+                }
+                assert (ni.size() == graph.getV(Integer.parseInt(parts[0])).size());
+                for (int key : ni) {
+                    assert (graph.hasEdge(Integer.parseInt(parts[0]), key));
+                }
+            }
+
+            StringBuilder matrix = new StringBuilder();
+            GraphRenderer.writeMatrix(graph, matrix);
+            assert (matrix.chars().filter(c -> c == 't').count() == 2L * graph.edgeSize());
+
+            Appendable failing = new Appendable() {
+                private int left = 100;
+
+                @Override
+                public Appendable append(CharSequence csq) throws IOException {
+                    return this.append(csq, 0, csq.length());
+                }
+
+                @Override
+                public Appendable append(CharSequence csq, int start, int end) throws IOException {
+                    this.left -= end - start;
+                    if (this.left < 0) throw new IOException("full");
+                    return this;
+                }
+
+                @Override
+                public Appendable append(char c) throws IOException {
+                    return this.append(String.valueOf(c));
+                }
+            };
+            try {
+                GraphRenderer.writeEdges(graph, failing);
+                assert (false);
+            } catch (IOException e) {
+                //the writer failed, the rendering stopped
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The statistics count the plans, cache hits, misses and evictions and the latencies of the queries,
+     * whose answers are those of the plain algorithms; the cache evicts the trees not hit since their last chance.
+     */
+    public static void statsTest() {
+        UndirectedGraph graph = new UndirectedGraph();
+        //connected, so every query is planned
+        int[] keys = GraphGenerators.barabasiAlbert(500, 3, seed).loadInto(graph);
+        GraphAlgorithms plain = new GraphAlgorithms(graph.deepCopy());
+        GraphAlgorithms ga = new GraphAlgorithms(graph);
+        GraphAlgorithmsStats stats = new GraphAlgorithmsStats();
+        ga.setStats(stats);
+        ga.setPlanner(treePlanner());
+        ga.setTreeCacheCapacity(4);
+        for (int i = 0; i < 5; ++i) {
+            for (int j = 0; j < 10; ++j) {
+                int dest = keys[5 + 10 * i + j];
+                assert (ga.shortestPathDist(keys[i], dest) == plain.shortestPathDist(keys[i], dest));
+            }
+        }
+        assert (stats.getLatency(GraphAlgorithmsStats.Query.SHORTEST_PATH_DIST).count() == 50);
+        assert (stats.getPlans(IQueryPlanner.Strategy.BFS) == 5);
+        assert (stats.getPlans(IQueryPlanner.Strategy.CACHED_TREE) == 45);
+        assert (stats.getCacheMisses() == 5);
+        assert (stats.getCacheHits() == 45);
+        assert (stats.getCacheEvictions() == 1);
+        assert (stats.getNodesSettled() > 0);
+        graph.removeNode(keys[keys.length - 1]);
+        ga.shortestPathDist(keys[0], keys[2]);
+        assert (stats.getCacheEvictions() == 5);
+        assert (stats.getCacheMisses() == 6);
+        stats.reset();
+        assert (stats.getCacheHits() == 0);
+        assert (stats.getLatency(GraphAlgorithmsStats.Query.SHORTEST_PATH_DIST).count() == 0);
+
+        ShortestPathTreeCache cache = new ShortestPathTreeCache(2);
+        ShortestPathTree tree = new ShortestPathTree(0, new int[1], new double[1]);
+        cache.put(1, tree);
+        cache.put(2, tree);
+        assert (cache.get(1) == tree);
+        //1 was hit since it was added, so 2 goes first
+        assert (cache.put(3, tree) == 1);
+        assert (cache.peek(2) == null && cache.peek(1) == tree);
+        assert (cache.hits(1) == 1);
+        assert (Arrays.equals(cache.hottest(1), new int[]{1}));
+        assert (cache.setCapacity(0) == 2);
+        assert (cache.size() == 0);
+        try {
+            cache.setCapacity(-1);
+            assert (false);
+        } catch (IllegalArgumentException e) {
+            //a capacity is not negative
+        }
+    }
+
+    /**
+     * The fast queries are below the default threshold of the query event, with no threshold every query and
+     * mutation is recorded with its fields.
+     */
+    public static void flightRecorderTest() {
+        UndirectedGraph graph = new UndirectedGraph();
+        for (int i = 0; i < 10; ++i) {
+            graph.addNode(new NodeData(i));
+        }
+        for (int i = 0; i < 9; ++i) {
+            graph.connect(i, i + 1);
+        }
+        GraphAlgorithms ga = new GraphAlgorithms(graph);
+        for (int i = 0; i < 100; ++i) {
+            //warm, so no query is slow
+            ga.shortestPathDist(0, 9);
+        }
+        Path file = null;
+        try {
+            file = Files.createTempFile("graphs", ".jfr");
+            try (Recording recording = new Recording()) {
+                recording.enable("graphs.GraphQuery");
+                recording.start();
+                ga.shortestPathDist(0, 9);
+                recording.stop();
+                recording.dump(file);
+            }
+            assert (recordedEvents(file, "graphs.GraphQuery").isEmpty());
+
+            try (Recording recording = new Recording()) {
+                recording.enable("graphs.GraphQuery").withThreshold(Duration.ZERO);
+                recording.enable("graphs.GraphMutation");
+                recording.start();
+                assert (ga.shortestPathDist(0, 8) == 8);
+                graph.removeEdge(4, 5);
+                graph.connect(0, 9);
+                recording.stop();
+                recording.dump(file);
+            }
+            List<RecordedEvent> queries = recordedEvents(file, "graphs.GraphQuery");
+            assert (queries.size() == 1);
+            assert (queries.get(0).getString("query").equals("SHORTEST_PATH_DIST"));
+            assert (queries.get(0).getInt("source") == 0 && queries.get(0).getInt("destination") == 8);
+            assert (queries.get(0).getLong("result") == 8);
+            List<RecordedEvent> mutations = recordedEvents(file, "graphs.GraphMutation");
+            assert (mutations.size() == 2);
+            assert (mutations.get(0).getString("operation").equals("removeEdge"));
+            assert (mutations.get(1).getString("operation").equals("connect"));
+            assert (mutations.get(1).getInt("modeCount") == graph.getMC());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (file != null) {
+                file.toFile().delete();
+            }
+        }
+    }
+
+    private static List<RecordedEvent> recordedEvents(Path file, String name) throws IOException {
+        List<RecordedEvent> events = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if (event.getEventType().getName().equals(name)) {
+                events.add(event);
+            }
+        }
+        events.sort((a, b) -> a.getStartTime().compareTo(b.getStartTime()));
+        return events;
+    }
+
+    /**
+     * Parallel ingestion, every edge connected twice, ends in the graph a single thread builds; racing removals,
+     * additions and connections of the same keys leave the graph consistent.
+     */
+    public static void concurrentGraphTest() {
+        EdgeList edges = GraphGenerators.erdosRenyi(5000, 20000, seed);
+        UndirectedGraph expected = new UndirectedGraph();
+        int[] keys = edges.loadInto(expected);
+        ConcurrentUndirectedGraph graph = new ConcurrentUndirectedGraph();
+        IntStream.range(0, keys.length).parallel().forEach(v -> graph.addNode(new NodeData(keys[v])));
+        IntStream.range(0, 2 * edges.size()).parallel().forEach(i -> {
+            int e = i % edges.size();
+            if (i < edges.size()) {
+                graph.connect(keys[edges.from(e)], keys[edges.to(e)]);
+            } else {
+                graph.connect(keys[edges.to(e)], keys[edges.from(e)]);
+            }
+        });
+        assert (sameGraph(graph, expected));
+        assert (consistent(graph));
+
+        int[] hot = Arrays.copyOf(keys, 8);
+        IntStream.range(0, 20000).parallel().forEach(i -> {
+            Random rnd = new Random(i);
+            int key = hot[rnd.nextInt(hot.length)];
+            int other = keys[rnd.nextInt(keys.length)];
+            switch (rnd.nextInt(4)) {
+                case 0:
+                    graph.removeNode(key);
+                    break;
+                case 1:
+                    graph.addNode(new NodeData(key));
+                    break;
+                case 2:
+                    graph.connect(key, other);
+                    break;
+                default:
+                    graph.removeEdge(key, other);
+            }
+        });
+        assert (consistent(graph));
+        for (int v = hot.length; v < keys.length; ++v) {
+            assert (graph.getNode(keys[v]) != null);
+        }
+    }
+
+    /**
+     * return true iff every edge is in the neighbors of both its ends, in the neighbors of their nodes too,
+     * and the graph counts every edge once.
+     */
+    private static boolean consistent(IGraph graph) {
+        long degrees = 0;
+        for (INodeData node : graph.getV()) {
+            Set<Integer> ni = new HashSet<>();
+            for (INodeData u : graph.getV(node.getKey())) {
+                if (!graph.hasEdge(u.getKey(), node.getKey())) {
+                    return false;
+                }
+                ni.add(u.getKey());
+            }
+            Set<Integer> nodeNi = new HashSet<>();
+            for (INodeData u : node.getNi()) {
+                nodeNi.add(u.getKey());
+            }
+            if (!ni.equals(nodeNi)) {
+                return false;
+            }
+            degrees += ni.size();
+        }
+        return degrees == 2L * graph.edgeSize();
+    }
+
+    /**
+     * Every published delta gives the version an UndirectedGraph gets from the same mutations, answering the
+     * queries like it, and the previous versions do not change.
+     */
+    public static void versionedGraphTest() {
+        UndirectedGraph graph = new UndirectedGraph();
+        int[] keys = GraphGenerators.erdosRenyi(300, 900, seed).loadInto(graph);
+        VersionedGraph versioned = new VersionedGraph(GraphSnapshot.of(graph));
+        Random rnd = new Random(seed);
+        for (int round = 0; round < 20; ++round) {
+            GraphSnapshot previous = versioned.current();
+            GraphSnapshot previousCopy = GraphSnapshot.of(previous);
+            GraphDelta delta = new GraphDelta();
+            for (int i = 0; i < 30; ++i) {
+                int a = keys[rnd.nextInt(keys.length)];
+                int b = keys[rnd.nextInt(keys.length)];
+                if (a == b) continue;
+                switch (rnd.nextInt(5)) {
+                    case 0:
+                        graph.removeEdge(a, b);
+                        delta.removeEdge(a, b);
+                        break;
+                    case 1:
+                        double length = 0.5 * (1 + rnd.nextInt(4));
+                        graph.connect(a, b, length);
+                        delta.connect(a, b, length);
+                        break;
+                    case 2:
+                        graph.removeNode(a);
+                        delta.removeNode(a);
+                        NodeData node = new NodeData(a);
+                        node.setInfo("round " + round);
+                        graph.addNode(new NodeData(node));
+                        delta.addNode(node);
+                        break;
+                    default:
+                        graph.connect(a, b);
+                        delta.connect(a, b);
+                }
+            }
+            GraphSnapshot current = versioned.publish(delta);
+            assert (versioned.current() == current);
+            assert (sameGraph(current, graph));
+            assert (sameInfo(current, graph));
+            assert (sameGraph(previous, previousCopy));
+            GraphAlgorithms plain = new GraphAlgorithms(graph.deepCopy());
+            for (int i = 0; i < 20; ++i) {
+                int src = keys[rnd.nextInt(keys.length)];
+                int dest = keys[rnd.nextInt(keys.length)];
+                assert (versioned.algorithms().shortestPathLength(src, dest) == plain.shortestPathLength(src, dest));
+            }
+        }
+        GraphSnapshot last = versioned.current();
+        assert (versioned.publish(new GraphDelta()) == last);
+    }
+
+    /**
+     * The generators are deterministic by their seed in spite of running in parallel, and make the graphs
+     * they promise: m distinct edges, attachment to earlier vertices only, skewed R-MAT degrees, a grid.
+     */
+    public static void generatorsTest() {
+        EdgeList er = GraphGenerators.erdosRenyi(1000, 5000, seed);
+        assert (er.size() == 5000);
+        Set<Long> pairs = new HashSet<>();
+        for (int i = 0; i < er.size(); ++i) {
+            assert (er.from(i) != er.to(i));
+            assert (er.from(i) >= 0 && er.from(i) < 1000 && er.to(i) >= 0 && er.to(i) < 1000);
+            pairs.add((long) Math.min(er.from(i), er.to(i)) << 32 | Math.max(er.from(i), er.to(i)));
+        }
+        assert (pairs.size() == 5000);
+        assert (sameEdges(er, GraphGenerators.erdosRenyi(1000, 5000, seed)));
+        assert (!sameEdges(er, GraphGenerators.erdosRenyi(1000, 5000, seed + 1)));
+        assert (GraphGenerators.erdosRenyi(10, 45, seed).toSnapshot().edgeSize() == 45);
+        try {
+            GraphGenerators.erdosRenyi(10, 46, seed);
+            assert (false);
+        } catch (IllegalArgumentException e) {
+            //K10 has 45 edges
+        }
+
+        EdgeList ba = GraphGenerators.barabasiAlbert(1000, 3, seed);
+        assert (ba.size() == 999 * 3);
+        for (int i = 0; i < ba.size(); ++i) {
+            assert (ba.to(i) < ba.from(i));
+        }
+        assert (sameEdges(ba, GraphGenerators.barabasiAlbert(1000, 3, seed)));
+        assert (new GraphAlgorithms(ba.toSnapshot()).isConnected());
+
+        EdgeList kronecker = GraphGenerators.kronecker(10, 16, seed);
+        assert (kronecker.vertexCount() == 1024 && kronecker.size() == 1024 * 16);
+        assert (sameEdges(kronecker, GraphGenerators.kronecker(10, 16, seed)));
+        GraphSnapshot skewed = kronecker.toSnapshot();
+        assert (skewed.maxDegree() > 4.0 * 2 * skewed.edgeSize() / skewed.vertexCount());
+
+        EdgeList grid = GraphGenerators.grid(5, 7);
+        GraphSnapshot gridGraph = grid.toSnapshot();
+        assert (gridGraph.edgeSize() == 5 * 6 + 4 * 7);
+        assert (gridGraph.getV(0).size() == 2 && gridGraph.getV(8).size() == 4);
+        assert (new GraphAlgorithms(gridGraph).shortestPathDist(0, 34) == 4 + 6);
+        try {
+            GraphGenerators.grid(0, 7);
+            assert (false);
+        } catch (IllegalArgumentException e) {
+            //a grid has a row at least
+        }
+
+        NodeData.zeroizeNodeKeyCount();
+        UndirectedGraph loaded = new UndirectedGraph();
+        kronecker.loadInto(loaded);
+        assert (sameGraph(kronecker.toSnapshot(), loaded));
+    }
+
+    /**
+     * A compact graph, under every ordering, is the graph it copies and answers its queries; the orderings
+     * are permutations which do what they promise - RCM narrows the bandwidth, DEGREE puts the hubs first
+     * and BFS reaches every vertex from one before it.
+     */
+    public static void compactGraphTest() {
+        UndirectedGraph graph = new UndirectedGraph();
+        int[] keys = GraphGenerators.barabasiAlbert(2000, 3, seed).loadInto(graph);
+        //a hole in the keys
+        graph.removeNode(keys[1000]);
+        GraphAlgorithms plain = new GraphAlgorithms(graph.deepCopy());
+        Random rnd = new Random(seed);
+        for (VertexOrdering ordering : VertexOrdering.values()) {
+            CompactGraph compact = CompactGraph.of(graph, ordering);
+            assert (sameGraph(compact, graph));
+            //every vertex once, by its slot
+            GraphSnapshot view = graph.snapshot();
+            int[] order = ordering.order(view);
+            assert (order.length == graph.nodeSize());
+            Set<Integer> slots = new HashSet<>();
+            for (int slot : order) {
+                assert (view.contains(slot) && slots.add(slot));
+            }
+            GraphAlgorithms ga = new GraphAlgorithms(compact);
+            for (int i = 0; i < 50; ++i) {
+                int src = keys[rnd.nextInt(keys.length)];
+                int dest = keys[rnd.nextInt(keys.length)];
+                assert (ga.shortestPathDist(src, dest) == plain.shortestPathDist(src, dest));
+            }
+        }
+        CompactGraph byKey = CompactGraph.of(graph);
+        assert (bandwidth(byKey.relabel(VertexOrdering.RCM)) < bandwidth(byKey));
+        CompactGraph byDegree = byKey.relabel(VertexOrdering.DEGREE);
+        for (int i = 1; i < byDegree.vertexCount(); ++i) {
+            assert (byDegree.degree(i - 1) >= byDegree.degree(i));
+        }
+        CompactGraph byBfs = byKey.relabel(VertexOrdering.BFS);
+        int[] ni = new int[byBfs.maxDegree()];
+        for (int i = 1; i < byBfs.vertexCount(); ++i) {
+            int degree = byBfs.neighbors(i, ni);
+            int min = Integer.MAX_VALUE;
+            for (int j = 0; j < degree; ++j) {
+                min = Math.min(min, ni[j]);
+            }
+            assert (min < i);
+        }
+        try {
+            byKey.relabel(new int[byKey.vertexCount()]);
+            assert (false);
+        } catch (IllegalArgumentException e) {
+            //not a permutation
+        }
+    }
+
+    /**
+     * The compressed adjacency decodes to the adjacency of the compact graph of the same ordering, gaps of
+     * several bytes and negative first gaps too, and takes less memory.
+     */
+    public static void compressedGraphTest() {
+        UndirectedGraph graph = new UndirectedGraph();
+        int[] keys = GraphGenerators.barabasiAlbert(3000, 4, seed).loadInto(graph);
+        GraphAlgorithms plain = new GraphAlgorithms(graph.deepCopy());
+        Random rnd = new Random(seed);
+        for (VertexOrdering ordering : VertexOrdering.values()) {
+            CompressedGraph compressed = CompressedGraph.of(graph, ordering);
+            CompactGraph compact = CompactGraph.of(graph, ordering);
+            assert (sameGraph(compressed, graph));
+            assert (compressed.adjacencyBytes() < compact.adjacencyBytes());
+            int[] expected = new int[compact.maxDegree()];
+            int[] actual = new int[compressed.maxDegree()];
+            for (int i = 0; i < compact.vertexCount(); ++i) {
+                assert (compressed.keyOf(i) == compact.keyOf(i));
+                assert (compressed.degree(i) == compact.degree(i));
+                int degree = compressed.neighbors(i, actual);
+                compact.neighbors(i, expected);
+                assert (Arrays.equals(actual, 0, degree, expected, 0, degree));
+            }
+            GraphAlgorithms ga = new GraphAlgorithms(compressed);
+            for (int i = 0; i < 50; ++i) {
+                int src = keys[rnd.nextInt(keys.length)];
+                int dest = keys[rnd.nextInt(keys.length)];
+                assert (ga.shortestPathDist(src, dest) == plain.shortestPathDist(src, dest));
+            }
+        }
+
+        //a star whose center is last: gaps of 1 to 3 bytes, and negative first gaps
+        int n = 70000;
+        int center = n - 1;
+        int[] leaves = {0, 1, 128, 16384, center - 1};
+        CompressedGraph.Builder builder = new CompressedGraph.Builder(n);
+        for (int v = 0; v < n; ++v) {
+            if (v == center) {
+                builder.addVertex(v, leaves, leaves.length);
+            } else {
+                boolean leaf = Arrays.binarySearch(leaves, v) >= 0;
+                builder.addVertex(v, new int[]{center}, leaf ? 1 : 0);
+            }
+        }
+        CompressedGraph star = builder.build();
+        assert (star.edgeCount() == leaves.length);
+        int[] ni = new int[star.maxDegree()];
+        assert (star.neighbors(center, ni) == leaves.length && Arrays.equals(ni, leaves));
+        assert (star.neighbors(16384, ni) == 1 && ni[0] == center);
+        assert (star.hasEdge(0, center) && !star.hasEdge(2, center));
+
+        try {
+            new CompressedGraph.Builder(2).addVertex(0, new int[]{1, 0}, 2);
+            assert (false);
+        } catch (IllegalArgumentException e) {
+            //the neighbors are not sorted
+        }
+        try {
+            new CompressedGraph.Builder(2).addVertex(0, new int[]{1}, 1).build();
+            assert (false);
+        } catch (IllegalStateException e) {
+            //a vertex is missing
+        }
+        graph.connect(keys[0], keys[1], 2);
+        try {
+            CompressedGraph.of(graph, VertexOrdering.KEY);
+            assert (false);
+        } catch (UnsupportedOperationException e) {
+            //the lengths can not be compressed
+        }
+    }
+
+    /**
+     * The word-wide BFS of a bit matrix finds the distances and paths of a plain BFS, on a dense graph and on
+     * a sparse one with vertices past the last full word.
+     */
+    public static void bitMatrixTest() {
+        IQueryPlanner matrixPlanner = new IQueryPlanner() {
+            @Override
+            public Strategy plan(QueryProfile profile) {
+                return profile.candidates().contains(Strategy.BIT_MATRIX_BFS) ? Strategy.BIT_MATRIX_BFS : profile.fallback();
+            }
+
+            @Override
+            public void observe(Strategy strategy, QueryProfile profile, long nanos, long nodesVisited) {
+            }
+        };
+        for (EdgeList edges : new EdgeList[]{GraphGenerators.erdosRenyi(300, 10000, seed),
+                GraphGenerators.barabasiAlbert(500, 1, seed)}) {
+            UndirectedGraph graph = new UndirectedGraph();
+            int[] keys = edges.loadInto(graph);
+            graph.removeNode(keys[7]);
+            BitMatrixGraph matrix = BitMatrixGraph.of(graph);
+            assert (sameGraph(matrix, graph));
+            long n = graph.nodeSize();
+            assert (Math.abs(matrix.density() - graph.edgeSize() / (n * (n - 1) / 2.0)) < 1e-12);
+            GraphAlgorithms plain = new GraphAlgorithms(graph);
+            GraphAlgorithms ga = new GraphAlgorithms(matrix);
+            GraphAlgorithmsStats stats = new GraphAlgorithmsStats();
+            ga.setStats(stats);
+            ga.setPlanner(matrixPlanner);
+            for (int i = 0; i < 20; ++i) {
+                int src = keys[i];
+                for (int dest : keys) {
+                    int dist = plain.shortestPathDist(src, dest);
+                    assert (ga.shortestPathDist(src, dest) == dist);
+                    List<INodeData> path = ga.shortestPath(src, dest);
+                    assert (path.size() == dist + 1 || (dist == -1 && path.isEmpty()));
+                    for (int j = 1; j < path.size(); ++j) {
+                        assert (graph.hasEdge(path.get(j - 1).getKey(), path.get(j).getKey()));
+                    }
+                }
+            }
+            assert (stats.getPlans(IQueryPlanner.Strategy.BIT_MATRIX_BFS) > 0);
+        }
+    }
+
+    /**
+     * The early exit searches, pooled and run concurrently, find the distances of the tree building ones,
+     * visiting little of the graph for a near destination; the lazy path keys walk a shortest path.
+     */
+    public static void distanceQueriesTest() {
+        IQueryPlanner earlyExitPlanner = new IQueryPlanner() {
+            @Override
+            public Strategy plan(QueryProfile profile) {
+                return profile.candidates().contains(Strategy.EARLY_EXIT) ? Strategy.EARLY_EXIT : profile.fallback();
+            }
+
+            @Override
+            public void observe(Strategy strategy, QueryProfile profile, long nanos, long nodesVisited) {
+            }
+        };
+        UndirectedGraph graph = new UndirectedGraph();
+        int[] keys = GraphGenerators.barabasiAlbert(2000, 2, seed).loadInto(graph);
+        //an isolated node
+        graph.addNode(new NodeData(keys[keys.length - 1] + 1));
+        for (boolean weighted : new boolean[]{false, true}) {
+            if (weighted) {
+                Random rnd = new Random(seed);
+                for (int i = 0; i < 1000; ++i) {
+                    int a = keys[rnd.nextInt(keys.length)];
+                    for (INodeData ni : graph.getV(a)) {
+                        graph.connect(a, ni.getKey(), 1 + rnd.nextInt(5));
+                    }
+                }
+            }
+            GraphSnapshot snapshot = GraphSnapshot.of(graph);
+            GraphAlgorithms plain = new GraphAlgorithms(snapshot);
+            plain.setPlanner(treePlanner());
+            GraphAlgorithms ga = new GraphAlgorithms(snapshot);
+            GraphAlgorithmsStats stats = new GraphAlgorithmsStats();
+            ga.setStats(stats);
+            ga.setPlanner(earlyExitPlanner);
+            Random rnd = new Random(seed);
+            for (int i = 0; i < 500; ++i) {
+                int src = keys[rnd.nextInt(keys.length)];
+                int dest = keys[rnd.nextInt(keys.length)];
+                assert (ga.shortestPathDist(src, dest) == plain.shortestPathDist(src, dest));
+            }
+            assert (stats.getPlans(IQueryPlanner.Strategy.EARLY_EXIT) > 0);
+            boolean concurrentOk = IntStream.range(0, 2000).parallel().allMatch(i -> {
+                int src = keys[(i * 7919) % keys.length];
+                int dest = keys[(i * 104729) % keys.length];
+                return ga.shortestPathDist(src, dest) == plain.shortestPathDist(src, dest);
+            });
+            assert (concurrentOk);
+            assert (ga.shortestPathDist(keys[0], keys[keys.length - 1] + 1) == -1);
+
+            //the last vertex attached to a hub, whose whole component is the graph
+            int last = keys[keys.length - 1];
+            int hub = graph.getV(last).iterator().next().getKey();
+            stats.reset();
+            ga.shortestPathDist(last, hub);
+            assert (stats.getNodesSettled() < keys.length / 2);
+        }
+
+        GraphAlgorithms ga = new GraphAlgorithms(graph);
+        Random rnd = new Random(seed);
+        for (int i = 0; i < 100; ++i) {
+            int src = keys[rnd.nextInt(keys.length)];
+            int dest = keys[rnd.nextInt(keys.length)];
+            List<Integer> path = new ArrayList<>();
+            ga.shortestPathKeys(src, dest).forEachRemaining((int key) -> path.add(key));
+            assert (path.get(0) == src && path.get(path.size() - 1) == dest);
+            double length = 0;
+            for (int j = 1; j < path.size(); ++j) {
+                assert (graph.hasEdge(path.get(j - 1), path.get(j)));
+                length += graph.getEdgeLength(path.get(j - 1), path.get(j));
+            }
+            assert (Math.abs(length - ga.shortestPathLength(src, dest)) < 1e-9);
+        }
+        PrimitiveIterator.OfInt none = ga.shortestPathKeys(keys[0], keys[keys.length - 1] + 1);
+        assert (!none.hasNext());
+        try {
+            none.nextInt();
+            assert (false);
+        } catch (NoSuchElementException e) {
+            //there is no path
+        }
+        PrimitiveIterator.OfInt self = ga.shortestPathKeys(keys[3], keys[3]);
+        assert (self.nextInt() == keys[3] && !self.hasNext());
+    }
+
+    /**
+     * return the largest difference between the indices of two neighbors.
+     */
+    private static int bandwidth(IAdjacencyView view) {
+        int[] ni = new int[view.maxDegree()];
+        int bandwidth = 0;
+        for (int v = 0; v < view.capacity(); ++v) {
+            if (!view.contains(v)) continue;
+            int degree = view.neighbors(v, ni);
+            for (int i = 0; i < degree; ++i) {
+                bandwidth = Math.max(bandwidth, Math.abs(ni[i] - v));
+            }
+        }
+        return bandwidth;
+    }
+
+    private static boolean sameEdges(EdgeList a, EdgeList b) {
+        if (a.vertexCount() != b.vertexCount() || a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); ++i) {
+            if (a.from(i) != b.from(i) || a.to(i) != b.to(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * return a planner building a tree for every query, so the cache fills up.
+     */
+    private static IQueryPlanner treePlanner() {
+        return new IQueryPlanner() {
+            @Override
+            public Strategy plan(QueryProfile profile) {
+                return profile.candidates().contains(Strategy.CACHED_TREE) ? Strategy.CACHED_TREE : Strategy.BFS;
+            }
+
+            @Override
+            public void observe(Strategy strategy, QueryProfile profile, long nanos, long nodesVisited) {
+            }
+        };
+    }
+
+    private static boolean sameInfo(IGraph a, IGraph b) {
+        for (INodeData node : a.getV()) {
+            if (!String.valueOf(node.getInfo()).equals(String.valueOf(b.getNode(node.getKey()).getInfo()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void deleteDirectory(Path dir) {
+        if (dir == null) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            //a temporary directory, left to the system
+            return;
+        }
+        try {
+            Files.delete(dir);
+        } catch (IOException e) {
+            //a temporary directory, left to the system
+        }
+    }
+
+    private static void randomMutations(UndirectedGraph graph, int[] keys, Random rnd, int count) {
+        for (int i = 0; i < count; ++i) {
+            int a = keys[rnd.nextInt(keys.length)];
+            int b = keys[rnd.nextInt(keys.length)];
+            if (a == b) {
+                //a compact view has no self loops
+                continue;
+            }
+            switch (rnd.nextInt(5)) {
+                case 0:
+                    graph.removeEdge(a, b);
+                    break;
+                case 1:
+                    graph.connect(a, b, 1 + rnd.nextInt(4));
+                    break;
+                case 2:
+                    graph.removeNode(a);
+                    NodeData node = new NodeData(a);
+                    node.setInfo("re-added");
+                    graph.addNode(node);
+                    break;
+                default:
+                    graph.connect(a, b);
+            }
+        }
+    }
+
+    /**
+     * return true iff the graphs have the same nodes, edges and edge lengths.
+     */
+    private static boolean sameGraph(IGraph a, IGraph b) {
+        if (a.nodeSize() != b.nodeSize() || a.edgeSize() != b.edgeSize()) {
+            return false;
+        }
+        for (INodeData node : a.getV()) {
+            if (b.getNode(node.getKey()) == null) {
+                return false;
+            }
+            for (INodeData ni : a.getV(node.getKey())) {
+                if (!b.hasEdge(node.getKey(), ni.getKey())
+                        || a.getEdgeLength(node.getKey(), ni.getKey()) != b.getEdgeLength(node.getKey(), ni.getKey())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     public static int nextRnd(int min, int max) {
         double v = nextRnd(0.0 + min, (double) max);
         int ans = (int) v;
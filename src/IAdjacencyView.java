@@ -0,0 +1,103 @@
+import java.util.Arrays;
+
+/**
+ * This interface represents a read-only adjacency view of an undirectional graph,
+ * this is the representation the algorithms in GraphAlgorithms traverse.
+ * The vertices of the view occupy slots (indexes) 0..capacity()-1, a slot may be empty,
+ * and every vertex is mapped back to the key of the node_data it represents.
+ * Note: all the methods should run in O(1) time, except neighbors which runs in O(degree).
+ */
+public interface IAdjacencyView {
+    /**
+     * return the number of slots in this view, every index is in the range 0..capacity()-1.
+     *
+     * @return
+     */
+    int capacity();
+
+    /**
+     * return true iff there is a vertex in the given slot.
+     *
+     * @param index
+     * @return
+     */
+    boolean contains(int index);
+
+    /**
+     * return the number of vertices (nodes) in the view.
+     *
+     * @return
+     */
+    int vertexCount();
+
+    /**
+     * return the number of edges (undirectional graph).
+     *
+     * @return
+     */
+    int edgeCount();
+
+    /**
+     * return the node key of the vertex in the given slot.
+     *
+     * @param index
+     * @return
+     */
+    int keyOf(int index);
+
+    /**
+     * return the slot of the vertex with the given node key.
+     *
+     * @param key
+     * @return the index of the vertex, -1 if none.
+     */
+    int indexOf(int key);
+
+    /**
+     * return the number of neighbors of the vertex in the given slot.
+     *
+     * @param index
+     * @return
+     */
+    int degree(int index);
+
+    /**
+     * return the highest degree in the view, a buffer of that length fits every neighborhood.
+     *
+     * @return
+     */
+    int maxDegree();
+
+    /**
+     * Writes the indexes of all the neighbors of the vertex in the given slot to the buffer.
+     *
+     * @param index  the vertex
+     * @param buffer the destination, of length maxDegree() at least
+     * @return the number of neighbors written.
+     */
+    int neighbors(int index, int[] buffer);
+
+    /**
+     * return true iff the edges have lengths other than 1 (see IGraph.getEdgeLength), so a breadth first
+     * search does not find the shortest paths.
+     *
+     * @return
+     */
+    default boolean isWeighted() {
+        return false;
+    }
+
+    /**
+     * Writes the lengths of the edges of the vertex in the given slot to the buffer,
+     * in the order neighbors(index, buffer) writes the neighbors - all 1 unless isWeighted().
+     *
+     * @param index  the vertex
+     * @param buffer the destination, of length maxDegree() at least
+     * @return the number of lengths written.
+     */
+    default int lengths(int index, double[] buffer) {
+        int degree = this.degree(index);
+        Arrays.fill(buffer, 0, degree, 1.0);
+        return degree;
+    }
+}
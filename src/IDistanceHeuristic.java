@@ -0,0 +1,17 @@
+/**
+ * This interface represents an estimate of the distance between two nodes, for A* (see GraphAlgorithms.setHeuristic).
+ * The estimate must never be more than the length of the shortest path between them (admissible),
+ * or A* may return a longer path - e.g. the straight line distance between the coordinates of two places.
+ * It need not be consistent (never dropping by more than the length of an edge): A* then settles some
+ * vertices again, and runs longer, but still returns a shortest path.
+ */
+public interface IDistanceHeuristic {
+    /**
+     * return a lower bound of the distance from the node with key to the node with destKey.
+     *
+     * @param key
+     * @param destKey
+     * @return
+     */
+    double estimate(int key, int destKey);
+}
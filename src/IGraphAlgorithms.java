@@ -5,6 +5,13 @@
  * 2. isConnected();
  * 3. int shortestPathDist(int src, int dest);
  * 4. List<Node> shortestPath(int src, int dest);
+ * 5. int[] connectedComponents();
+ * 6. double[] betweenness();
+ * 7. double[] pageRank();
+ * 8. long triangleCount();
+ * 9. int[] coreNumbers();
+ * 10. int diameter();
+ * 11. SpanningForest minimumSpanningForest();
  *
  * @author boaz.benmoshe
  *
@@ -45,6 +52,7 @@ public interface IGraphAlgorithms {
 	/**
 	 * returns the the shortest path between src to dest - as an ordered List of nodes:
 	 * src--> n1-->n2-->...dest
+	 * the path from a node to itself is the node alone.
 	 * see: https://en.wikipedia.org/wiki/Shortest_path_problem
 	 *
 	 * @param src  - start node
@@ -52,5 +60,116 @@ public interface IGraphAlgorithms {
 	 * @return
 	 */
 	public List<INodeData> shortestPath(int src, int dest);
-}
 
+	/**
+	 * returns the connected component id of every node, indexed by the node key:
+	 * two nodes are connected iff they have the same id, keys with no node in the graph get -1.
+	 * Note: the ids are computed once per graph mode count (see IGraph.getMC()).
+	 *
+	 * @return
+	 */
+	public int[] connectedComponents();
+
+	/**
+	 * returns the betweenness centrality of every node, indexed by the node key:
+	 * the number of shortest paths between other nodes which pass through it,
+	 * keys with no node in the graph get -1.
+	 * see: https://en.wikipedia.org/wiki/Betweenness_centrality
+	 *
+	 * @return
+	 */
+	public double[] betweenness();
+
+	/**
+	 * estimates the betweenness centrality of every node from the shortest paths of a sample of sources.
+	 *
+	 * @param samples - the number of sources
+	 * @param seed - the seed of the sample
+	 * @return
+	 */
+	public BetweennessEstimate betweenness(int samples, long seed);
+
+	/**
+	 * returns the PageRank of every node, indexed by the node key, keys with no node in the graph get -1.
+	 * see: https://en.wikipedia.org/wiki/PageRank
+	 *
+	 * @return
+	 */
+	public double[] pageRank();
+
+	/**
+	 * returns a personalized PageRank for every set of seed nodes, each indexed by the node key:
+	 * the PageRank when the random walk jumps back to the seeds rather than to any node.
+	 *
+	 * @param seeds - the keys of the seed nodes of every ranking
+	 * @return
+	 */
+	public double[][] personalizedPageRank(int[][] seeds);
+
+	/**
+	 * returns the number of triangles in the graph - sets of three nodes which are all connected.
+	 *
+	 * @return
+	 */
+	public long triangleCount();
+
+	/**
+	 * returns the number of triangles of every node, indexed by the node key,
+	 * keys with no node in the graph get -1.
+	 *
+	 * @return
+	 */
+	public long[] triangles();
+
+	/**
+	 * returns the local clustering coefficient of every node, indexed by the node key:
+	 * the fraction of the pairs of its neighbors which are connected, keys with no node in the graph get -1.
+	 * see: https://en.wikipedia.org/wiki/Clustering_coefficient
+	 *
+	 * @return
+	 */
+	public double[] clusteringCoefficients();
+
+	/**
+	 * returns the core number of every node, indexed by the node key: the largest k such that
+	 * the node is in a subgraph where every node has k neighbors at least.
+	 * keys with no node in the graph get -1.
+	 * see: https://en.wikipedia.org/wiki/Degeneracy_(graph_theory)
+	 *
+	 * @return
+	 */
+	public int[] coreNumbers();
+
+	/**
+	 * returns the diameter of the graph - the longest shortest path between two connected nodes,
+	 * -1 for an empty graph.
+	 *
+	 * @return
+	 */
+	public int diameter();
+
+	/**
+	 * returns the radius of the graph - the smallest eccentricity of a node, -1 for an empty graph.
+	 *
+	 * @return
+	 */
+	public int radius();
+
+	/**
+	 * returns the eccentricity of every node, indexed by the node key:
+	 * its largest distance from a node it is connected to, keys with no node in the graph get -1.
+	 * see: https://en.wikipedia.org/wiki/Distance_(graph_theory)
+	 *
+	 * @return
+	 */
+	public int[] eccentricities();
+
+	/**
+	 * returns a minimum spanning forest of the graph - a spanning tree of every connected component,
+	 * of the smallest total edge length.
+	 * see: https://en.wikipedia.org/wiki/Minimum_spanning_tree
+	 *
+	 * @return
+	 */
+	public SpanningForest minimumSpanningForest();
+}
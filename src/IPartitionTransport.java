@@ -0,0 +1,43 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * This interface represents the messaging between the endpoints of a partitioned graph (see PartitionedGraph):
+ * the partitions, which hold the vertices, and the coordinator, which runs the queries.
+ * The endpoints are numbered 0..endpoints()-1 and exchange messages of ints, which arrive in the order
+ * they were sent from every endpoint to every other one.
+ * Note: a message belongs to the transport once sent, the sender should not change it.
+ */
+public interface IPartitionTransport extends Closeable {
+    /**
+     * return the number of this endpoint.
+     *
+     * @return
+     */
+    int self();
+
+    /**
+     * return the number of endpoints.
+     *
+     * @return
+     */
+    int endpoints();
+
+    /**
+     * Sends a message to the given endpoint, without waiting for it to be received.
+     *
+     * @param to      the endpoint
+     * @param message the message
+     * @throws IOException if the endpoint can not be reached
+     */
+    void send(int to, int[] message) throws IOException;
+
+    /**
+     * return the next message from the given endpoint, waiting for it to arrive.
+     *
+     * @param from the endpoint
+     * @return
+     * @throws IOException if the endpoint was closed, or the thread was interrupted while waiting
+     */
+    int[] receive(int from) throws IOException;
+}
@@ -0,0 +1,62 @@
+/**
+ * This interface represents the planner which chooses how GraphAlgorithms answers a shortest path query,
+ * set with GraphAlgorithms.setPlanner(). The planner is told what every choice cost, so it can learn from
+ * the recent queries.
+ * Note: a planner may be shared by many sets of algorithms and threads, it should be thread safe.
+ */
+public interface IQueryPlanner {
+
+    /**
+     * The ways to answer a shortest path query.
+     */
+    enum Strategy {
+        /**
+         * Read the path from the cached shortest path tree of the source.
+         */
+        CACHED_TREE,
+        /**
+         * A breadth first search of the whole component of the source, its tree is cached.
+         */
+        BFS,
+        /**
+         * Breadth first searches from both ends until they meet, nothing is cached.
+         */
+        BIDIRECTIONAL_BFS,
+        /**
+         * Dijkstra over the whole component of the source, its tree is cached.
+         */
+        DIJKSTRA,
+        /**
+         * A* toward the destination, guided by the heuristic of the algorithms, nothing is cached.
+         */
+        A_STAR,
+        /**
+         * The word-wide BFS of a BitMatrixGraph, its tree is cached.
+         */
+        BIT_MATRIX_BFS,
+        /**
+         * For a distance query only: BFS (Dijkstra if weighted) from the source until the destination is
+         * reached, keeping the distances only - nothing is cached.
+         */
+        EARLY_EXIT
+    }
+
+    /**
+     * return the strategy to answer the given query with,
+     * it should be one of profile.candidates() - any other is replaced by the default of the graph.
+     *
+     * @param profile
+     * @return
+     */
+    Strategy plan(QueryProfile profile);
+
+    /**
+     * Tells the planner what running the given strategy cost.
+     *
+     * @param strategy     the strategy which ran
+     * @param profile      the query it answered
+     * @param nanos        the time it took
+     * @param nodesVisited the number of vertices it visited
+     */
+    void observe(Strategy strategy, QueryProfile profile, long nanos, long nodesVisited);
+}
@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The transport between endpoints which are threads of the same process, a stand-in for sockets:
+ * every endpoint has a queue of messages from every other one.
+ */
+public class InProcessTransport implements IPartitionTransport {
+    /**
+     * Put in the queues of the peers of a closed endpoint, so they fail rather than wait forever.
+     */
+    private static final int[] CLOSED = new int[0];
+    private final int self;
+    /**
+     * queues[to][from], shared by all the endpoints of the network.
+     */
+    private final BlockingQueue<int[]>[][] queues;
+    private volatile boolean closed = false;
+
+    private InProcessTransport(int self, BlockingQueue<int[]>[][] queues) {
+        this.self = self;
+        this.queues = queues;
+    }
+
+    /**
+     * return the given number of endpoints, connected to each other.
+     *
+     * @param endpoints
+     * @return
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static InProcessTransport[] network(int endpoints) {
+        if (endpoints < 1) {
+            throw new IllegalArgumentException("illegal number of endpoints: " + endpoints);
+        }
+        BlockingQueue<int[]>[][] queues = new BlockingQueue[endpoints][endpoints];
+        for (int to = 0; to < endpoints; ++to) {
+            for (int from = 0; from < endpoints; ++from) {
+                queues[to][from] = new LinkedBlockingQueue<>();
+            }
+        }
+        InProcessTransport[] network = new InProcessTransport[endpoints];
+        for (int i = 0; i < endpoints; ++i) {
+            network[i] = new InProcessTransport(i, queues);
+        }
+        return network;
+    }
+
+    @Override
+    public int self() {
+        return this.self;
+    }
+
+    @Override
+    public int endpoints() {
+        return this.queues.length;
+    }
+
+    @Override
+    public void send(int to, int[] message) throws IOException {
+        if (this.closed) {
+            throw new IOException("endpoint " + this.self + " is closed");
+        }
+        this.queues[to][this.self].add(message);
+    }
+
+    @Override
+    public int[] receive(int from) throws IOException {
+        if (this.closed) {
+            throw new IOException("endpoint " + this.self + " is closed");
+        }
+        int[] message;
+        try {
+            message = this.queues[this.self][from].take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while receiving from endpoint " + from);
+        }
+        if (message == CLOSED) {
+            //kept for the next receive, which fails too
+            this.queues[this.self][from].add(CLOSED);
+            throw new IOException("endpoint " + from + " is closed");
+        }
+        return message;
+    }
+
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        for (int to = 0; to < this.queues.length; ++to) {
+            if (to != this.self) {
+                this.queues[to][this.self].add(CLOSED);
+            }
+        }
+    }
+}
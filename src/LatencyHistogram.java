@@ -0,0 +1,94 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of latencies, in buckets of powers of two nanoseconds:
+ * bucket i counts the latencies in [2^(i-1), 2^i) ns (bucket 0 counts 0 ns).
+ * Recording is a single LongAdder increment, so it does not contend between threads.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; ++i) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a single latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        this.buckets[BUCKETS - Long.numberOfLeadingZeros(nanos)].increment();
+        this.totalNanos.add(nanos);
+    }
+
+    /**
+     * return the number of recorded latencies.
+     *
+     * @return
+     */
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : this.buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * return the number of latencies recorded in bucket i, [2^(i-1), 2^i) ns.
+     *
+     * @param i
+     * @return
+     */
+    public long bucketCount(int i) {
+        return this.buckets[i].sum();
+    }
+
+    /**
+     * return the mean latency in nanoseconds, 0 if none was recorded.
+     *
+     * @return
+     */
+    public double mean() {
+        long count = this.count();
+        return count == 0 ? 0 : (double) this.totalNanos.sum() / count;
+    }
+
+    /**
+     * Estimates a percentile by the upper bound of the bucket it falls in.
+     *
+     * @param p the percentile, in (0,100]
+     * @return an upper bound of the percentile in nanoseconds, 0 if nothing was recorded.
+     */
+    public long percentile(double p) {
+        long count = this.count();
+        long rank = (long) Math.ceil(count * p / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += this.buckets[i].sum();
+            if (seen >= rank && seen > 0) {
+                return (1L << i) - 1;
+            }
+        }
+        return 0;
+    }
+
+    public void reset() {
+        for (LongAdder bucket : this.buckets) {
+            bucket.reset();
+        }
+        this.totalNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count:%d, mean:%.0fns, p50<=%dns, p99<=%dns, p999<=%dns",
+                this.count(), this.mean(), this.percentile(50), this.percentile(99), this.percentile(99.9));
+    }
+}
@@ -0,0 +1,247 @@
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * The minimum spanning forest kernels of GraphAlgorithms, over the edges of a view copied into primitive
+ * arrays - every edge once, from the lower slot to the higher one.
+ * The edges are ordered by their length and then by their position in the arrays, so no two edges are equal,
+ * the minimum spanning forest is unique and both kernels find the same one.
+ */
+final class MinimumSpanningForest {
+    private static final int CHUNK = 1 << 12;
+
+    private final IAdjacencyView view;
+    private final int[] from;
+    private final int[] to;
+    private final double[] lengths;
+
+    /**
+     * Copies the edges of the given view, in parallel.
+     */
+    MinimumSpanningForest(IAdjacencyView view) {
+        this.view = view;
+        int n = view.capacity();
+        int[] start = new int[n + 1];
+        IntStream.range(0, n).parallel().forEach(v -> {
+            if (!view.contains(v)) return;
+            int[] ni = new int[view.degree(v)];
+            int degree = view.neighbors(v, ni);
+            for (int i = 0; i < degree; ++i) {
+                if (ni[i] > v) start[v + 1]++;
+            }
+        });
+        for (int v = 0; v < n; ++v) {
+            start[v + 1] += start[v];
+        }
+        this.from = new int[start[n]];
+        this.to = new int[start[n]];
+        this.lengths = new double[start[n]];
+        IntStream.range(0, n).parallel().forEach(v -> {
+            if (!view.contains(v)) return;
+            int[] ni = new int[view.degree(v)];
+            double[] lengths = new double[ni.length];
+            int degree = view.neighbors(v, ni);
+            view.lengths(v, lengths);
+            int e = start[v];
+            for (int i = 0; i < degree; ++i) {
+                if (ni[i] > v) {
+                    this.from[e] = v;
+                    this.to[e] = ni[i];
+                    //+0.0 turns -0.0 into 0.0, which the sort would put apart
+                    this.lengths[e++] = lengths[i] + 0.0;
+                }
+            }
+        });
+    }
+
+    /**
+     * return true iff edge a is lighter than edge b.
+     */
+    private boolean lighter(int a, int b) {
+        return this.lengths[a] < this.lengths[b] || (this.lengths[a] == this.lengths[b] && a < b);
+    }
+
+    /**
+     * Kruskal: the edges are taken by their order, and every edge which connects two different trees
+     * joins them - the trees are kept in a union-find of int arrays.
+     * Note: this method runs in O(|E| log|V|) time, the sort is a radix sort of O(|E|).
+     *
+     * @return
+     */
+    SpanningForest kruskal() {
+        int m = this.from.length;
+        int[] order = this.view.isWeighted() ? this.sortByLength() : null;
+        //parent[v] is the parent of v in its tree, or minus its size for a root
+        int[] parent = new int[this.view.capacity()];
+        Arrays.fill(parent, -1);
+        int[] forest = new int[Math.max(0, this.view.vertexCount() - 1)];
+        int size = 0;
+        for (int i = 0; i < m && size < forest.length; ++i) {
+            if ((i & ((1 << 16) - 1)) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("the query was interrupted");
+            }
+            int e = order == null ? i : order[i];
+            int a = find(parent, this.from[e]);
+            int b = find(parent, this.to[e]);
+            if (a == b) continue;
+            //union by size
+            if (parent[a] > parent[b]) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+            parent[a] += parent[b];
+            parent[b] = a;
+            forest[size++] = e;
+        }
+        return this.forest(forest, size);
+    }
+
+    private static int find(int[] parent, int v) {
+        //path halving: every vertex on the way skips to its grandparent
+        while (parent[v] >= 0) {
+            if (parent[parent[v]] >= 0) {
+                parent[v] = parent[parent[v]];
+            }
+            v = parent[v];
+        }
+        return v;
+    }
+
+    /**
+     * return the positions of the edges ordered by their length, by a stable LSD radix sort of the bits of
+     * the lengths, a byte at a time - the bytes all the lengths share are skipped.
+     */
+    private int[] sortByLength() {
+        int m = this.from.length;
+        long[] keys = new long[m];
+        int[] order = new int[m];
+        for (int e = 0; e < m; ++e) {
+            long bits = Double.doubleToLongBits(this.lengths[e]);
+            //the bits of a double in the order of its value, as an unsigned number
+            keys[e] = (bits ^ ((bits >> 63) & Long.MAX_VALUE)) ^ Long.MIN_VALUE;
+            order[e] = e;
+        }
+        long[] keysTmp = new long[m];
+        int[] orderTmp = new int[m];
+        int[] count = new int[257];
+        for (int shift = 0; shift < 64; shift += 8) {
+            Arrays.fill(count, 0);
+            for (int i = 0; i < m; ++i) {
+                count[((int) (keys[i] >>> shift) & 0xff) + 1]++;
+            }
+            if (m == 0 || count[((int) (keys[0] >>> shift) & 0xff) + 1] == m) continue;
+            for (int b = 0; b < 256; ++b) {
+                count[b + 1] += count[b];
+            }
+            for (int i = 0; i < m; ++i) {
+                int slot = count[(int) (keys[i] >>> shift) & 0xff]++;
+                keysTmp[slot] = keys[i];
+                orderTmp[slot] = order[i];
+            }
+            long[] k = keys;
+            keys = keysTmp;
+            keysTmp = k;
+            int[] o = order;
+            order = orderTmp;
+            orderTmp = o;
+        }
+        return order;
+    }
+
+    /**
+     * Boruvka, in parallel: in every round each tree finds its lightest edge to another tree (by a
+     * compare-and-set on the lightest edge found so far), and is hooked to that tree through it. The order of
+     * the edges leaves no cycles but the two trees which found the same edge, of which only the higher
+     * is hooked. The labels then jump to the root of the hooked trees, and the edges inside a tree are
+     * dropped - the number of trees halves at least in every round.
+     * Note: this method runs in O((|V|+|E|) log|V|) time, in parallel.
+     *
+     * @param caller the thread which waits for the result, its interrupt cancels the computation
+     * @return
+     */
+    SpanningForest boruvka(Thread caller) {
+        int n = this.view.capacity();
+        int[] label = IntStream.range(0, n).toArray();
+        AtomicIntegerArray lightest = new AtomicIntegerArray(n);
+        IntStream.range(0, n).parallel().forEach(v -> lightest.set(v, -1));
+        int[] hook = new int[n];
+        int[] forest = new int[Math.max(0, this.view.vertexCount() - 1)];
+        AtomicInteger size = new AtomicInteger();
+        int[] alive = IntStream.range(0, this.from.length).toArray();
+        while (alive.length > 0) {
+            if (caller.isInterrupted()) {
+                throw new CancellationException("the query was interrupted");
+            }
+            int[] edges = alive;
+            IntStream.range(0, (edges.length + CHUNK - 1) / CHUNK).parallel().forEach(chunk -> {
+                for (int i = chunk * CHUNK; i < Math.min(edges.length, (chunk + 1) * CHUNK); ++i) {
+                    int e = edges[i];
+                    this.offer(lightest, label[this.from[e]], e);
+                    this.offer(lightest, label[this.to[e]], e);
+                }
+            });
+            //the hooks are all found before any label changes
+            IntStream.range(0, n).parallel().forEach(c -> {
+                int e = lightest.get(c);
+                hook[c] = c;
+                if (e == -1) return;
+                int other = label[this.from[e]] == c ? label[this.to[e]] : label[this.from[e]];
+                if (lightest.get(other) != e || c > other) {
+                    hook[c] = other;
+                    forest[size.getAndIncrement()] = e;
+                }
+            });
+            IntStream.range(0, n).parallel().forEach(c -> {
+                if (lightest.get(c) != -1) {
+                    label[c] = hook[c];
+                    lightest.set(c, -1);
+                }
+            });
+            //pointer jumping, a label read while it changes is still an ancestor
+            boolean changed = true;
+            while (changed) {
+                changed = IntStream.range(0, (n + CHUNK - 1) / CHUNK).parallel().map(chunk -> {
+                    int changes = 0;
+                    for (int v = chunk * CHUNK; v < Math.min(n, (chunk + 1) * CHUNK); ++v) {
+                        int up = label[label[v]];
+                        if (up != label[v]) {
+                            label[v] = up;
+                            changes++;
+                        }
+                    }
+                    return changes;
+                }).sum() > 0;
+            }
+            alive = IntStream.of(edges).parallel().filter(e -> label[this.from[e]] != label[this.to[e]]).toArray();
+        }
+        return this.forest(forest, size.get());
+    }
+
+    /**
+     * Sets the lightest edge of tree c to e, unless a lighter one is already set.
+     */
+    private void offer(AtomicIntegerArray lightest, int c, int e) {
+        while (true) {
+            int current = lightest.get(c);
+            if (current != -1 && !this.lighter(e, current)) return;
+            if (lightest.compareAndSet(c, current, e)) return;
+        }
+    }
+
+    private SpanningForest forest(int[] edges, int size) {
+        int[] from = new int[size];
+        int[] to = new int[size];
+        double[] lengths = new double[size];
+        for (int i = 0; i < size; ++i) {
+            int e = edges[i];
+            from[i] = this.view.keyOf(this.from[e]);
+            to[i] = this.view.keyOf(this.to[e]);
+            lengths[i] = this.lengths[e];
+        }
+        return new SpanningForest(from, to, lengths, this.view.vertexCount());
+    }
+}
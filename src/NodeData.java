@@ -1,23 +1,45 @@
 import org.w3c.dom.Node;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 
 public class NodeData implements INodeData {
     private static int currentKey = 0;
     private int key;
     private Integer tag = null;
     private String data = "";
-    private Set<INodeData> neighbors = new HashSet<>();
+    /**
+     * The neighbors by their keys, so looking one up never creates or compares nodes.
+     */
+    private Map<Integer, INodeData> neighbors = new HashMap<>();
 
     public NodeData() {
         this.key = currentKey++;
     }
 
-    private NodeData(int key){
-        this.key=key;
+    /**
+     * A node of the given key, which new nodes will not get again.
+     *
+     * @param key
+     */
+    NodeData(int key) {
+        this.key = key;
+        currentKey = Math.max(currentKey, key + 1);
+    }
+
+    /**
+     * Copies the key, info and tag of the given node, the copy has no neighbors.
+     *
+     * @param other
+     */
+    NodeData(INodeData other) {
+        this.key = other.getKey();
+        this.data = other.getInfo();
+        this.tag = other instanceof NodeData ? ((NodeData) other).tag : Integer.valueOf(other.getTag());
     }
 
     @Override
@@ -27,25 +49,51 @@ public class NodeData implements INodeData {
 
     @Override
     public Collection<INodeData> getNi() {
-        return new HashSet<>(this.neighbors);
+        return new HashSet<>(this.neighbors.values());
+    }
+
+    /**
+     * return a read-only live view of the neighbors, which unlike getNi() does not copy them.
+     *
+     * @return
+     */
+    Collection<INodeData> neighborsView() {
+        return Collections.unmodifiableCollection(this.neighbors.values());
     }
 
+    /**
+     * return the neighbors of the given node, without copying them when it is a NodeData.
+     *
+     * @param node
+     * @return
+     */
+    static Collection<INodeData> neighborsOf(INodeData node) {
+        return node instanceof NodeData ? ((NodeData) node).neighborsView() : node.getNi();
+    }
+
+    /**
+     * return true iff the node with the given key is a neighbor of this one.
+     * Note: this method runs in O(1) time.
+     *
+     * @param key
+     * @return
+     */
     @Override
     public boolean hasNi(int key) {
-        return this.neighbors.contains(new NodeData(key));
+        return this.neighbors.containsKey(key);
     }
 
     @Override
     public void addNi(INodeData t) {
         if (t != null) {
-            this.neighbors.add(t);
+            this.neighbors.putIfAbsent(t.getKey(), t);
         }
     }
 
     @Override
     public void removeNode(INodeData node) {
         if (node != null) {
-            this.neighbors.remove(node);
+            this.neighbors.remove(node.getKey());
         }
     }
 
@@ -111,7 +159,7 @@ public class NodeData implements INodeData {
             sb.append("no neighbors");
         } else {
             sb.append("neighbors:{");
-            for (INodeData neighbor : this.neighbors) {
+            for (INodeData neighbor : this.neighbors.values()) {
                 sb.append(String.format("%d, ", neighbor.getKey()));
             }
             sb.deleteCharAt(sb.lastIndexOf(","));
@@ -129,8 +177,9 @@ public class NodeData implements INodeData {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         NodeData nodeData = (NodeData) o;
+        //the neighbors are compared by their keys, comparing them as nodes would recurse through the graph
         return key == nodeData.key &&
-                Objects.equals(neighbors, nodeData.neighbors);
+                Objects.equals(neighbors.keySet(), nodeData.neighbors.keySet());
     }
 
     @Override
@@ -0,0 +1,115 @@
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.stream.IntStream;
+
+/**
+ * The PageRank kernel of GraphAlgorithms: pull-based power iterations over the CSR arrays of a CompactGraph.
+ * Every iteration first computes the contribution rank/degree of every vertex, then every vertex sums the
+ * contributions of its neighbors into the second rank array - each vertex writes only its own entries,
+ * so the vertices are split between threads in chunks without any synchronization, and the two arrays
+ * are swapped between iterations.
+ * A batch of personalized rankings runs in the same iterations, the ranks of a vertex are interleaved
+ * so the adjacency is read once for the whole batch.
+ */
+final class PageRank {
+    private static final int CHUNK = 1 << 12;
+
+    private PageRank() {
+    }
+
+    /**
+     * Runs the iterations until the L1 change of every ranking is below tolerance, or maxIterations.
+     *
+     * @param g             the graph
+     * @param seeds         the vertices every personalized ranking teleports to, null for a single global ranking
+     * @param damping       the probability of following an edge rather than teleporting
+     * @param tolerance     the L1 change to stop at
+     * @param maxIterations the maximal number of iterations
+     * @param iterations    out: iterations[0] is set to the number of iterations run
+     * @return the ranks, the rank of vertex v in ranking b is at v*batch+b.
+     */
+    static double[] run(CompactGraph g, int[][] seeds, double damping, double tolerance, int maxIterations,
+                        int[] iterations) {
+        int n = g.vertexCount();
+        int batch = seeds == null ? 1 : seeds.length;
+        int[] offsets = g.offsets();
+        int[] targets = g.targets();
+        double[] teleport = new double[n * batch];
+        if (seeds == null) {
+            Arrays.fill(teleport, 1.0 / n);
+        } else {
+            for (int b = 0; b < batch; ++b) {
+                for (int v : seeds[b]) {
+                    teleport[v * batch + b] = 1.0 / seeds[b].length;
+                }
+            }
+        }
+        double[] rank = teleport.clone();
+        double[] next = new double[n * batch];
+        double[] contribution = new double[n * batch];
+        int chunks = (n + CHUNK - 1) / CHUNK;
+        int iteration = 0;
+        while (iteration < maxIterations) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("the query was interrupted");
+            }
+            iteration++;
+            double[] current = rank;
+            //the rank of the vertices with no edges goes back to the teleport vertices
+            double[] dangling = IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+                double[] lost = new double[batch];
+                for (int v = chunk * CHUNK; v < Math.min(n, (chunk + 1) * CHUNK); ++v) {
+                    int degree = offsets[v + 1] - offsets[v];
+                    for (int b = 0; b < batch; ++b) {
+                        if (degree == 0) {
+                            lost[b] += current[v * batch + b];
+                        } else {
+                            contribution[v * batch + b] = current[v * batch + b] / degree;
+                        }
+                    }
+                }
+                return lost;
+            }).reduce(new double[batch], PageRank::sum);
+            double[] target = next;
+            double[] change = IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+                double[] diff = new double[batch];
+                for (int v = chunk * CHUNK; v < Math.min(n, (chunk + 1) * CHUNK); ++v) {
+                    int base = v * batch;
+                    for (int b = 0; b < batch; ++b) {
+                        target[base + b] = 0;
+                    }
+                    for (int e = offsets[v]; e < offsets[v + 1]; ++e) {
+                        int u = targets[e] * batch;
+                        for (int b = 0; b < batch; ++b) {
+                            target[base + b] += contribution[u + b];
+                        }
+                    }
+                    for (int b = 0; b < batch; ++b) {
+                        double t = teleport[base + b];
+                        double value = damping * target[base + b] + (1 - damping + damping * dangling[b]) * t;
+                        target[base + b] = value;
+                        diff[b] += Math.abs(value - current[base + b]);
+                    }
+                }
+                return diff;
+            }).reduce(new double[batch], PageRank::sum);
+            next = rank;
+            rank = target;
+            double maxChange = 0;
+            for (double d : change) {
+                maxChange = Math.max(maxChange, d);
+            }
+            if (maxChange < tolerance) break;
+        }
+        iterations[0] = iteration;
+        return rank;
+    }
+
+    private static double[] sum(double[] a, double[] b) {
+        double[] sum = new double[a.length];
+        for (int i = 0; i < a.length; ++i) {
+            sum[i] = a[i] + b[i];
+        }
+        return sum;
+    }
+}
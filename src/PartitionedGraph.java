@@ -0,0 +1,385 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A graph split into k partitions (see Partitioning), every one held by a GraphPartition in its own process
+ * or thread, with this object as the coordinator of the queries - so the adjacency of the graph is spread
+ * over the memory of k processes, and every traversal over their k cores.
+ * The queries run a level synchronous BFS: every level the coordinator tells all the partitions to expand
+ * their frontiers, they exchange the frontier vertices held by each other in batches (see GraphPartition),
+ * and the coordinator gathers the sizes of the next frontiers, until the destination is reached or the
+ * frontier is empty. A query costs a round trip per level, so it pays on graphs of small diameter.
+ * The coordinator keeps only the partition of every key; the graph is copied into the partitions when this
+ * is made, and later changes to it are not seen.
+ * Note: the queries of a partitioned graph run one at a time.
+ */
+public class PartitionedGraph implements AutoCloseable {
+    private static final long CONNECT_TIMEOUT_MILLIS = 60000;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+    private final IPartitionTransport transport;
+    private final int partitions;
+    private final List<Process> processes;
+    /**
+     * The keys of all the vertices, sorted, and the partition of every one.
+     */
+    private final int[] keys;
+    private final int[] owners;
+    private final int[] partitionSizes;
+    private final int edgeCount;
+    private final int cutEdges;
+    private long keysExchanged = 0;
+
+    /**
+     * Partitions the graph and loads the partitions into the partitions of the transport, which are served
+     * (see GraphPartition.serve) at endpoints 0..k-1 - this is the coordinator, the last endpoint.
+     *
+     * @param graph        the graph
+     * @param partitioning how to split it
+     * @param transport    the transport of the coordinator
+     * @throws IOException if the transport failed
+     */
+    public PartitionedGraph(IGraph graph, Partitioning partitioning, IPartitionTransport transport) throws IOException {
+        this(graph, partitioning, transport, Collections.emptyList());
+    }
+
+    private PartitionedGraph(IGraph graph, Partitioning partitioning, IPartitionTransport transport,
+                             List<Process> processes) throws IOException {
+        this.transport = transport;
+        this.partitions = transport.endpoints() - 1;
+        this.processes = processes;
+        if (this.partitions < 1) {
+            throw new IllegalArgumentException("a transport of " + transport.endpoints() + " endpoints has no partitions");
+        }
+        try {
+            IAdjacencyView view = graph instanceof IAdjacencyView ? (IAdjacencyView) graph
+                    : graph instanceof UndirectedGraph ? ((UndirectedGraph) graph).snapshot() : GraphSnapshot.of(graph);
+            if (view.isWeighted()) {
+                throw new UnsupportedOperationException("partitioning a weighted graph");
+            }
+            int[] partition = partitioning.assign(view, this.partitions);
+            //(key, slot) pairs, so sorting them sorts the slots by key
+            long[] byKey = new long[view.vertexCount()];
+            int n = 0;
+            for (int index = 0; index < view.capacity(); ++index) {
+                if (view.contains(index)) {
+                    byKey[n++] = ((long) view.keyOf(index) << 32) | index;
+                }
+            }
+            Arrays.sort(byKey);
+            this.keys = new int[n];
+            this.owners = new int[n];
+            this.partitionSizes = new int[this.partitions];
+            for (int i = 0; i < n; ++i) {
+                this.keys[i] = (int) (byKey[i] >> 32);
+                this.owners[i] = partition[(int) byKey[i]];
+                this.partitionSizes[this.owners[i]]++;
+            }
+            this.edgeCount = view.edgeCount();
+            long cut = 0;
+            for (int p = 0; p < this.partitions; ++p) {
+                cut += this.load(p, view, partition, byKey);
+            }
+            this.cutEdges = (int) (cut / 2);
+            for (int p = 0; p < this.partitions; ++p) {
+                this.expect(this.transport.receive(p), GraphPartition.READY, p);
+            }
+        } catch (IOException | RuntimeException e) {
+            this.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Sends the given partition its vertices, in key order, and their edges.
+     *
+     * @return the number of edges from the partition to others.
+     */
+    private long load(int p, IAdjacencyView view, int[] partition, long[] byKey) throws IOException {
+        int n = this.partitionSizes[p];
+        long entries = 0;
+        for (long pair : byKey) {
+            if (partition[(int) pair] == p) entries += view.degree((int) pair);
+        }
+        if (3 + 2L * n + 2 * entries > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("partition " + p + " is too large, use more partitions");
+        }
+        int[] message = new int[(int) (3 + 2L * n + 2 * entries)];
+        message[0] = GraphPartition.LOAD;
+        message[1] = n;
+        message[2] = (int) entries;
+        int keyAt = 3, degreeAt = 3 + n, neighborAt = 3 + 2 * n, ownerAt = neighborAt + (int) entries;
+        int[] ni = new int[view.maxDegree()];
+        long cut = 0;
+        for (long pair : byKey) {
+            int v = (int) pair;
+            if (partition[v] != p) continue;
+            int degree = view.neighbors(v, ni);
+            message[keyAt++] = view.keyOf(v);
+            message[degreeAt++] = degree;
+            for (int i = 0; i < degree; ++i) {
+                message[neighborAt++] = view.keyOf(ni[i]);
+                message[ownerAt++] = partition[ni[i]];
+                if (partition[ni[i]] != p) cut++;
+            }
+        }
+        this.transport.send(p, message);
+        return cut;
+    }
+
+    /**
+     * return a partitioned copy of the graph, its k partitions served by threads of this process over
+     * an InProcessTransport.
+     *
+     * @param graph
+     * @param partitions   the number of partitions, k
+     * @param partitioning how to split the graph
+     * @return
+     */
+    public static PartitionedGraph inProcess(IGraph graph, int partitions, Partitioning partitioning) {
+        InProcessTransport[] network = InProcessTransport.network(partitions + 1);
+        for (int p = 0; p < partitions; ++p) {
+            GraphPartition partition = new GraphPartition(network[p]);
+            Thread thread = new Thread(() -> {
+                try {
+                    partition.serve();
+                } catch (IOException e) {
+                    //the coordinator is gone, there is no one to tell
+                }
+            }, "graph-partition-" + p);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        try {
+            return new PartitionedGraph(graph, partitioning, network[partitions], Collections.emptyList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * return a partitioned copy of the graph, its k partitions served by k new JVM processes on this host
+     * (see GraphPartition.main) over localhost sockets. The processes exit when this is closed.
+     *
+     * @param graph
+     * @param partitions   the number of partitions, k
+     * @param partitioning how to split the graph
+     * @return
+     * @throws IOException if a process could not be started or connected
+     */
+    public static PartitionedGraph launch(IGraph graph, int partitions, Partitioning partitioning) throws IOException {
+        List<InetSocketAddress> addresses = freeLoopbackAddresses(partitions + 1);
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        try {
+            for (int p = 0; p < partitions; ++p) {
+                List<String> command = new ArrayList<>(Arrays.asList(java, "-cp",
+                        System.getProperty("java.class.path"), GraphPartition.class.getName(), Integer.toString(p)));
+                for (InetSocketAddress address : addresses) {
+                    command.add(address.getHostString() + ":" + address.getPort());
+                }
+                processes.add(new ProcessBuilder(command).inheritIO().start());
+            }
+            IPartitionTransport transport = SocketTransport.open(partitions, addresses, CONNECT_TIMEOUT_MILLIS);
+            return new PartitionedGraph(graph, partitioning, transport, processes);
+        } catch (IOException | RuntimeException e) {
+            for (Process process : processes) {
+                process.destroyForcibly();
+            }
+            throw e;
+        }
+    }
+
+    private static List<InetSocketAddress> freeLoopbackAddresses(int count) throws IOException {
+        List<ServerSocket> sockets = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        try {
+            //all of them are held open at once, so the ports are distinct
+            for (int i = 0; i < count; ++i) {
+                ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+                sockets.add(socket);
+                addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), socket.getLocalPort()));
+            }
+        } finally {
+            for (ServerSocket socket : sockets) {
+                socket.close();
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * returns the length of the shortest path between src to dest, found by a distributed BFS which stops
+     * at the level dest is reached.
+     *
+     * @param src  - start node
+     * @param dest - end (target) node
+     * @return the distance, -1 if there is no path.
+     */
+    public synchronized int shortestPathDist(int src, int dest) {
+        if (this.partitionOf(src) == -1 || this.partitionOf(dest) == -1) {
+            return -1;
+        }
+        if (src == dest) {
+            return 0;
+        }
+        try {
+            this.broadcast(new int[]{GraphPartition.START, src, 1, dest});
+            int[] report = new int[2];
+            for (int level = 1; ; ++level) {
+                this.step(report);
+                if (report[1] != 0) return level;
+                if (report[0] == 0) return -1;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * returns the number of vertices at every distance from src, found by a distributed BFS of its
+     * whole component: ans[d] is the number of vertices at distance d, so ans.length - 1 is the
+     * eccentricity of src.
+     *
+     * @param src - start node
+     * @return the level sizes, empty if there is no such node.
+     */
+    public synchronized int[] levelSizes(int src) {
+        if (this.partitionOf(src) == -1) {
+            return new int[0];
+        }
+        try {
+            this.broadcast(new int[]{GraphPartition.START, src, 0, 0});
+            int[] levels = new int[16];
+            int depth = 0;
+            levels[depth++] = 1;
+            int[] report = new int[2];
+            while (true) {
+                this.step(report);
+                if (report[0] == 0) break;
+                if (depth == levels.length) levels = Arrays.copyOf(levels, 2 * depth);
+                levels[depth++] = report[0];
+            }
+            return Arrays.copyOf(levels, depth);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs one level of the BFS on all the partitions.
+     *
+     * @param report gets the size of the next frontier and 1 iff the destination was reached (0 otherwise)
+     */
+    private void step(int[] report) throws IOException {
+        this.broadcast(new int[]{GraphPartition.STEP});
+        long reached = 0;
+        int found = 0;
+        for (int p = 0; p < this.partitions; ++p) {
+            int[] message = this.transport.receive(p);
+            this.expect(message, GraphPartition.REPORT, p);
+            reached += message[1];
+            found |= message[2];
+            this.keysExchanged += message[3];
+        }
+        report[0] = (int) reached;
+        report[1] = found;
+    }
+
+    private void broadcast(int[] message) throws IOException {
+        for (int p = 0; p < this.partitions; ++p) {
+            this.transport.send(p, message);
+        }
+    }
+
+    private void expect(int[] message, int type, int p) throws IOException {
+        if (message.length == 0 || message[0] != type) {
+            throw new IOException("unexpected message from partition " + p);
+        }
+    }
+
+    /**
+     * return the partition which holds the node of the given key.
+     *
+     * @param key
+     * @return the partition, -1 if there is no such node.
+     */
+    public int partitionOf(int key) {
+        int i = Arrays.binarySearch(this.keys, key);
+        return i < 0 ? -1 : this.owners[i];
+    }
+
+    public int partitions() {
+        return this.partitions;
+    }
+
+    /**
+     * return the number of vertices (nodes) in every partition.
+     *
+     * @return
+     */
+    public int[] partitionSizes() {
+        return this.partitionSizes.clone();
+    }
+
+    public int vertexCount() {
+        return this.keys.length;
+    }
+
+    public int edgeCount() {
+        return this.edgeCount;
+    }
+
+    /**
+     * return the number of edges between vertices of different partitions.
+     *
+     * @return
+     */
+    public int cutEdges() {
+        return this.cutEdges;
+    }
+
+    /**
+     * return the number of frontier vertices the partitions sent each other so far, over all the queries.
+     *
+     * @return
+     */
+    public synchronized long getKeysExchanged() {
+        return this.keysExchanged;
+    }
+
+    /**
+     * Shuts the partitions down, waiting for the processes of launch() to exit.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            this.broadcast(new int[]{GraphPartition.SHUTDOWN});
+        } catch (IOException e) {
+            //a partition is gone already
+        }
+        try {
+            this.transport.close();
+        } catch (IOException e) {
+            //nothing is left to send
+        }
+        for (Process process : this.processes) {
+            try {
+                if (!process.waitFor(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.Arrays;
+
+/**
+ * Ways of splitting the vertices of an adjacency view into partitions, for a partitioned graph
+ * (see PartitionedGraph). Every partitioning returns partition, where partition[i] is the partition of the
+ * vertex in slot i (-1 for an empty slot), and puts about the same number of vertices in every partition.
+ */
+public enum Partitioning {
+    /**
+     * By a hash of the node key: no state is needed to find the partition of a key, but about (k-1)/k of
+     * the edges cross between partitions.
+     */
+    HASH {
+        @Override
+        public int[] assign(IAdjacencyView view, int partitions) {
+            checkPartitions(partitions);
+            int[] partition = new int[view.capacity()];
+            for (int index = 0; index < view.capacity(); ++index) {
+                partition[index] = view.contains(index) ? hash(view.keyOf(index), partitions) : -1;
+            }
+            return partition;
+        }
+    },
+    /**
+     * Linear deterministic greedy: the vertices are streamed in BFS order, and each one goes to the
+     * partition which holds most of its neighbors so far, discounted by how full it is - so far fewer edges
+     * cross between partitions, and a BFS sends far fewer frontier vertices between them.
+     * Note: this method runs in O(|V|k+|E|) time.
+     */
+    EDGE_CUT {
+        @Override
+        public int[] assign(IAdjacencyView view, int partitions) {
+            checkPartitions(partitions);
+            int[] partition = new int[view.capacity()];
+            Arrays.fill(partition, -1);
+            int[] sizes = new int[partitions];
+            int[] shared = new int[partitions];
+            int[] ni = new int[view.maxDegree()];
+            double capacity = Math.ceil((double) view.vertexCount() / partitions);
+            for (int v : VertexOrdering.BFS.order(view)) {
+                int degree = view.neighbors(v, ni);
+                for (int i = 0; i < degree; ++i) {
+                    if (partition[ni[i]] != -1) shared[partition[ni[i]]]++;
+                }
+                int best = -1;
+                double bestScore = -1;
+                for (int p = 0; p < partitions; ++p) {
+                    if (sizes[p] >= capacity) continue;
+                    double score = shared[p] * (1 - sizes[p] / capacity);
+                    //ties go to the smaller partition
+                    if (score > bestScore || (score == bestScore && sizes[p] < sizes[best])) {
+                        best = p;
+                        bestScore = score;
+                    }
+                }
+                partition[v] = best;
+                sizes[best]++;
+                for (int i = 0; i < degree; ++i) {
+                    if (partition[ni[i]] != -1) shared[partition[ni[i]]] = 0;
+                }
+            }
+            return partition;
+        }
+    };
+
+    /**
+     * return the partition of every slot of the view.
+     *
+     * @param view       the graph
+     * @param partitions the number of partitions, k
+     * @return
+     */
+    public abstract int[] assign(IAdjacencyView view, int partitions);
+
+    /**
+     * return the partition of the given key under HASH.
+     *
+     * @param key
+     * @param partitions
+     * @return
+     */
+    public static int hash(int key, int partitions) {
+        //Fibonacci hashing, so consecutive keys are scattered
+        return (int) (((key * 0x9e3779b97f4a7c15L) >>> 33) % partitions);
+    }
+
+    private static void checkPartitions(int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("illegal number of partitions: " + partitions);
+        }
+    }
+}
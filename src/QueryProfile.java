@@ -0,0 +1,106 @@
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * What a query planner knows about a shortest path query: the query, the graph it runs on and
+ * which strategies can answer it (see IQueryPlanner).
+ */
+public final class QueryProfile {
+    private final GraphAlgorithmsStats.Query query;
+    private final int source;
+    private final int vertexCount;
+    private final int edgeCount;
+    private final int maxDegree;
+    private final boolean weighted;
+    private final Set<IQueryPlanner.Strategy> candidates;
+
+    /**
+     * @param query        the query
+     * @param view         the graph it runs on
+     * @param source       the key of the source of the query
+     * @param treeCached   true iff the shortest path tree of the source is cached
+     * @param hasHeuristic true iff a distance heuristic is set, for A*
+     */
+    QueryProfile(GraphAlgorithmsStats.Query query, IAdjacencyView view, int source, boolean treeCached,
+                 boolean hasHeuristic) {
+        this.query = query;
+        this.source = source;
+        this.vertexCount = view.vertexCount();
+        this.edgeCount = view.edgeCount();
+        this.maxDegree = view.maxDegree();
+        this.weighted = view.isWeighted();
+        this.candidates = EnumSet.noneOf(IQueryPlanner.Strategy.class);
+        if (treeCached) {
+            this.candidates.add(IQueryPlanner.Strategy.CACHED_TREE);
+        }
+        if (this.weighted) {
+            this.candidates.add(IQueryPlanner.Strategy.DIJKSTRA);
+        } else {
+            this.candidates.add(IQueryPlanner.Strategy.BFS);
+            this.candidates.add(IQueryPlanner.Strategy.BIDIRECTIONAL_BFS);
+            if (view instanceof BitMatrixGraph) {
+                this.candidates.add(IQueryPlanner.Strategy.BIT_MATRIX_BFS);
+            }
+        }
+        if (hasHeuristic) {
+            this.candidates.add(IQueryPlanner.Strategy.A_STAR);
+        }
+        if (query == GraphAlgorithmsStats.Query.SHORTEST_PATH_DIST) {
+            this.candidates.add(IQueryPlanner.Strategy.EARLY_EXIT);
+        }
+    }
+
+    public GraphAlgorithmsStats.Query query() {
+        return this.query;
+    }
+
+    /**
+     * return the key of the source of the query, the root of the tree a full traversal builds.
+     *
+     * @return
+     */
+    public int source() {
+        return this.source;
+    }
+
+    public int vertexCount() {
+        return this.vertexCount;
+    }
+
+    public int edgeCount() {
+        return this.edgeCount;
+    }
+
+    public int maxDegree() {
+        return this.maxDegree;
+    }
+
+    /**
+     * return true iff the edges have lengths other than 1, so BFS does not find the shortest paths.
+     *
+     * @return
+     */
+    public boolean isWeighted() {
+        return this.weighted;
+    }
+
+    /**
+     * return the strategies which can answer this query.
+     *
+     * @return
+     */
+    public Set<IQueryPlanner.Strategy> candidates() {
+        return this.candidates;
+    }
+
+    /**
+     * return the strategy to fall back to: the full traversal of the graph.
+     *
+     * @return
+     */
+    public IQueryPlanner.Strategy fallback() {
+        if (this.weighted) return IQueryPlanner.Strategy.DIJKSTRA;
+        return this.candidates.contains(IQueryPlanner.Strategy.BIT_MATRIX_BFS)
+                ? IQueryPlanner.Strategy.BIT_MATRIX_BFS : IQueryPlanner.Strategy.BFS;
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * The shortest paths from a single source, over the slots of the adjacency view they were computed on
+ * (see IAdjacencyView): the previous vertex on the path to every slot and its distance from the source.
+ */
+public final class ShortestPathTree {
+    private final int source;
+    private final int[] prev;
+    private final double[] dist;
+    private final long visited;
+
+    /**
+     * @param source the slot of the source
+     * @param prev   the previous slot on the path to every slot, -1 for the source and unreachable slots
+     * @param dist   the distance of every slot, infinity if unreachable
+     */
+    public ShortestPathTree(int source, int[] prev, double[] dist) {
+        this(source, prev, dist, 0);
+    }
+
+    /**
+     * @param source  the slot of the source
+     * @param prev    the previous slot on the path to every slot, -1 for the source and unreachable slots
+     * @param dist    the distance of every slot, infinity if unreachable
+     * @param visited the number of vertices the search which built the tree visited
+     */
+    ShortestPathTree(int source, int[] prev, double[] dist, long visited) {
+        this.source = source;
+        this.prev = prev;
+        this.dist = dist;
+        this.visited = visited;
+    }
+
+    public int source() {
+        return this.source;
+    }
+
+    /**
+     * return the slot before the given one on its shortest path, -1 for the source and unreachable slots.
+     *
+     * @param index
+     * @return
+     */
+    public int previous(int index) {
+        return this.prev[index];
+    }
+
+    /**
+     * return the distance of the given slot from the source, infinity if unreachable.
+     *
+     * @param index
+     * @return
+     */
+    public double distance(int index) {
+        return this.dist[index];
+    }
+
+    /**
+     * return the number of slots of the view the tree was computed on.
+     *
+     * @return
+     */
+    public int capacity() {
+        return this.prev.length;
+    }
+
+    /**
+     * return the number of vertices the search which built the tree visited, 0 if unknown (a loaded tree).
+     */
+    long visited() {
+        return this.visited;
+    }
+
+    /**
+     * return the previous slots, for saving the tree - must not be changed.
+     */
+    int[] prevArray() {
+        return this.prev;
+    }
+
+    /**
+     * return the distances, for saving the tree - must not be changed.
+     */
+    double[] distArray() {
+        return this.dist;
+    }
+}
@@ -0,0 +1,198 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of shortest path trees by their source key, evicting about the least recently used tree
+ * by the CLOCK algorithm: the trees wait in a queue in the order they were added, a hit only marks its tree
+ * as referenced, and an eviction takes the first tree of the queue - a referenced one is unmarked and queued
+ * again instead, given a second chance.
+ * The hits of every tree are counted, so the hottest trees can be saved (see GraphAlgorithms.saveTreeCache).
+ * No method takes a lock, so a cache can be shared by concurrent queries; under concurrent puts the cache
+ * may hold a few trees more than its capacity for a moment, or evict a few more.
+ */
+public class ShortestPathTreeCache {
+    private final ConcurrentHashMap<Integer, Entry> trees = new ConcurrentHashMap<>();
+    /**
+     * The clock: the entries in the order they were added or given a second chance, and entries which were
+     * since replaced or removed - those are dropped when they reach the head.
+     */
+    private final ConcurrentLinkedQueue<Entry> clock = new ConcurrentLinkedQueue<>();
+    private volatile int capacity;
+
+    private static final class Entry {
+        private final int src;
+        private final ShortestPathTree tree;
+        private final AtomicLong hits;
+        private volatile boolean referenced;
+
+        private Entry(int src, ShortestPathTree tree, long hits) {
+            this.src = src;
+            this.tree = tree;
+            this.hits = new AtomicLong(hits);
+        }
+    }
+
+    /**
+     * @param capacity the maximal number of trees kept, 0 disables caching
+     */
+    public ShortestPathTreeCache(int capacity) {
+        this.setCapacity(capacity);
+    }
+
+    /**
+     * return the tree of the given source, null if none.
+     *
+     * @param src
+     * @return
+     */
+    public ShortestPathTree get(int src) {
+        Entry entry = this.trees.get(src);
+        if (entry == null) {
+            return null;
+        }
+        entry.hits.incrementAndGet();
+        if (!entry.referenced) {
+            //written once per second chance, not on every hit
+            entry.referenced = true;
+        }
+        return entry.tree;
+    }
+
+    /**
+     * Adds the tree of the given source.
+     *
+     * @param src
+     * @param tree
+     * @return the number of trees evicted to make room for it.
+     */
+    public int put(int src, ShortestPathTree tree) {
+        return this.put(src, tree, 0);
+    }
+
+    /**
+     * Adds the tree of the given source, as if it was hit the given number of times.
+     *
+     * @param src
+     * @param tree
+     * @param hits
+     * @return the number of trees evicted to make room for it.
+     */
+    public int put(int src, ShortestPathTree tree, long hits) {
+        Entry entry = new Entry(src, tree, hits);
+        this.trees.put(src, entry);
+        this.clock.add(entry);
+        return this.evictOverCapacity(entry);
+    }
+
+    /**
+     * return the number of hits of the tree of the given source, 0 if none.
+     *
+     * @param src
+     * @return
+     */
+    public long hits(int src) {
+        Entry entry = this.trees.get(src);
+        return entry == null ? 0 : entry.hits.get();
+    }
+
+    /**
+     * return the tree of the given source like get, but neither counted as a hit nor as a use.
+     */
+    ShortestPathTree peek(int src) {
+        Entry entry = this.trees.get(src);
+        return entry == null ? null : entry.tree;
+    }
+
+    /**
+     * return the sources of the most hit trees, the most hit first - up to the given number of them.
+     *
+     * @param max
+     * @return
+     */
+    public int[] hottest(int max) {
+        List<Entry> entries = new ArrayList<>(this.trees.values());
+        long[] hits = new long[entries.size()];
+        Integer[] order = new Integer[entries.size()];
+        for (int i = 0; i < order.length; ++i) {
+            //read once, the counts keep changing while sorting
+            hits[i] = entries.get(i).hits.get();
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(hits[b], hits[a]));
+        int[] sources = new int[Math.min(Math.max(0, max), order.length)];
+        for (int i = 0; i < sources.length; ++i) {
+            sources[i] = entries.get(order[i]).src;
+        }
+        return sources;
+    }
+
+    /**
+     * Removes all the trees.
+     *
+     * @return the number of trees removed.
+     */
+    public int clear() {
+        //the clock first: an entry added meanwhile is then either removed below or still queued
+        this.clock.clear();
+        int removed = 0;
+        for (Map.Entry<Integer, Entry> entry : this.trees.entrySet()) {
+            if (this.trees.remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return this.trees.size();
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Changes the maximal number of trees kept.
+     *
+     * @param capacity
+     * @return the number of trees evicted by shrinking.
+     */
+    public int setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("negative capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        return this.evictOverCapacity(null);
+    }
+
+    /**
+     * Evicts trees until the cache holds at most its capacity, the added entry last: it was not hit yet,
+     * but evicting it would only make its source miss again.
+     */
+    private int evictOverCapacity(Entry added) {
+        int evicted = 0;
+        while (this.trees.size() > this.capacity) {
+            Entry eldest = this.clock.poll();
+            if (eldest == null) {
+                //another thread is evicting the last entries
+                break;
+            }
+            if (this.trees.get(eldest.src) != eldest) {
+                //replaced or removed since it was queued
+                continue;
+            }
+            if ((eldest.referenced || eldest == added) && this.capacity > 0) {
+                eldest.referenced = false;
+                this.clock.add(eldest);
+            } else if (this.trees.remove(eldest.src, eldest)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The transport between endpoints in separate processes: every two endpoints are connected by a TCP socket,
+ * the endpoint of the higher number connects to the other one. A message is framed as its length and its
+ * ints, big endian.
+ * Every connection is read by its own daemon thread into a queue, so two endpoints which send each other
+ * large messages at once never block on full socket buffers.
+ */
+public class SocketTransport implements IPartitionTransport {
+    private static final int[] CLOSED = new int[0];
+    private static final long RETRY_MILLIS = 50;
+    private final int self;
+    private final Socket[] sockets;
+    private final DataOutputStream[] out;
+    private final BlockingQueue<int[]>[] inbox;
+    private volatile boolean closed = false;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private SocketTransport(int self, int endpoints) {
+        this.self = self;
+        this.sockets = new Socket[endpoints];
+        this.out = new DataOutputStream[endpoints];
+        this.inbox = new BlockingQueue[endpoints];
+        for (int i = 0; i < endpoints; ++i) {
+            this.inbox[i] = new LinkedBlockingQueue<>();
+        }
+    }
+
+    /**
+     * Listens on the address of the given endpoint and connects to all the others, which are
+     * opened the same way (by other processes) - it returns once all of them are connected.
+     *
+     * @param self          the number of this endpoint
+     * @param addresses     the addresses of all the endpoints, by their numbers
+     * @param timeoutMillis how long to wait for the other endpoints
+     * @return
+     * @throws IOException if some endpoint was not connected in time
+     */
+    public static SocketTransport open(int self, List<InetSocketAddress> addresses, long timeoutMillis)
+            throws IOException {
+        int endpoints = addresses.size();
+        if (self < 0 || self >= endpoints) {
+            throw new IllegalArgumentException("illegal endpoint: " + self);
+        }
+        SocketTransport transport = new SocketTransport(self, endpoints);
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try (ServerSocket server = new ServerSocket()) {
+            server.setReuseAddress(true);
+            server.bind(addresses.get(self), endpoints);
+            for (int peer = 0; peer < self; ++peer) {
+                Socket socket = connect(addresses.get(peer), deadline);
+                new DataOutputStream(socket.getOutputStream()).writeInt(self);
+                transport.attach(peer, socket);
+            }
+            for (int accepted = self + 1; accepted < endpoints; ++accepted) {
+                server.setSoTimeout((int) Math.max(1, deadline - System.currentTimeMillis()));
+                Socket socket = server.accept();
+                int peer = new DataInputStream(socket.getInputStream()).readInt();
+                if (peer <= self || peer >= endpoints || transport.sockets[peer] != null) {
+                    socket.close();
+                    throw new IOException("unexpected endpoint " + peer + " connected to endpoint " + self);
+                }
+                transport.attach(peer, socket);
+            }
+        } catch (IOException e) {
+            transport.close();
+            throw e;
+        }
+        return transport;
+    }
+
+    private static Socket connect(InetSocketAddress address, long deadline) throws IOException {
+        //the other endpoint may not be listening yet
+        while (true) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(address, (int) Math.max(1, deadline - System.currentTimeMillis()));
+                return socket;
+            } catch (IOException e) {
+                socket.close();
+                if (System.currentTimeMillis() + RETRY_MILLIS >= deadline) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while connecting to " + address);
+                }
+            }
+        }
+    }
+
+    private void attach(int peer, Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        this.sockets[peer] = socket;
+        this.out[peer] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+        Thread reader = new Thread(() -> this.read(peer, in), "socket-transport-" + this.self + "-" + peer);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void read(int peer, DataInputStream in) {
+        byte[] bytes = new byte[0];
+        try {
+            while (true) {
+                int length = in.readInt();
+                if (bytes.length < 4 * length) {
+                    bytes = new byte[4 * length];
+                }
+                in.readFully(bytes, 0, 4 * length);
+                int[] message = new int[length];
+                ByteBuffer.wrap(bytes, 0, 4 * length).asIntBuffer().get(message);
+                this.inbox[peer].add(message);
+            }
+        } catch (IOException e) {
+            //the peer closed the connection (or this endpoint did)
+            this.inbox[peer].add(CLOSED);
+        }
+    }
+
+    @Override
+    public int self() {
+        return this.self;
+    }
+
+    @Override
+    public int endpoints() {
+        return this.sockets.length;
+    }
+
+    @Override
+    public void send(int to, int[] message) throws IOException {
+        if (this.closed) {
+            throw new IOException("endpoint " + this.self + " is closed");
+        }
+        DataOutputStream out = this.out[to];
+        ByteBuffer bytes = ByteBuffer.allocate(4 + 4 * message.length);
+        bytes.putInt(message.length);
+        bytes.asIntBuffer().put(message);
+        synchronized (out) {
+            out.write(bytes.array());
+            out.flush();
+        }
+    }
+
+    @Override
+    public int[] receive(int from) throws IOException {
+        if (this.closed) {
+            throw new IOException("endpoint " + this.self + " is closed");
+        }
+        int[] message;
+        try {
+            message = this.inbox[from].take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while receiving from endpoint " + from);
+        }
+        if (message == CLOSED) {
+            //kept for the next receive, which fails too
+            this.inbox[from].add(CLOSED);
+            throw new IOException("endpoint " + from + " is closed");
+        }
+        return message;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        IOException failure = null;
+        for (Socket socket : this.sockets) {
+            if (socket == null) continue;
+            try {
+                socket.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
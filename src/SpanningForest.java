@@ -0,0 +1,67 @@
+/**
+ * A minimum spanning forest of a graph (see GraphAlgorithms.minimumSpanningForest()): a minimum spanning
+ * tree of every connected component, as primitive arrays of its edges - edge i connects the nodes
+ * from()[i] and to()[i] and its length is lengths()[i]. The edges are in no particular order.
+ */
+public final class SpanningForest {
+    private final int[] from;
+    private final int[] to;
+    private final double[] lengths;
+    private final int vertexCount;
+
+    /**
+     * @param from        the key of the first end of every edge
+     * @param to          the key of the second end of every edge
+     * @param lengths     the length of every edge
+     * @param vertexCount the number of vertices in the graph
+     */
+    SpanningForest(int[] from, int[] to, double[] lengths, int vertexCount) {
+        this.from = from;
+        this.to = to;
+        this.lengths = lengths;
+        this.vertexCount = vertexCount;
+    }
+
+    /**
+     * return the number of edges in the forest.
+     *
+     * @return
+     */
+    public int size() {
+        return this.from.length;
+    }
+
+    public int[] from() {
+        return this.from;
+    }
+
+    public int[] to() {
+        return this.to;
+    }
+
+    public double[] lengths() {
+        return this.lengths;
+    }
+
+    /**
+     * return the sum of the lengths of the edges.
+     *
+     * @return
+     */
+    public double totalLength() {
+        double total = 0;
+        for (double length : this.lengths) {
+            total += length;
+        }
+        return total;
+    }
+
+    /**
+     * return the number of trees in the forest, which is the number of connected components of the graph.
+     *
+     * @return
+     */
+    public int trees() {
+        return this.vertexCount - this.from.length;
+    }
+}
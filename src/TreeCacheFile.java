@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntConsumer;
+
+/**
+ * The binary file of the shortest path trees saved by GraphAlgorithms.saveTreeCache, so a restarted
+ * process starts with the hot trees of the previous one.
+ * The file starts with the version of the graph the trees were computed on: its mode count, its sizes and
+ * a fingerprint of its adjacency, then every tree follows, from the least hit one, with its source key and
+ * hits - the previous slot of every slot, and the distances as ints when they all are (-1 for unreachable
+ * slots) or as doubles.
+ * The trees are over the slots of the view, so they are loaded only onto a view of the same fingerprint;
+ * the mode count is kept for reference, as mode counts start over in a new process.
+ * The file is little endian on every platform, so it can be loaded on another machine; loading maps the file
+ * and copies the arrays out of it in bulk, which costs no byte swapping on the common (little endian) ones.
+ */
+final class TreeCacheFile {
+    private static final int MAGIC = 0x53505443;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 * 5;
+    private static final byte INT_DIST = 0;
+    private static final byte DOUBLE_DIST = 1;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private TreeCacheFile() {
+    }
+
+    /**
+     * return a hash of the slots of the view, their keys, neighbors and edge lengths.
+     * Note: this method runs in O(|V|+|E|) time.
+     */
+    static long fingerprint(IAdjacencyView view) {
+        int[] ni = new int[view.maxDegree()];
+        double[] lengths = new double[view.maxDegree()];
+        boolean weighted = view.isWeighted();
+        long h = mix(view.capacity());
+        for (int v = 0; v < view.capacity(); ++v) {
+            if (!view.contains(v)) {
+                h = mix(h - 1);
+                continue;
+            }
+            h = mix(h + view.keyOf(v));
+            int degree = view.neighbors(v, ni);
+            if (weighted) view.lengths(v, lengths);
+            for (int i = 0; i < degree; ++i) {
+                h = mix(h + ni[i]);
+                if (weighted) h = mix(h + Double.doubleToLongBits(lengths[i]));
+            }
+        }
+        return h;
+    }
+
+    private static long mix(long z) {
+        //the finalizer of SplitMix64
+        z += 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Writes the trees of the given sources from the cache to a temporary file, renamed over the given one.
+     *
+     * @return the number of trees written.
+     */
+    static int save(Path file, IAdjacencyView view, int modeCount, ShortestPathTreeCache cache, int[] sources)
+            throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        int n = view.capacity();
+        int written = 0;
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ShortestPathTree[] trees = new ShortestPathTree[sources.length];
+            //the least hit first, see load
+            for (int i = sources.length - 1; i >= 0; --i) {
+                ShortestPathTree tree = cache.peek(sources[i]);
+                //the cache holds only trees of the view, but one may be evicted meanwhile
+                if (tree != null) trees[written++] = tree;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+            header.putInt(MAGIC).putInt(VERSION).putLong(fingerprint(view)).putInt(modeCount).putInt(n)
+                    .putInt(view.vertexCount()).putInt(view.edgeCount()).putInt(written).flip();
+            writeFully(channel, header);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(13 + 16 * n).order(ORDER);
+            for (int t = 0; t < written; ++t) {
+                ShortestPathTree tree = trees[t];
+                int[] prev = tree.prevArray();
+                double[] dist = tree.distArray();
+                boolean integral = true;
+                for (int v = 0; v < n && integral; ++v) {
+                    integral = Double.isInfinite(dist[v]) || (dist[v] == (int) dist[v] && dist[v] >= 0);
+                }
+                buffer.clear();
+                int src = view.keyOf(tree.source());
+                buffer.putInt(src).putLong(cache.hits(src)).put(integral ? INT_DIST : DOUBLE_DIST);
+                buffer.asIntBuffer().put(prev);
+                buffer.position(buffer.position() + 4 * n);
+                if (integral) {
+                    for (int v = 0; v < n; ++v) {
+                        buffer.putInt(Double.isInfinite(dist[v]) ? -1 : (int) dist[v]);
+                    }
+                } else {
+                    buffer.asDoubleBuffer().put(dist);
+                    buffer.position(buffer.position() + 8 * n);
+                }
+                buffer.flip();
+                writeFully(channel, buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Loads the trees of the file into the cache, with their hits, if they were computed on a view of the
+     * same fingerprint as the given one.
+     *
+     * @param evictions gets the number of trees every put evicted from the cache
+     * @return the number of trees loaded, 0 if the file is of another version of the graph.
+     */
+    static int load(Path file, IAdjacencyView view, ShortestPathTreeCache cache, IntConsumer evictions)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("not a tree cache file: " + file);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            map.order(ORDER);
+            if (map.getInt() != MAGIC || map.getInt() != VERSION) {
+                throw new IOException("not a tree cache file: " + file);
+            }
+            long fingerprint = map.getLong();
+            map.getInt();
+            int n = map.getInt();
+            int vertexCount = map.getInt();
+            int edgeCount = map.getInt();
+            int count = map.getInt();
+            if (n != view.capacity() || vertexCount != view.vertexCount() || edgeCount != view.edgeCount()
+                    || fingerprint != fingerprint(view)) {
+                return 0;
+            }
+            //the least hit trees come first, so they are the least recently used if the cache is too small
+            for (int t = 0; t < count; ++t) {
+                if (map.remaining() < 13 + 8L * n) {
+                    throw new IOException("truncated tree cache file: " + file);
+                }
+                int src = map.getInt();
+                long hits = map.getLong();
+                byte kind = map.get();
+                int[] prev = new int[n];
+                map.asIntBuffer().get(prev);
+                map.position(map.position() + 4 * n);
+                double[] dist = new double[n];
+                if (kind == INT_DIST) {
+                    for (int v = 0; v < n; ++v) {
+                        int d = map.getInt();
+                        dist[v] = d == -1 ? Double.POSITIVE_INFINITY : d;
+                    }
+                } else {
+                    if (map.remaining() < 8L * n) {
+                        throw new IOException("truncated tree cache file: " + file);
+                    }
+                    map.asDoubleBuffer().get(dist);
+                    map.position(map.position() + 8 * n);
+                }
+                int source = view.indexOf(src);
+                if (source == -1) {
+                    throw new IOException("corrupt tree cache file: " + file);
+                }
+                evictions.accept(cache.put(src, new ShortestPathTree(source, prev, dist), hits));
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * The triangle counting kernel of GraphAlgorithms, over the CSR arrays of a CompactGraph.
+ * Every edge is oriented from the lower ranked end to the higher one, ranked by degree (and index),
+ * so every triangle is found exactly once - from its lowest vertex, by intersecting its sorted out
+ * neighbors with those of each of them - and no vertex has more than O(sqrt(|E|)) out neighbors.
+ * The intersections merge the two lists, or gallop through the longer one when it is much longer.
+ * The vertices are split between threads in chunks.
+ */
+final class Triangles {
+    private static final int CHUNK = 1 << 10;
+    /**
+     * The length ratio from which galloping beats merging.
+     */
+    private static final int GALLOP_RATIO = 16;
+
+    private final int n;
+    private final int[] offsets;
+    private final int[] targets;
+
+    /**
+     * Orients the edges of the given graph, in parallel.
+     */
+    Triangles(CompactGraph g) {
+        this.n = g.vertexCount();
+        int[] offsets = g.offsets();
+        int[] targets = g.targets();
+        int[] outDegree = new int[this.n];
+        IntStream.range(0, this.n).parallel().forEach(v -> {
+            for (int e = offsets[v]; e < offsets[v + 1]; ++e) {
+                if (above(offsets, targets[e], v)) outDegree[v]++;
+            }
+        });
+        this.offsets = new int[this.n + 1];
+        for (int v = 0; v < this.n; ++v) {
+            this.offsets[v + 1] = this.offsets[v] + outDegree[v];
+        }
+        this.targets = new int[this.offsets[this.n]];
+        //the out neighbors keep the order of the neighbors, sorted by index
+        IntStream.range(0, this.n).parallel().forEach(v -> {
+            int k = this.offsets[v];
+            for (int e = offsets[v]; e < offsets[v + 1]; ++e) {
+                if (above(offsets, targets[e], v)) this.targets[k++] = targets[e];
+            }
+        });
+    }
+
+    /**
+     * return true iff u is ranked above v: it has a higher degree, or the same degree and a higher index.
+     */
+    private static boolean above(int[] offsets, int u, int v) {
+        int du = offsets[u + 1] - offsets[u];
+        int dv = offsets[v + 1] - offsets[v];
+        return du > dv || (du == dv && u > v);
+    }
+
+    /**
+     * Counts the triangles.
+     *
+     * @param perVertex if not null, gets the number of triangles of every vertex added
+     * @param caller    the thread which waits for the result, its interrupt cancels the count
+     * @return the number of triangles in the graph.
+     */
+    long count(AtomicLongArray perVertex, Thread caller) {
+        return IntStream.range(0, (this.n + CHUNK - 1) / CHUNK).parallel().mapToLong(chunk -> {
+            if (caller.isInterrupted()) {
+                throw new CancellationException("the query was interrupted");
+            }
+            long triangles = 0;
+            for (int v = chunk * CHUNK; v < Math.min(this.n, (chunk + 1) * CHUNK); ++v) {
+                for (int e = this.offsets[v]; e < this.offsets[v + 1]; ++e) {
+                    int u = this.targets[e];
+                    triangles += this.intersect(v, u, perVertex);
+                }
+            }
+            return triangles;
+        }).sum();
+    }
+
+    /**
+     * return the number of common out neighbors of v and u, the third vertices of their triangles.
+     */
+    private long intersect(int v, int u, AtomicLongArray perVertex) {
+        int i = this.offsets[v], iEnd = this.offsets[v + 1];
+        int j = this.offsets[u], jEnd = this.offsets[u + 1];
+        int[] t = this.targets;
+        long common = 0;
+        if (iEnd - i > GALLOP_RATIO * (jEnd - j) || jEnd - j > GALLOP_RATIO * (iEnd - i)) {
+            //look every entry of the shorter list up in the longer one, from where the previous one was found
+            if (iEnd - i < jEnd - j) {
+                int ti = i, tEnd = iEnd;
+                i = j;
+                iEnd = jEnd;
+                j = ti;
+                jEnd = tEnd;
+            }
+            for (; j < jEnd && i < iEnd; ++j) {
+                i = gallop(t, i, iEnd, t[j]);
+                if (i < iEnd && t[i] == t[j]) {
+                    common++;
+                    count(perVertex, v, u, t[j]);
+                }
+            }
+            return common;
+        }
+        //the merge advances without branching on the comparison, which the processor can not predict
+        while (i < iEnd && j < jEnd) {
+            int a = t[i];
+            int b = t[j];
+            if (a == b) {
+                common++;
+                count(perVertex, v, u, a);
+            }
+            i += a <= b ? 1 : 0;
+            j += b <= a ? 1 : 0;
+        }
+        return common;
+    }
+
+    /**
+     * return the first position in t[from..to-1] whose value is not less than the given one (to if none),
+     * by doubling steps and then a binary search.
+     */
+    private static int gallop(int[] t, int from, int to, int value) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < to && t[high] < value) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, to);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (t[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void count(AtomicLongArray perVertex, int v, int u, int w) {
+        if (perVertex != null) {
+            perVertex.incrementAndGet(v);
+            perVertex.incrementAndGet(u);
+            perVertex.incrementAndGet(w);
+        }
+    }
+}
@@ -1,11 +1,30 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.stream.IntStream;
 
 public class UndirectedGraph implements IGraph {
+    private static final int PARALLEL_COPY_THRESHOLD = 1 << 14;
+    private static final int TO_STRING_ELEMENTS_LIMIT = 1 << 10;
+    private static final int TO_STRING_MATRIX_LIMIT = 1 << 6;
     private Map<Integer, INodeData> verticesMap = new HashMap<>();
     private Set<INodeData> vertices = new HashSet<>();
     private Set<UndirectedEdge> edges = new HashSet<>();
+    /**
+     * The lengths of the edges whose length is not 1.
+     */
+    private Map<UndirectedEdge, Double> lengths = new HashMap<>();
     private String toString = null;
+    private int toStringModeCount = -1;
     private int modeCount = 0;
+    /**
+     * Guards lastSnapshot and changedVertices, snapshots are taken by reader threads too.
+     */
+    private final Object snapshotLock = new Object();
+    private GraphSnapshot lastSnapshot = null;
+    private Set<Integer> changedVertices = new HashSet<>();
+    private ChangeLog changeLog = null;
+    private GraphJournal journal = null;
 
     public UndirectedGraph() {
     }
@@ -42,9 +61,14 @@ public class UndirectedGraph implements IGraph {
      */
     @Override
     public void addNode(INodeData n) {
-        if (this.vertices.add(n)){
+        if (!this.vertices.contains(n)){
+            this.journal(GraphDelta.ADD_NODE, n.getKey(), -1, n.getInfo(), Double.NaN);
+            this.vertices.add(n);
             this.modeCount++;
             this.verticesMap.put(n.getKey(), n);
+            this.vertexChanged(n.getKey());
+            GraphMutationEvent.emit("addNode", n.getKey(), -1, 0, this.modeCount);
+            this.log(GraphDelta.ADD_NODE, n.getKey(), -1, n.getInfo(), Double.NaN);
         }
     }
 
@@ -59,13 +83,64 @@ public class UndirectedGraph implements IGraph {
     @Override
     public void connect(int node1, int node2) {
         if (!this.hasVertex(node1) || !this.hasVertex(node2)) return;
-        if (this.edges.add(new UndirectedEdge(node1, node2))) {
-            this.modeCount++;
+        UndirectedEdge edge = new UndirectedEdge(node1, node2);
+        if (!this.edges.contains(edge)) {
+            this.addEdge(edge, node1, node2, 1);
         }
         this.getNode(node1).addNi(this.getNode(node2));
         this.getNode(node2).addNi(this.getNode(node1));
     }
 
+    private void addEdge(UndirectedEdge edge, int node1, int node2, double length) {
+        this.journal(GraphDelta.CONNECT, node1, node2, null, length);
+        this.edges.add(edge);
+        this.setLength(edge, length);
+        this.modeCount++;
+        this.vertexChanged(node1);
+        this.vertexChanged(node2);
+        GraphMutationEvent.emit("connect", node1, node2, 0, this.modeCount);
+        this.log(GraphDelta.CONNECT, node1, node2, null, length);
+    }
+
+    /**
+     * Connect an edge of the given length between node1 and node2,
+     * or sets the length of the edge node1-node2 if it already exists.
+     * Note: this method should run in O(1) time.
+     *
+     * @param node1
+     * @param node2
+     * @param length a finite length, not negative
+     */
+    public void connect(int node1, int node2, double length) {
+        if (!(length >= 0) || Double.isInfinite(length)) {
+            throw new IllegalArgumentException("illegal edge length: " + length);
+        }
+        if (!this.hasVertex(node1) || !this.hasVertex(node2)) return;
+        UndirectedEdge edge = new UndirectedEdge(node1, node2);
+        if (!this.edges.contains(edge)) {
+            this.addEdge(edge, node1, node2, length);
+            this.getNode(node1).addNi(this.getNode(node2));
+            this.getNode(node2).addNi(this.getNode(node1));
+        } else if (this.getEdgeLength(node1, node2) != length) {
+            this.journal(GraphDelta.CONNECT, node1, node2, null, length);
+            this.setLength(edge, length);
+            this.modeCount++;
+            this.vertexChanged(node1);
+            this.vertexChanged(node2);
+            GraphMutationEvent.emit("connect", node1, node2, 0, this.modeCount);
+            this.log(GraphDelta.CONNECT, node1, node2, null, length);
+        }
+    }
+
+    private void setLength(UndirectedEdge edge, double length) {
+        if (length == 1) {
+            this.lengths.remove(edge);
+        } else {
+            //+0.0 turns -0.0 into 0.0
+            this.lengths.put(edge, length + 0.0);
+        }
+    }
+
     /**
      * This method return a pointer (shallow copy) for the
      * collection representing all the nodes in the graph.
@@ -109,19 +184,27 @@ public class UndirectedGraph implements IGraph {
         if (node == null) {
             return null;
         }
+        //replaying the removal removes the edges too, they are not journaled one by one
+        this.journal(GraphDelta.REMOVE_NODE, key, -1, null, Double.NaN);
         this.modeCount++;
+        //logged before its edges, so every logged mutation has a mode count of its own
+        this.log(GraphDelta.REMOVE_NODE, key, -1, null, Double.NaN);
+        int edgesBefore = this.edgeSize();
+        this.removeEdgesOfVertex(key);
         this.verticesMap.remove(key);
         this.vertices.remove(node);
-        this.removeEdgesOfVertex(key);
+        this.vertexChanged(key);
+        GraphMutationEvent.emit("removeNode", key, -1, edgesBefore - this.edgeSize(), this.modeCount);
         return node;
     }
 
+    /**
+     * Removes the edges of the given vertex, found through its neighbors in O(degree) time.
+     */
     private void removeEdgesOfVertex(int vertex) {
-        Set<UndirectedEdge> edgesSet = new HashSet<>(this.edges);
-        for (UndirectedEdge edge : edgesSet) {
-            if (edge.contains(vertex)) {
-                this.removeEdge(edge.left(), edge.right());
-            }
+        List<INodeData> neighbors = new ArrayList<>(NodeData.neighborsOf(this.getNode(vertex)));
+        for (INodeData neighbor : neighbors) {
+            this.removeEdge(vertex, neighbor.getKey(), false);
         }
     }
 
@@ -134,8 +217,24 @@ public class UndirectedGraph implements IGraph {
      */
     @Override
     public void removeEdge(int node1, int node2) {
+        this.removeEdge(node1, node2, true);
+    }
+
+    private void removeEdge(int node1, int node2, boolean journaled) {
+        UndirectedEdge edge = new UndirectedEdge(node1, node2);
+        if (journaled && this.edges.contains(edge)) {
+            this.journal(GraphDelta.REMOVE_EDGE, node1, node2, null, Double.NaN);
+        }
         this.modeCount++;
-        this.edges.remove(new UndirectedEdge(node1, node2));
+        if (this.edges.remove(edge)) {
+            this.lengths.remove(edge);
+            this.getNode(node1).removeNode(this.getNode(node2));
+            this.getNode(node2).removeNode(this.getNode(node1));
+            this.vertexChanged(node1);
+            this.vertexChanged(node2);
+            GraphMutationEvent.emit("removeEdge", node1, node2, 0, this.modeCount);
+            this.log(GraphDelta.REMOVE_EDGE, node1, node2, null, Double.NaN);
+        }
     }
 
     /**
@@ -180,83 +279,199 @@ public class UndirectedGraph implements IGraph {
      */
     @Override
     public double getEdgeLength(int u, int v) {
-        return 1;
+        UndirectedEdge edge = new UndirectedEdge(u, v);
+        if (!this.edges.contains(edge)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return this.lengths.getOrDefault(edge, 1.0);
+    }
+
+    /**
+     * return true iff some edge has a length other than 1 (see connect(int, int, double)).
+     *
+     * @return
+     */
+    public boolean isWeighted() {
+        return !this.lengths.isEmpty();
     }
 
     public String stringifyVertexes() {
         StringBuilder sb = new StringBuilder();
-        sb.append("V={");
-        for (INodeData v : this.vertices) {
-            sb.append(String.format("%d, ", v.getKey()));
-        }
-        sb.deleteCharAt(sb.lastIndexOf(","));
-        sb.append("}");
+        render(() -> GraphRenderer.writeVertices(this, sb));
         return sb.toString();
     }
 
     public String stringifyEdges() {
         StringBuilder sb = new StringBuilder();
-        sb.append("E={");
-        int k = 0;
-        for (UndirectedEdge edge : this.edges) {
-            if (k == 10) {
-                k = 0;
-                sb.append("\n\t");
-            }
-            sb.append(edge.toString()).append(", ");
-            k++;
-        }
-        sb.deleteCharAt(sb.lastIndexOf(","));
-        sb.append("}");
+        render(() -> GraphRenderer.writeEdges(this, sb));
         return sb.toString();
     }
 
     public String stringifyEdgesAsMatrix() {
-        int[] vertexesNumbers = new int[this.vertices.size()];
-        int k = 0;
-        for (INodeData v : this.vertices) {
-            vertexesNumbers[k++] = v.getKey();
+        StringBuilder sb = new StringBuilder();
+        render(() -> GraphRenderer.writeMatrix(this, sb));
+        return sb.toString();
+    }
+
+    /**
+     * Describes the graph, listing its vertices and edges only when there are at most 1024 of each,
+     * and its adjacency matrix only for up to 64 vertices - larger graphs should be streamed
+     * with GraphRenderer instead.
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        if (this.toString == null || this.toStringModeCount != this.modeCount) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("\n\nUndirectedGraph:\nMode Count:%d\n\n", this.modeCount));
+            if (this.nodeSize() > TO_STRING_ELEMENTS_LIMIT || this.edgeSize() > TO_STRING_ELEMENTS_LIMIT) {
+                sb.append(String.format("|V|=%d, |E|=%d\n", this.nodeSize(), this.edgeSize()));
+            } else {
+                sb.append(this.stringifyVertexes()).append("\n").append(this.stringifyEdges()).append("\n");
+                if (this.nodeSize() <= TO_STRING_MATRIX_LIMIT) {
+                    sb.append("\n").append(this.stringifyEdgesAsMatrix()).append("\n");
+                }
+            }
+            this.toString = sb.toString();
+            this.toStringModeCount = this.modeCount;
         }
-        Arrays.sort(vertexesNumbers);
-        String[][] matrix = new String[this.vertices.size() + 1][this.vertices.size() + 1];
-        matrix[0][0] = " ";
-        for (int i = 1; i < matrix.length; ++i) {
-            matrix[0][i] = Integer.toString(vertexesNumbers[i - 1]);
-            matrix[i][0] = Integer.toString(vertexesNumbers[i - 1]);
+        return this.toString;
+    }
+
+    private interface RenderAction {
+        void render() throws IOException;
+    }
+
+    private static void render(RenderAction action) {
+        try {
+            action.render();
+        } catch (IOException e) {
+            //a StringBuilder never throws
+            throw new UncheckedIOException(e);
         }
-        for (int i = 1; i < matrix.length; i++) {
-            for (int j = 1; j < matrix[i].length; j++) {
-                matrix[i][j] = "f";
-                matrix[j][i] = "f";
-            }
+    }
+
+    /**
+     * Returns a deep copy of this graph - new nodes with the same keys, info and tags,
+     * connected by the same edges, which share nothing mutable with the nodes of this graph.
+     * The maps and sets are cloned in bulk rather than rebuilt through addNode and connect,
+     * and the neighbors of large graphs are copied in parallel.
+     * Note: this method runs in O(|V|+|E|) time, the mode count is copied as well.
+     *
+     * @return
+     */
+    public UndirectedGraph deepCopy() {
+        INodeData[] originals = this.vertices.toArray(new INodeData[0]);
+        INodeData[] copies = new INodeData[originals.length];
+        Map<Integer, INodeData> copiesMap = new HashMap<>(Math.max(16, (int) (originals.length / 0.75f) + 1));
+        IntStream indexes = IntStream.range(0, originals.length);
+        if (originals.length >= PARALLEL_COPY_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> copies[i] = new NodeData(originals[i]));
+        for (INodeData copy : copies) {
+            copiesMap.put(copy.getKey(), copy);
+        }
+        //every task only adds to the neighbors of its own copy
+        indexes = IntStream.range(0, originals.length);
+        if (originals.length >= PARALLEL_COPY_THRESHOLD) {
+            indexes = indexes.parallel();
         }
-        for (int i = 0; i < vertexesNumbers.length; ++i) {
-            for (int j = 0; j < vertexesNumbers.length; ++j) {
-                if (this.edges.contains(new UndirectedEdge(vertexesNumbers[i], vertexesNumbers[j]))) {
-                    matrix[i + 1][j + 1] = "t";
-                    matrix[j + 1][i + 1] = "t";
+        indexes.forEach(i -> {
+            for (INodeData neighbor : NodeData.neighborsOf(originals[i])) {
+                INodeData neighborCopy = copiesMap.get(neighbor.getKey());
+                if (neighborCopy != null) {
+                    copies[i].addNi(neighborCopy);
                 }
             }
-        }
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < matrix.length; ++i) {
-            for (int j = 0; j < matrix[i].length; ++j) {
-                sb.append(" ").append(matrix[j][i]).append("|").append(" ");
+        });
+        UndirectedGraph graphCopy = new UndirectedGraph();
+        graphCopy.verticesMap = copiesMap;
+        graphCopy.vertices = new HashSet<>(copiesMap.values());
+        graphCopy.edges = new HashSet<>(this.edges);
+        graphCopy.lengths = new HashMap<>(this.lengths);
+        graphCopy.modeCount = this.modeCount;
+        return graphCopy;
+    }
+
+    /**
+     * Returns an immutable point-in-time copy of this graph, which reader threads can run
+     * GraphAlgorithms on while this graph keeps changing.
+     * Consecutive snapshots share the adjacency of every vertex which did not change between them,
+     * so taking a snapshot costs O(|V|) plus the degrees of the changed vertices,
+     * and it costs nothing if the graph did not change since the last one.
+     * Note: several threads may take snapshots at once (e.g. the queries of GraphAlgorithms), they are
+     * taken under a lock - but not while the graph is being changed: the snapshots of a graph which keeps
+     * changing should be taken by its writer thread and handed to the readers.
+     *
+     * @return
+     */
+    public GraphSnapshot snapshot() {
+        synchronized (this.snapshotLock) {
+            if (this.lastSnapshot == null || this.lastSnapshot.getMC() != this.modeCount) {
+                this.lastSnapshot = GraphSnapshot.of(this, this.lastSnapshot, this.changedVertices);
+                this.changedVertices.clear();
             }
-            sb.deleteCharAt(sb.lastIndexOf("| "));
-            sb.append("\n").append("----".repeat(matrix[i].length)).append("\n");
+            return this.lastSnapshot;
         }
-        sb.delete(sb.lastIndexOf("\n" + "----".repeat(matrix.length)), sb.length());
-        return sb.toString();
     }
 
-    @Override
-    public String toString() {
-        if (this.toString == null) {
-            this.toString = String.format("\n\nUndirectedGraph:\nMode Count:%d\n\n%s\n%s\n\n%s\n", this.modeCount, this.stringifyVertexes(),
-                    this.stringifyEdges(), this.stringifyEdgesAsMatrix());
+    /**
+     * Starts logging the mutations of this graph, keeping the latest ones (see ChangeLog), or returns the
+     * log if they are already logged.
+     *
+     * @param capacity the number of mutations to keep, rounded up to a power of 2
+     * @return
+     */
+    public ChangeLog enableChangeLog(int capacity) {
+        if (this.changeLog == null) {
+            this.changeLog = new ChangeLog(capacity, this.modeCount);
+        }
+        return this.changeLog;
+    }
+
+    /**
+     * return the log of the mutations of this graph, null if they are not logged.
+     *
+     * @return
+     */
+    public ChangeLog getChangeLog() {
+        return this.changeLog;
+    }
+
+    /**
+     * Journals the mutations of this graph from now on, null stops journaling them (see GraphJournal).
+     */
+    void setJournal(GraphJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Logs a mutation once it was done, with the mode count it left.
+     */
+    private void log(byte op, int node1, int node2, String info, double length) {
+        if (this.changeLog != null) {
+            this.changeLog.record(op, node1, node2, info, length, this.modeCount);
+        }
+    }
+
+    /**
+     * Journals a mutation before it is done, so a mutation the journal failed on is not done either.
+     */
+    private void journal(byte op, int node1, int node2, String info, double length) {
+        if (this.journal != null) {
+            this.journal.append(op, node1, node2, info, length);
+        }
+    }
+
+    private void vertexChanged(int key) {
+        //changes only matter to the next snapshot, if there will be one
+        synchronized (this.snapshotLock) {
+            if (this.lastSnapshot != null) {
+                this.changedVertices.add(key);
+            }
         }
-        return this.toString;
     }
 
     private boolean hasVertex(int key) {
@@ -0,0 +1,88 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A graph for read-mostly workloads, in the read-copy-update manner:
+ * readers get the current immutable version (a GraphSnapshot) with a single volatile read,
+ * never waiting for writers, while writers batch their mutations into a GraphDelta and publish
+ * a new version at once. A new version shares the adjacency of every vertex the delta did not touch
+ * with the previous one, so publishing costs O(|V|) plus the degrees of the touched vertices.
+ * An old version is reclaimed by the garbage collector once the last reader holding it drops it,
+ * which is exactly the grace period RCU waits for.
+ */
+public class VersionedGraph {
+    private final AtomicReference<Version> current;
+    private volatile GraphAlgorithmsStats stats;
+
+    /**
+     * The snapshot of a version, with the algorithms bound to it.
+     */
+    private static final class Version {
+        private final GraphSnapshot graph;
+        private final GraphAlgorithms algorithms;
+
+        private Version(GraphSnapshot graph, GraphAlgorithmsStats stats) {
+            this.graph = graph;
+            this.algorithms = new GraphAlgorithms(graph);
+            this.algorithms.setStats(stats);
+        }
+    }
+
+    public VersionedGraph() {
+        this(GraphSnapshot.of(new UndirectedGraph()));
+    }
+
+    /**
+     * @param initial the first version
+     */
+    public VersionedGraph(GraphSnapshot initial) {
+        this.current = new AtomicReference<>(new Version(initial, null));
+    }
+
+    /**
+     * return the current version of the graph.
+     * Note: this method is wait-free.
+     *
+     * @return
+     */
+    public GraphSnapshot current() {
+        return this.current.get().graph;
+    }
+
+    /**
+     * return the algorithms bound to the current version, their shortest path trees are shared
+     * by all the readers of the version (and are dropped with it).
+     * Note: this method is wait-free.
+     *
+     * @return
+     */
+    public GraphAlgorithms algorithms() {
+        return this.current.get().algorithms;
+    }
+
+    /**
+     * Applies the mutations to the current version and makes the result the current version.
+     * Readers of the previous version are not affected.
+     * Note: publishers are serialized, an empty delta publishes nothing.
+     *
+     * @param delta
+     * @return the new current version.
+     */
+    public synchronized GraphSnapshot publish(GraphDelta delta) {
+        Version version = this.current.get();
+        if (delta.isEmpty()) {
+            return version.graph;
+        }
+        Version next = new Version(version.graph.apply(delta), this.stats);
+        this.current.set(next);
+        return next.graph;
+    }
+
+    /**
+     * Enables the statistics of the algorithms of the versions published from now on, null disables them.
+     *
+     * @param stats
+     */
+    public void setStats(GraphAlgorithmsStats stats) {
+        this.stats = stats;
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Orderings of the vertices of an adjacency view, for renumbering a graph (see CompactGraph.relabel).
+ * Node keys are given in insertion order, which has nothing to do with the topology, so the neighbors
+ * of a vertex are spread all over memory - an ordering which puts them close together makes
+ * traversals far more cache friendly.
+ * Every ordering returns order, where order[i] is the slot of the vertex that becomes vertex i.
+ */
+public enum VertexOrdering {
+    /**
+     * By increasing node keys, the order of insertion.
+     */
+    KEY {
+        @Override
+        public int[] order(IAdjacencyView view) {
+            int[] order = new int[view.vertexCount()];
+            int k = 0;
+            for (int index = 0; index < view.capacity(); ++index) {
+                if (view.contains(index)) {
+                    order[k++] = index;
+                }
+            }
+            //the slots of a view are not necessarily in key order
+            return sortBy(order, view::keyOf);
+        }
+    },
+    /**
+     * Breadth first, component by component: every vertex is near its parent and its siblings.
+     */
+    BFS {
+        @Override
+        public int[] order(IAdjacencyView view) {
+            return breadthFirst(view, false);
+        }
+    },
+    /**
+     * Reverse Cuthill-McKee: breadth first from a low degree vertex, visiting the neighbors by
+     * increasing degree, and reversed - this minimizes the bandwidth of the adjacency matrix,
+     * the distance between the numbers of neighbors.
+     */
+    RCM {
+        @Override
+        public int[] order(IAdjacencyView view) {
+            int[] order = breadthFirst(view, true);
+            for (int i = 0, j = order.length - 1; i < j; ++i, --j) {
+                int t = order[i];
+                order[i] = order[j];
+                order[j] = t;
+            }
+            return order;
+        }
+    },
+    /**
+     * By decreasing degree: the hubs, which most traversals touch, are packed together.
+     */
+    DEGREE {
+        @Override
+        public int[] order(IAdjacencyView view) {
+            int[] order = KEY.order(view);
+            return sortBy(order, index -> view.maxDegree() - view.degree(index));
+        }
+    };
+
+    /**
+     * return the order of the vertices of the given view.
+     *
+     * @param view
+     * @return
+     */
+    public abstract int[] order(IAdjacencyView view);
+
+    private static int[] breadthFirst(IAdjacencyView view, boolean byDegree) {
+        int[] order = new int[view.vertexCount()];
+        boolean[] visited = new boolean[view.capacity()];
+        int[] buffer = new int[view.maxDegree()];
+        //RCM starts every component from its lowest degree vertex
+        int[] starts = byDegree ? sortBy(KEY.order(view), view::degree) : KEY.order(view);
+        int tail = 0;
+        for (int start : starts) {
+            if (visited[start]) continue;
+            visited[start] = true;
+            int head = tail;
+            order[tail++] = start;
+            while (head < tail) {
+                int u = order[head++];
+                int degree = view.neighbors(u, buffer);
+                int first = tail;
+                for (int i = 0; i < degree; ++i) {
+                    if (!visited[buffer[i]]) {
+                        visited[buffer[i]] = true;
+                        order[tail++] = buffer[i];
+                    }
+                }
+                if (byDegree) {
+                    sortRange(order, first, tail, view::degree);
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Sorts the slots by the given non-negative rank, equal ranks by slot.
+     */
+    private static int[] sortBy(int[] slots, IntUnaryOperator rank) {
+        sortRange(slots, 0, slots.length, rank);
+        return slots;
+    }
+
+    private static void sortRange(int[] slots, int from, int to, IntUnaryOperator rank) {
+        if (to - from < 2) return;
+        long[] ranked = new long[to - from];
+        for (int i = from; i < to; ++i) {
+            ranked[i - from] = ((long) rank.applyAsInt(slots[i]) << 32) | slots[i];
+        }
+        Arrays.sort(ranked);
+        for (int i = from; i < to; ++i) {
+            slots[i] = (int) ranked[i - from];
+        }
+    }
+}